@@ -0,0 +1,98 @@
+/*
+ *
+ *   ReBayCT: a tool for classification on a Thesaurus
+ *
+ *	For details see:
+ *	 L. M. de Campos, A. E. Romero, Bayesian Network Models for Hierarchical Text
+ *	Classification from a Thesaurus, Int. J. Approx. Reasoning 50(7): 932-944 (2009).
+ *
+ *
+ *   Copyright (C) 2006-2008 Alfonso E. Romero <alfonsoeromero (AT) gmail (DOT) com>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package benchmark;
+
+/**
+ * A benchmark: an operation whose average time is measured. As in JMH's
+ * "average time" mode, the operation is run during some warmup iterations
+ * (not measured, so that the JIT compiles it) and then during the measured
+ * iterations, each one of a fixed time. The score is the mean time per
+ * operation among the measured iterations, with its standard deviation.
+ */
+public abstract class Benchmark {
+    //! name shown in the report
+    private final String name;
+
+    //! results of the operations are folded here, so they are not optimized away
+    private static volatile int sink;
+
+    protected Benchmark(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /** Runs the operation once
+     * @return the result of the operation (it is consumed by the harness)
+     */
+    public abstract Object run();
+
+    /** Measures the benchmark
+     * @param warmupIterations number of iterations not measured
+     * @param iterations number of measured iterations
+     * @param iterationMillis time of each iteration, in milliseconds
+     * @return mean and standard deviation of the time per operation, in nanoseconds
+     */
+    public double[] measure(int warmupIterations, int iterations, long iterationMillis) {
+        for (int i=0; i<warmupIterations; ++i)
+            iteration(iterationMillis);
+
+        double[] scores = new double[iterations];
+        double mean = 0.0;
+        for (int i=0; i<iterations; ++i) {
+            scores[i] = iteration(iterationMillis);
+            mean += scores[i];
+        }
+        mean /= iterations;
+
+        double variance = 0.0;
+        for (double s : scores)
+            variance += (s - mean) * (s - mean);
+        if (iterations > 1)
+            variance /= iterations - 1;
+
+        return new double[] {mean, Math.sqrt(variance)};
+    }
+
+    /** Runs the operation during (at least) the given time
+     * @return time per operation, in nanoseconds
+     */
+    private double iteration(long iterationMillis) {
+        int h = 0;
+        long ops = 0;
+        long start = System.nanoTime(), end = start + iterationMillis * 1000000L, now;
+        do {
+            h += System.identityHashCode(run());
+            ++ops;
+            now = System.nanoTime();
+        } while (now < end);
+        sink += h;
+        return (double) (now - start) / ops;
+    }
+}
@@ -0,0 +1,352 @@
+/*
+ *
+ *   ReBayCT: a tool for classification on a Thesaurus
+ *
+ *	For details see:
+ *	 L. M. de Campos, A. E. Romero, Bayesian Network Models for Hierarchical Text
+ *	Classification from a Thesaurus, Int. J. Approx. Reasoning 50(7): 932-944 (2009).
+ *
+ *
+ *   Copyright (C) 2006-2008 Alfonso E. Romero <alfonsoeromero (AT) gmail (DOT) com>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package benchmark;
+
+import base.IndexedDocument;
+import base.SparseVector;
+import base.StringIndexer;
+import base.Tokenizer;
+import document.BatteryCollection;
+import indexation.*;
+import java.io.*;
+import java.util.*;
+import org.tartarus.snowball.SnowballProgram;
+import org.tartarus.snowball.ext.englishStemmer;
+import org.tartarus.snowball.ext.spanishStemmer;
+import supervisedClassifier.MultinomialNaiveBayes;
+import supervisedClassifier.SupervisedBN;
+import thesaurus.*;
+import unsupervisedClassifier.*;
+
+/**
+ * Benchmark suite of the main operations: tokenization (StringIndexer.add),
+ * stemming, the unsupervised classifiers (BN with and without exact phrases,
+ * VSM and HVSM), the multinomial naive Bayes and the supervised BN.
+ *
+ * The thesaurus and the corpus are generated (see SyntheticData) and indexed
+ * as MakeIndexThesaurus, Text2Vectors and Class2Vectors do, so the suite runs
+ * without any Eurovoc file. Each operation works on the next document of the
+ * battery, round robin.
+ *
+ * The report gives the mean time per operation; it can be written to a file
+ * (-output) and compared with a previous one (-baseline), so that the program
+ * fails if any benchmark is slower than the baseline beyond a tolerance.
+ */
+public class Benchmarks {
+    //! directory with the generated data
+    File dir;
+    int numDescriptors = 2000;
+    int numDocuments = 1000;
+    long seed = 7;
+
+    int warmupIterations = 3;
+    int iterations = 5;
+    long iterationMillis = 1000;
+
+    //! only the benchmarks whose name contains it are run (all if null)
+    String filter;
+
+    //! file where the scores are written
+    String outputFileName;
+
+    //! file with the scores to compare with, and tolerance
+    String baselineFileName;
+    double tolerance = 0.2;
+
+    //! texts of the documents of the battery
+    private List<String> texts = new ArrayList<String>();
+
+    //! words of each document (for the stemmers)
+    private List<List<String>> words = new ArrayList<List<String>>();
+
+    //! vectors of the documents (for the naive Bayes)
+    private List<SparseVector> vectors = new ArrayList<SparseVector>();
+
+    private void usage() {
+        System.err.println("ERROR. The list of argument is the following (all of them optional):");
+        System.err.println(" -dir=DIRECTORY : directory for the generated data, a temporal one by default");
+        System.err.println(" -descriptors=N : number of descriptors of the synthetic thesaurus (2000)");
+        System.err.println(" -documents=N : number of documents of the synthetic corpus (1000)");
+        System.err.println(" -seed=N : random seed of the synthetic data (7)");
+        System.err.println(" -warmup=N : number of warmup iterations (3)");
+        System.err.println(" -iterations=N : number of measured iterations (5)");
+        System.err.println(" -time=MS : time of each iteration, in milliseconds (1000)");
+        System.err.println(" -filter=TEXT : runs only the benchmarks whose name contains TEXT");
+        System.err.println(" -output=FILENAME : file where the scores are written");
+        System.err.println(" -baseline=FILENAME : scores (written with -output) to compare with");
+        System.err.println(" -tolerance=X : slowdown allowed with respect to the baseline (0.2 = 20%)");
+        System.exit(-1);
+    }
+
+    private void processArguments(String args[]) {
+        try {
+            for (String arg : args) {
+                if (arg.trim().startsWith("-dir="))
+                    this.dir = new File(arg.trim().substring(5).trim());
+                else if (arg.trim().startsWith("-descriptors="))
+                    this.numDescriptors = Integer.parseInt(arg.trim().substring(13).trim());
+                else if (arg.trim().startsWith("-documents="))
+                    this.numDocuments = Integer.parseInt(arg.trim().substring(11).trim());
+                else if (arg.trim().startsWith("-seed="))
+                    this.seed = Long.parseLong(arg.trim().substring(6).trim());
+                else if (arg.trim().startsWith("-warmup="))
+                    this.warmupIterations = Integer.parseInt(arg.trim().substring(8).trim());
+                else if (arg.trim().startsWith("-iterations="))
+                    this.iterations = Integer.parseInt(arg.trim().substring(12).trim());
+                else if (arg.trim().startsWith("-time="))
+                    this.iterationMillis = Long.parseLong(arg.trim().substring(6).trim());
+                else if (arg.trim().startsWith("-filter="))
+                    this.filter = arg.trim().substring(8).trim();
+                else if (arg.trim().startsWith("-output="))
+                    this.outputFileName = arg.trim().substring(8).trim();
+                else if (arg.trim().startsWith("-baseline="))
+                    this.baselineFileName = arg.trim().substring(10).trim();
+                else if (arg.trim().startsWith("-tolerance="))
+                    this.tolerance = Double.parseDouble(arg.trim().substring(11).trim());
+                else {
+                    System.err.println("Unrecognized argument " + arg);
+                    this.usage();
+                }
+            }
+        } catch (NumberFormatException ex) {
+            System.err.println("ERROR: wrong number. " + ex);
+            this.usage();
+        }
+
+        if (this.iterations < 1 || this.numDescriptors < 1 || this.numDocuments < 1)
+            this.usage();
+    }
+
+    /** Generates the synthetic data and indexes it: thesaurus index,
+     * vectors of the documents and class index */
+    private void prepareData() throws IOException {
+        if (this.dir == null) {
+            this.dir = File.createTempFile("rebayct-benchmark", "");
+            this.dir.delete();
+        }
+        this.dir.mkdirs();
+        System.out.println("Generating synthetic data in " + this.dir + "...");
+        new SyntheticData(this.seed).write(this.dir, this.numDescriptors, this.numDocuments);
+
+        String base = this.dir.getPath() + File.separator;
+        StringIndexer.setStemLanguage("es");
+
+        // thesaurus index (as MakeIndexThesaurus)
+        StringIndexer.setStem(true);
+        IndexBuilder.setStopwordList(base + "stop.txt");
+        XMLReader reader = new XMLReader();
+        reader.setBuilder(new IndexBuilder_Desc());
+        reader.parseFile(base + "DESC_ES.XML");
+        reader.setBuilder(new IndexBuilder_relation_bt());
+        reader.parseFile(base + "RELATION_BT.XML");
+        reader.setBuilder(new IndexBuilder_uf());
+        reader.parseFile(base + "UF_ES.XML");
+        reader.setBuilder(new IndexBuilder_Thes());
+        reader.parseFile(base + "DESC_THES.XML");
+        reader.setBuilder(new IndexBuilder_Micro());
+        reader.parseFile(base + "THES_ES.XML");
+        IndexBuilder.computeWeights();
+        IndexBuilder.normalizeWeights();
+        new File(base + "thesaurus.idx").delete();
+        IndexBuilder.writeIndex(base + "thesaurus.idx");
+
+        // vectors of the documents (as Text2Vectors) and class index (as Class2Vectors)
+        new File(base + "vectors.txt").delete();
+        new LexicalIndexer(new BatteryCollection(base + "battery.txt")).makeIndex(base + "vectors.txt", true, base + "stop.txt");
+        new File(base + "classes.idx").delete();
+        new ClassIndexer(base + "vectors.txt", base + "classes.txt").writeIndex(base + "classes.idx");
+
+        // texts and words of the documents
+        BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(base + "battery.txt"), "UTF-8"));
+        in.readLine(); // number of documents
+        String s = in.readLine();
+        while (s != null) {
+            String text = s.substring(s.indexOf(' ') + 1);
+            texts.add(text);
+            List<String> tokens = new ArrayList<String>();
+            Tokenizer.tokenize(text, tokens);
+            words.add(tokens);
+            s = in.readLine();
+        }
+        in.close();
+    }
+
+    /** Returns the benchmarks of the suite */
+    private List<Benchmark> createBenchmarks() throws IOException {
+        String base = this.dir.getPath() + File.separator;
+        String index = base + "thesaurus.idx", stopwords = base + "stop.txt", classIndex = base + "classes.idx";
+        List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+
+        // the models (they set the indexers to consulting mode)
+        final BNClassifier bn = new BNClassifier(index, stopwords, true, false, false);
+        final BNClassifier bnPhrases = new BNClassifier(index, stopwords, true, false, true);
+        final SimpleVSMClassifier vsm = new SimpleVSMClassifier(index, stopwords, false, true, false);
+        final SimpleVSMClassifier hvsm = new SimpleVSMClassifier(index, stopwords, true, true, false);
+        final SupervisedBN sbn = new SupervisedBN(classIndex, index, stopwords, true, false, false, 1.0, 1.0);
+
+        final MultinomialNaiveBayes mnb = new MultinomialNaiveBayes(classIndex);
+        LexicalIndex vectorsIndex = new LexicalIndex(base + "vectors.txt");
+        mnb.setProcessedLexicon(vectorsIndex.getLexicon());
+        final List<Integer> ids = new ArrayList<Integer>();
+        while (vectorsIndex.hasNext()) {
+            IndexedDocument d = vectorsIndex.next();
+            vectors.add(d.getVector());
+            ids.add(d.getId());
+        }
+        vectorsIndex.close();
+
+        benchmarks.add(new Benchmark("StringIndexer.add") {
+            ThesaurusStringIndexer si = new ThesaurusStringIndexer();
+            { si.setLexicon(bn.getLexicon()); }
+            int next = 0;
+            public Object run() {
+                si.add(texts.get(next));
+                next = (next + 1) % texts.size();
+                return si.getVector();
+            }
+        });
+        benchmarks.add(stemmerBenchmark("spanishStemmer.stem", new spanishStemmer()));
+        benchmarks.add(stemmerBenchmark("englishStemmer.stem", new englishStemmer()));
+        benchmarks.add(classifierBenchmark("BNClassifier.classify", bn));
+        benchmarks.add(classifierBenchmark("BNClassifier.classify(exactPhrases)", bnPhrases));
+        benchmarks.add(classifierBenchmark("SimpleVSMClassifier.classify(VSM)", vsm));
+        benchmarks.add(classifierBenchmark("SimpleVSMClassifier.classify(HVSM)", hvsm));
+        benchmarks.add(new Benchmark("MultinomialNaiveBayes.classifyDocument") {
+            int next = 0;
+            public Object run() {
+                Object o = mnb.classifyDocument(vectors.get(next), ids.get(next));
+                next = (next + 1) % vectors.size();
+                return o;
+            }
+        });
+        benchmarks.add(classifierBenchmark("SupervisedBN.classify", sbn));
+
+        return benchmarks;
+    }
+
+    /** Stems all the words of a document */
+    private Benchmark stemmerBenchmark(String name, final SnowballProgram stemmer) {
+        return new Benchmark(name) {
+            int next = 0;
+            public Object run() {
+                String last = null;
+                for (String w : words.get(next)) {
+                    stemmer.setCurrent(w);
+                    stemmer.stem();
+                    last = stemmer.getCurrent();
+                }
+                next = (next + 1) % words.size();
+                return last;
+            }
+        };
+    }
+
+    /** Classifies a document (classifyString: indexing and classification) */
+    private Benchmark classifierBenchmark(String name, final ClassifierModel cm) {
+        return new Benchmark(name) {
+            ClassifierModel.Context c = cm.newContext();
+            int next = 0;
+            public Object run() {
+                Object o = cm.classifyString(texts.get(next), c);
+                next = (next + 1) % texts.size();
+                return o;
+            }
+        };
+    }
+
+    /** Reads the scores of a previous report (name, mean and deviation, separated by tabs) */
+    private static Map<String, Double> readScores(String fileName) throws IOException {
+        Map<String, Double> scores = new HashMap<String, Double>();
+        BufferedReader in = new BufferedReader(new FileReader(fileName));
+        String s = in.readLine();
+        while (s != null) {
+            String[] fields = s.split("\t");
+            if (fields.length >= 2 && !s.startsWith("#"))
+                scores.put(fields[0], Double.parseDouble(fields[1]));
+            s = in.readLine();
+        }
+        in.close();
+        return scores;
+    }
+
+    private void run() throws IOException {
+        prepareData();
+        List<Benchmark> benchmarks = createBenchmarks();
+
+        Map<String, Double> baseline = null;
+        if (this.baselineFileName != null)
+            baseline = readScores(this.baselineFileName);
+
+        PrintWriter out = null;
+        if (this.outputFileName != null) {
+            out = new PrintWriter(new FileWriter(this.outputFileName));
+            out.println("# benchmark\tns/op\terror");
+        }
+
+        System.out.println(String.format("%-45s %14s %12s  %s", "Benchmark", "Score", "Error", "Units"));
+        int regressions = 0;
+        for (Benchmark b : benchmarks) {
+            if (this.filter != null && b.getName().indexOf(this.filter) < 0)
+                continue;
+
+            double[] score = b.measure(this.warmupIterations, this.iterations, this.iterationMillis);
+            String line = String.format("%-45s %14.3f %12.3f  us/op", b.getName(), score[0] / 1000.0, score[1] / 1000.0);
+
+            if (baseline != null && baseline.containsKey(b.getName())) {
+                double before = baseline.get(b.getName());
+                line += String.format("  (%+.1f%% vs baseline)", 100.0 * (score[0] - before) / before);
+                if (score[0] > before * (1.0 + this.tolerance)) {
+                    line += "  REGRESSION";
+                    ++regressions;
+                }
+            }
+            System.out.println(line);
+
+            if (out != null)
+                out.println(b.getName() + "\t" + score[0] + "\t" + score[1]);
+        }
+
+        if (out != null)
+            out.close();
+
+        if (regressions > 0) {
+            System.err.println("ERROR: " + regressions + " benchmark(s) slower than the baseline beyond " + (100.0 * this.tolerance) + "%");
+            System.exit(-1);
+        }
+    }
+
+    public static void main(String args[]) {
+        Benchmarks suite = new Benchmarks();
+        suite.processArguments(args);
+        try {
+            suite.run();
+        } catch (IOException ex) {
+            System.err.println("ERROR: benchmark data could not be written or read. Exiting. " + ex);
+            System.exit(-1);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ *
+ *   ReBayCT: a tool for classification on a Thesaurus
+ *
+ *	For details see:
+ *	 L. M. de Campos, A. E. Romero, Bayesian Network Models for Hierarchical Text
+ *	Classification from a Thesaurus, Int. J. Approx. Reasoning 50(7): 932-944 (2009).
+ *
+ *
+ *   Copyright (C) 2006-2008 Alfonso E. Romero <alfonsoeromero (AT) gmail (DOT) com>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package benchmark;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Generator of a synthetic thesaurus and corpus, so that the benchmarks can be
+ * run without the Eurovoc files. It writes, in a directory:
+ *
+ *   DESC_ES.XML, RELATION_BT.XML, UF_ES.XML, DESC_THES.XML, THES_ES.XML
+ *       (the files read by MakeIndexThesaurus: descriptors, BT relation,
+ *       nondescriptors, microthesauri of each descriptor and their names)
+ *   stop.txt      stopword list
+ *   battery.txt   battery of documents ("id text" per line)
+ *   classes.txt   descriptors of each document ("id d1 d2 ...")
+ *
+ * Descriptors and documents are made of Spanish parliamentary words and of
+ * random words, so that the stemmers find real suffixes. The same seed always
+ * gives the same files.
+ */
+public class SyntheticData {
+    public static final String[] FILES = {"DESC_ES.XML", "RELATION_BT.XML", "UF_ES.XML", "DESC_THES.XML", "THES_ES.XML",
+                                          "stop.txt", "battery.txt", "classes.txt"};
+
+    private static final String[] SYLLABLES = {"ca", "sa", "ción", "pol", "ti", "eco", "no", "mí", "a", "le", "gis",
+        "la", "tu", "ra", "de", "re", "cho", "ur", "ba", "nis", "mo", "pú", "bli", "co", "ener", "gí", "agri", "cul",
+        "tor", "ma", "ri", "na", "ré", "gi", "men", "fis", "cal", "ó", "to", "dad", "mien", "es", "tru", "pro"};
+
+    private static final String[] WORDS = {"proposición", "ley", "comisión", "diputados", "congreso", "senado",
+        "gobierno", "ministerio", "presupuestos", "generales", "estado", "pregunta", "respuesta", "escrita",
+        "interpelación", "urgente", "moción", "consecuencia", "enmienda", "totalidad", "tramitación", "parlamentaria",
+        "grupo", "socialista", "popular", "iniciativa", "medidas", "política", "económica", "desarrollo", "regional",
+        "comunidades", "autónomas", "financiación", "sanidad", "educación", "universidades", "investigación",
+        "agricultura", "pesca", "alimentación", "medio", "ambiente", "infraestructuras", "transportes", "vivienda",
+        "empleo", "seguridad", "social", "pensiones", "trabajadores", "empresas", "impuestos", "fiscalidad",
+        "energía", "renovables", "defensa", "exterior", "cooperación", "internacional", "unión", "europea",
+        "justicia", "tribunales", "derechos", "fundamentales", "igualdad", "mujeres", "inmigración", "cultura",
+        "patrimonio", "histórico", "turismo", "comercio", "industria", "telecomunicaciones", "administración"};
+
+    private static final String[] STOPWORDS = {"a", "al", "con", "de", "del", "el", "en", "la", "las", "lo", "los",
+        "para", "por", "que", "se", "sobre", "su", "un", "una", "y"};
+
+    //! noise found in real batteries: numbers, tags and punctuation
+    private static final String[] NOISE = {"123", "2007", "12-34", "<b>", "</i>", "(UE)", "art.", "Ley;", "año!"};
+
+    private final Random random;
+
+    private final List<String> vocabulary = new ArrayList<String>();
+
+    public SyntheticData(long seed) {
+        random = new Random(seed);
+        Set<String> words = new LinkedHashSet<String>(Arrays.asList(WORDS));
+        while (words.size() < 3000) {
+            StringBuilder sb = new StringBuilder();
+            int n = 2 + random.nextInt(3);
+            for (int i=0; i<n; ++i)
+                sb.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            words.add(sb.toString());
+        }
+        vocabulary.addAll(words);
+    }
+
+    private String word() {
+        // half of the words are parliamentary ones, so they are frequent
+        if (random.nextBoolean())
+            return WORDS[random.nextInt(WORDS.length)];
+        return vocabulary.get(random.nextInt(vocabulary.size()));
+    }
+
+    private String phrase(int n) {
+        StringBuilder sb = new StringBuilder(word());
+        for (int i=1; i<n; ++i) {
+            if (random.nextInt(4) == 0)
+                sb.append(' ').append(STOPWORDS[random.nextInt(STOPWORDS.length)]);
+            sb.append(' ').append(word());
+        }
+        return sb.toString();
+    }
+
+    private static PrintWriter open(File dir, String name) throws IOException {
+        return new PrintWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(new File(dir, name)), "UTF-8")));
+    }
+
+    private static void header(PrintWriter out) {
+        out.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+        out.println("<DATABASE>");
+    }
+
+    /** Writes the files of the thesaurus and the corpus
+     * @param dir directory where the files are written
+     * @param numDescriptors number of descriptors of the thesaurus
+     * @param numDocuments number of documents of the battery
+     * @throws IOException if the files could not be written
+     */
+    public void write(File dir, int numDescriptors, int numDocuments) throws IOException {
+        // descriptors: distinct random identifiers
+        Set<Integer> idSet = new LinkedHashSet<Integer>();
+        while (idSet.size() < numDescriptors)
+            idSet.add(100 + random.nextInt(10 * numDescriptors));
+        List<Integer> ids = new ArrayList<Integer>(idSet);
+        Map<Integer, String> labels = new HashMap<Integer, String>();
+
+        PrintWriter out = open(dir, "DESC_ES.XML");
+        header(out);
+        for (int id : ids) {
+            labels.put(id, phrase(1 + random.nextInt(3)));
+            out.println("<RECORD><DESCRIPTEUR_ID>" + id + "</DESCRIPTEUR_ID><LIBELLE>" + labels.get(id) + "</LIBELLE></RECORD>");
+        }
+        out.println("</DATABASE>");
+        out.close();
+
+        // BT relation: a DAG, each descriptor points to broader ones placed before it
+        List<Integer> order = new ArrayList<Integer>(ids);
+        Collections.shuffle(order, random);
+        int numTopTerms = Math.max(1, numDescriptors / 20);
+        out = open(dir, "RELATION_BT.XML");
+        header(out);
+        for (int k=numTopTerms; k<order.size(); ++k) {
+            int numBroader = (random.nextInt(5) == 0) ? 2 : 1;
+            for (int j=0; j<numBroader; ++j)
+                out.println("<RECORD><SOURCE_ID>" + order.get(k) + "</SOURCE_ID><CIBLE_ID>"
+                        + order.get(random.nextInt(k)) + "</CIBLE_ID></RECORD>");
+        }
+        out.println("</DATABASE>");
+        out.close();
+
+        // nondescriptors
+        out = open(dir, "UF_ES.XML");
+        header(out);
+        for (int id : ids) {
+            if (random.nextInt(10) < 6) {
+                out.print("<RECORD><DESCRIPTEUR_ID>" + id + "</DESCRIPTEUR_ID><UF>");
+                int n = 1 + random.nextInt(3);
+                for (int i=0; i<n; ++i)
+                    out.print("<UF_EL>" + phrase(1 + random.nextInt(3)) + "</UF_EL>");
+                out.println("</UF></RECORD>");
+            }
+        }
+        out.println("</DATABASE>");
+        out.close();
+
+        // microthesauri
+        int numMicro = Math.max(1, numDescriptors / 50);
+        out = open(dir, "DESC_THES.XML");
+        header(out);
+        for (int id : ids)
+            out.println("<RECORD><THESAURUS_ID>" + (100 + random.nextInt(numMicro)) + "</THESAURUS_ID><DESCRIPTEUR_ID>" + id
+                    + "</DESCRIPTEUR_ID><TOPTERM>" + (random.nextInt(10) == 0 ? "O" : "N") + "</TOPTERM></RECORD>");
+        out.println("</DATABASE>");
+        out.close();
+
+        out = open(dir, "THES_ES.XML");
+        header(out);
+        for (int mt=0; mt<numMicro; ++mt)
+            out.println("<RECORD><THESAURUS_ID>" + (100 + mt) + "</THESAURUS_ID><LIBELLE>" + phrase(2) + "</LIBELLE></RECORD>");
+        out.println("</DATABASE>");
+        out.close();
+
+        out = open(dir, "stop.txt");
+        for (String s : STOPWORDS)
+            out.println(s);
+        out.close();
+
+        // documents: the labels of their descriptors among parliamentary text
+        PrintWriter battery = open(dir, "battery.txt");
+        PrintWriter classes = open(dir, "classes.txt");
+        battery.println(numDocuments);
+        for (int d=1; d<=numDocuments; ++d) {
+            List<String> parts = new ArrayList<String>();
+            StringBuilder cls = new StringBuilder().append(d);
+            int numClasses = 1 + random.nextInt(4);
+            for (int i=0; i<numClasses; ++i) {
+                int id = ids.get(random.nextInt(ids.size()));
+                parts.add(labels.get(id));
+                cls.append(' ').append(id);
+            }
+            int length = 20 + random.nextInt(100);
+            for (int i=0; i<length; ++i) {
+                int r = random.nextInt(20);
+                if (r < 6)
+                    parts.add(STOPWORDS[random.nextInt(STOPWORDS.length)]);
+                else if (r == 6)
+                    parts.add(NOISE[random.nextInt(NOISE.length)]);
+                else parts.add(word());
+            }
+            Collections.shuffle(parts, random);
+
+            StringBuilder text = new StringBuilder().append(d);
+            for (String s : parts)
+                text.append(' ').append(s);
+            battery.println(text.toString());
+            classes.println(cls.toString());
+        }
+        battery.close();
+        classes.close();
+    }
+
+    public static void main(String args[]) {
+        if (args.length < 1 || args.length > 4) {
+            System.err.println("ERROR. The list of argument is the following:");
+            System.err.println(" DIRECTORY [DESCRIPTORS [DOCUMENTS [SEED]]] : directory where the files are written,");
+            System.err.println("\tnumber of descriptors (2000), number of documents (1000) and random seed (7)");
+            System.exit(-1);
+        }
+        try {
+            File dir = new File(args[0]);
+            dir.mkdirs();
+            int numDescriptors = (args.length > 1) ? Integer.parseInt(args[1]) : 2000;
+            int numDocuments = (args.length > 2) ? Integer.parseInt(args[2]) : 1000;
+            long seed = (args.length > 3) ? Long.parseLong(args[3]) : 7;
+            new SyntheticData(seed).write(dir, numDescriptors, numDocuments);
+        } catch (NumberFormatException ex) {
+            System.err.println("ERROR: wrong number. Exiting. " + ex);
+            System.exit(-1);
+        } catch (IOException ex) {
+            System.err.println("ERROR: files could not be written. Exiting. " + ex);
+            System.exit(-1);
+        }
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ *
+ *   ReBayCT: a tool for classification on a Thesaurus
+ *
+ *	For details see:
+ *	 L. M. de Campos, A. E. Romero, Bayesian Network Models for Hierarchical Text
+ *	Classification from a Thesaurus, Int. J. Approx. Reasoning 50(7): 932-944 (2009).
+ *
+ *
+ *   Copyright (C) 2006-2008 Alfonso E. Romero <alfonsoeromero (AT) gmail (DOT) com>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package benchmark;
+
+import base.Tokenizer;
+import java.io.*;
+import java.util.*;
+
+/**
+ * Regression check of base.Tokenizer against the chain of regular expressions
+ * it replaced (StringIndexer.getTerms and ClassifierModel.internationalizeText
+ * before the single-pass tokenizer):
+ *
+ *  - golden file: each case is a line "< text", followed by "> tokens" (the
+ *    tokens separated by a space) and "= text" (internationalize). Chars out
+ *    of printable ASCII and '\' are written as \\uXXXX escapes.
+ *  - random lines (fixed seed), compared with the regular expressions.
+ *
+ * With -generate the expected lines of the golden file are written again from
+ * the regular expressions (never from Tokenizer), keeping its "<" lines.
+ */
+public class TokenizerCheck {
+    //! golden file
+    String goldenFileName;
+
+    //! number of random lines
+    int numRandom = 100000;
+    long seed = 7;
+
+    //! true to rewrite the golden file
+    boolean generate = false;
+
+    //! chars of the random lines: letters, accents, digits, punctuation, tags, spaces
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ"
+            + "áéíóúüûÁÉÍÓÚÜÛñÑçàèâêîôßİ0123456789"
+            + "!\"#$%&'()*+,-./:;<=>?@[\\]^_`{|}~<<>>//__--"
+            + "     \t\n\r\f –¿¡";
+
+    private void usage() {
+        System.err.println("ERROR. The list of argument is the following:");
+        System.err.println(" -golden=FILENAME : golden file (input lines and expected tokens)");
+        System.err.println(" [-random=N] : number of random lines compared with the regular expressions (100000)");
+        System.err.println(" [-seed=N] : random seed of the lines (7)");
+        System.err.println(" [-generate] : writes again the expected lines of the golden file, from the regular expressions");
+        System.exit(-1);
+    }
+
+    private void processArguments(String args[]) {
+        try {
+            for (String arg : args) {
+                if (arg.trim().startsWith("-golden="))
+                    this.goldenFileName = arg.trim().substring(8).trim();
+                else if (arg.trim().startsWith("-random="))
+                    this.numRandom = Integer.parseInt(arg.trim().substring(8).trim());
+                else if (arg.trim().startsWith("-seed="))
+                    this.seed = Long.parseLong(arg.trim().substring(6).trim());
+                else if (arg.trim().equals("-generate"))
+                    this.generate = true;
+                else {
+                    System.err.println("Unrecognized argument " + arg);
+                    this.usage();
+                }
+            }
+        } catch (NumberFormatException ex) {
+            System.err.println("ERROR: wrong number. " + ex);
+            this.usage();
+        }
+
+        if (this.goldenFileName == null)
+            this.usage();
+    }
+
+    /** Tokens of a line with the former regular expressions */
+    static List<String> regexTokens(String s) {
+        String _s = s.toLowerCase().toLowerCase();
+        _s = _s.replaceAll("\\[V4.2\\]", "");
+        _s = _s.replaceAll("<\\/?\\w+>", "");  // remove html/sgml tags
+        _s = _s.replaceAll("[\\p{Punct}&&[^-]]+", " ");
+        _s = _s.replaceAll("á", "a");
+        _s = _s.replaceAll("é", "e");
+        _s = _s.replaceAll("í", "i");
+        _s = _s.replaceAll("ó", "o");
+        _s = _s.replaceAll("ú", "u");
+        _s = _s.replaceAll("ü", "u");
+
+        List<String> tokens = new ArrayList<String>();
+        StringTokenizer st = new StringTokenizer(_s);
+        while (st.hasMoreTokens())
+            tokens.add(st.nextToken());
+        return tokens;
+    }
+
+    /** internationalizeText of the unsupervised classifiers, with the former regular expressions */
+    static String regexInternationalize(String s) {
+        String _s = s.toLowerCase();
+        _s = _s.replaceAll("á", "a");
+        _s = _s.replaceAll("é", "e");
+        _s= _s.replaceAll("í", "i");
+        _s= _s.replaceAll("ó", "o");
+        _s= _s.replaceAll("ú", "u");
+        _s= _s.replaceAll("û", "u");
+        return _s;
+    }
+
+    static List<String> tokens(String s) {
+        List<String> tokens = new ArrayList<String>();
+        Tokenizer.tokenize(s, tokens);
+        return tokens;
+    }
+
+    static String escape(String s) {
+        StringBuilder sb = new StringBuilder();
+        for (int i=0; i<s.length(); ++i) {
+            char c = s.charAt(i);
+            // a space at the end is escaped too, so that it is not lost
+            if (c >= ' ' && c <= '~' && c != '\\' && !(c == ' ' && i == s.length() - 1))
+                sb.append(c);
+            else
+                sb.append(String.format("\\u%04x", (int) c));
+        }
+        return sb.toString();
+    }
+
+    static String unescape(String s) {
+        StringBuilder sb = new StringBuilder();
+        for (int i=0; i<s.length(); ++i) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 5 < s.length() && s.charAt(i+1) == 'u') {
+                sb.append((char) Integer.parseInt(s.substring(i+2, i+6), 16));
+                i += 5;
+            } else
+                sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    static String join(List<String> tokens) {
+        StringBuilder sb = new StringBuilder();
+        for (String t : tokens) {
+            if (sb.length() > 0)
+                sb.append(' ');
+            sb.append(escape(t));
+        }
+        return sb.toString();
+    }
+
+    /** Reads the golden file: for each case, its text, tokens and internationalized text (escaped) */
+    private List<String[]> readGolden() throws IOException {
+        List<String[]> cases = new ArrayList<String[]>();
+        BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(goldenFileName), "US-ASCII"));
+        String line;
+        String[] current = null;
+        while ((line = in.readLine()) != null) {
+            if (line.startsWith("< ")) {
+                current = new String[]{line.substring(2), null, null};
+                cases.add(current);
+            } else if (line.startsWith(">") && current != null)
+                current[1] = (line.length() > 1) ? line.substring(2) : "";
+            else if (line.startsWith("=") && current != null)
+                current[2] = (line.length() > 1) ? line.substring(2) : "";
+        }
+        in.close();
+        return cases;
+    }
+
+    private void writeGolden(List<String[]> cases) throws IOException {
+        BufferedWriter out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(goldenFileName), "US-ASCII"));
+        out.write("# Golden file of base.Tokenizer (see benchmark.TokenizerCheck):\n");
+        out.write("# \"< text\", \"> tokens\" and \"= internationalized text\", given by the former regular expressions\n");
+        for (String[] c : cases) {
+            String text = unescape(c[0]);
+            out.write("< " + c[0] + "\n");
+            out.write("> " + join(regexTokens(text)) + "\n");
+            out.write("= " + escape(regexInternationalize(text)) + "\n");
+        }
+        out.close();
+    }
+
+    /** Compares Tokenizer with the expected results of a text
+     * @return true if they are the same
+     */
+    private boolean check(String text, String expectedTokens, String expectedText) {
+        String got = join(tokens(text));
+        String gotText = escape(Tokenizer.internationalize(text));
+        if (got.equals(expectedTokens) && gotText.equals(expectedText))
+            return true;
+        System.err.println("MISMATCH on \"" + escape(text) + "\"");
+        System.err.println("  expected tokens: " + expectedTokens);
+        System.err.println("  Tokenizer:       " + got);
+        System.err.println("  expected text: " + expectedText);
+        System.err.println("  Tokenizer:     " + gotText);
+        return false;
+    }
+
+    private String randomLine(Random r) {
+        StringBuilder sb = new StringBuilder();
+        int length = r.nextInt(40);
+        for (int i=0; i<length; ++i) {
+            int k = r.nextInt(8);
+            if (k == 0)
+                sb.append(r.nextBoolean() ? "<p>" : (r.nextBoolean() ? "</b>" : "[V4.2]"));
+            else
+                sb.append(ALPHABET.charAt(r.nextInt(ALPHABET.length())));
+        }
+        return sb.toString();
+    }
+
+    private void run() throws IOException {
+        List<String[]> cases = readGolden();
+        if (this.generate) {
+            this.writeGolden(cases);
+            System.out.println(cases.size() + " cases written to " + goldenFileName);
+            return;
+        }
+
+        int failures = 0;
+        for (String[] c : cases)
+            if (c[1] == null || c[2] == null || !this.check(unescape(c[0]), c[1], c[2]))
+                ++failures;
+        System.out.println("Golden cases: " + cases.size() + ", failures: " + failures);
+
+        int randomFailures = 0;
+        Random r = new Random(this.seed);
+        for (int i=0; i<this.numRandom; ++i) {
+            String text = this.randomLine(r);
+            if (!this.check(text, join(regexTokens(text)), escape(regexInternationalize(text))))
+                ++randomFailures;
+        }
+        System.out.println("Random lines: " + this.numRandom + ", failures: " + randomFailures);
+
+        if (failures + randomFailures > 0) {
+            System.err.println("ERROR: Tokenizer does not give the tokens of the regular expressions.");
+            System.exit(-1);
+        }
+    }
+
+    public static void main(String args[]) {
+        TokenizerCheck check = new TokenizerCheck();
+        check.processArguments(args);
+        try {
+            check.run();
+        } catch (IOException ex) {
+            System.err.println("ERROR: golden file " + check.goldenFileName + " could not be read or written. Exiting. " + ex);
+            System.exit(-1);
+        }
+    }
+}
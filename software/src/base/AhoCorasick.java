@@ -0,0 +1,192 @@
+/*
+ *
+ *   ReBayCT: a tool for classification on a Thesaurus
+ *
+ *	For details see:
+ *	 L. M. de Campos, A. E. Romero, Bayesian Network Models for Hierarchical Text
+ *	Classification from a Thesaurus, Int. J. Approx. Reasoning 50(7): 932-944 (2009).
+ *
+ *
+ *   Copyright (C) 2006-2008 Alfonso E. Romero <alfonsoeromero (AT) gmail (DOT) com>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package base;
+
+import java.util.*;
+
+/**
+ * Aho-Corasick automaton: finds which ones of a set of patterns appear in a
+ * text (as substrings, the same as text.indexOf(pattern) != -1) in a single
+ * pass over the text.
+ *
+ * The trie is stored CSR-style: the transitions of state s are the positions
+ * transOffsets[s]..transOffsets[s+1] of transChars (sorted) and transTargets.
+ * The automaton is never modified once built, so it can be shared among threads.
+ */
+public class AhoCorasick {
+    private final int numPatterns;
+
+    //! transitions of each state
+    private int[] transOffsets, transTargets;
+    private char[] transChars;
+
+    //! failure link of each state (longest proper suffix which is a state)
+    private int[] fail;
+
+    //! patterns ending at each state
+    private int[] outOffsets, outPatterns;
+
+    //! nearest state, following the failure links, with patterns (-1 if none)
+    private int[] dictLink;
+
+    /** Builds the automaton
+     * @param patterns patterns to find (null ones are never found)
+     */
+    public AhoCorasick(String[] patterns) {
+        numPatterns = patterns.length;
+
+        // 1.- the trie; an edge is the key (state << 16 | char)
+        Map<Long, Integer> edges = new HashMap<Long, Integer>();
+        int[] terminal = new int[patterns.length];
+        int numStates = 1;
+        for (int k=0; k<patterns.length; ++k) {
+            terminal[k] = -1;
+            if (patterns[k] == null)
+                continue;
+            int s = 0;
+            for (int i=0; i<patterns[k].length(); ++i) {
+                Long key = ((long) s << 16) | patterns[k].charAt(i);
+                Integer next = edges.get(key);
+                if (next == null) {
+                    next = numStates++;
+                    edges.put(key, next);
+                }
+                s = next;
+            }
+            terminal[k] = s;
+        }
+
+        long[] keys = new long[edges.size()];
+        int e = 0;
+        for (long key : edges.keySet())
+            keys[e++] = key;
+        Arrays.sort(keys);
+        transOffsets = new int[numStates + 1];
+        transChars = new char[keys.length];
+        transTargets = new int[keys.length];
+        for (int i=0; i<keys.length; ++i) {
+            ++transOffsets[(int) (keys[i] >>> 16) + 1];
+            transChars[i] = (char) (keys[i] & 0xFFFF);
+            transTargets[i] = edges.get(keys[i]);
+        }
+        for (int s=0; s<numStates; ++s)
+            transOffsets[s+1] += transOffsets[s];
+
+        // 2.- the patterns of each state
+        outOffsets = new int[numStates + 1];
+        for (int t : terminal)
+            if (t >= 0)
+                ++outOffsets[t + 1];
+        for (int s=0; s<numStates; ++s)
+            outOffsets[s+1] += outOffsets[s];
+        outPatterns = new int[outOffsets[numStates]];
+        int[] filled = new int[numStates];
+        for (int k=0; k<terminal.length; ++k)
+            if (terminal[k] >= 0)
+                outPatterns[outOffsets[terminal[k]] + filled[terminal[k]]++] = k;
+
+        // 3.- failure and dictionary links, in breadth-first order
+        fail = new int[numStates];
+        dictLink = new int[numStates];
+        dictLink[0] = -1;
+        int[] queue = new int[numStates];
+        int head = 0, tail = 0;
+        queue[tail++] = 0;
+        while (head < tail) {
+            int u = queue[head++];
+            for (int j=transOffsets[u]; j<transOffsets[u+1]; ++j) {
+                int v = transTargets[j];
+                char c = transChars[j];
+                if (u == 0)
+                    fail[v] = 0;
+                else {
+                    int f = fail[u], g;
+                    while ((g = next(f, c)) < 0 && f != 0)
+                        f = fail[f];
+                    fail[v] = (g < 0) ? 0 : g;
+                }
+                int f = fail[v];
+                dictLink[v] = (outOffsets[f] < outOffsets[f+1]) ? f : dictLink[f];
+                queue[tail++] = v;
+            }
+        }
+    }
+
+    /** Transition of state s with char c, -1 if there is none */
+    private int next(int s, char c) {
+        int low = transOffsets[s], high = transOffsets[s+1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char m = transChars[mid];
+            if (m < c)
+                low = mid + 1;
+            else if (m > c)
+                high = mid - 1;
+            else return transTargets[mid];
+        }
+        return -1;
+    }
+
+    /** Number of patterns of the automaton */
+    public int size() {
+        return numPatterns;
+    }
+
+    /** Finds the patterns appearing in a text: mark[k] is set to "epoch" for
+     * each pattern k found (the rest of the array is not modified)
+     * @param text text where the patterns are searched
+     * @param mark array of size() elements
+     * @param epoch value written for the patterns found, which must not be in
+     *   mark before (so that patterns already reported are not visited again)
+     */
+    public void match(CharSequence text, int[] mark, int epoch) {
+        int s = 0;
+        report(0, mark, epoch);
+        for (int i=0; i<text.length(); ++i) {
+            char c = text.charAt(i);
+            int g;
+            while ((g = next(s, c)) < 0 && s != 0)
+                s = fail[s];
+            s = (g < 0) ? 0 : g;
+            report(s, mark, epoch);
+        }
+    }
+
+    /** Marks the patterns of a state and of its dictionary links */
+    private void report(int s, int[] mark, int epoch) {
+        if (outOffsets[s] == outOffsets[s+1])
+            s = dictLink[s];
+        while (s >= 0) {
+            // all the patterns of a state (and of its links) are marked at once
+            if (mark[outPatterns[outOffsets[s]]] == epoch)
+                return;
+            for (int j=outOffsets[s]; j<outOffsets[s+1]; ++j)
+                mark[outPatterns[j]] = epoch;
+            s = dictLink[s];
+        }
+    }
+}
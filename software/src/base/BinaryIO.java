@@ -0,0 +1,130 @@
+/*
+ *
+ *   ReBayCT: a tool for classification on a Thesaurus
+ *
+ *	For details see:
+ *	 L. M. de Campos, A. E. Romero, Bayesian Network Models for Hierarchical Text
+ *	Classification from a Thesaurus, Int. J. Approx. Reasoning 50(7): 932-944 (2009).
+ *
+ *
+ *   Copyright (C) 2006-2008 Alfonso E. Romero <alfonsoeromero (AT) gmail (DOT) com>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package base;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * Helpers to write and read the records of the binary index files: numbers
+ * are big-endian (as written by DataOutputStream), strings are their length
+ * in bytes followed by their UTF-8 encoding, and arrays and lists their
+ * length followed by their elements. Varints are unsigned integers written
+ * in groups of 7 bits, least significant first, with the high bit of each
+ * byte telling if more bytes follow.
+ */
+public final class BinaryIO {
+
+    private BinaryIO() { }
+
+    public static void putString(DataOutputStream out, String s) throws IOException {
+        byte[] b = s.getBytes("UTF-8");
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    public static String getString(ByteBuffer in) {
+        byte[] b = new byte[in.getInt()];
+        in.get(b);
+        try {
+            return new String(b, "UTF-8");
+        } catch (UnsupportedEncodingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    public static void putIntList(DataOutputStream out, List<Integer> l) throws IOException {
+        out.writeInt(l.size());
+        for (int i : l)
+            out.writeInt(i);
+    }
+
+    public static List<Integer> getIntList(ByteBuffer in) {
+        int n = in.getInt();
+        List<Integer> l = new ArrayList<Integer>(n);
+        for (int i=0; i<n; ++i)
+            l.add(in.getInt());
+        return l;
+    }
+
+    /** Skips a list written by putIntList */
+    public static void skipIntList(ByteBuffer in) {
+        int n = in.getInt();
+        in.position(in.position() + 4*n);
+    }
+
+    public static void putIntArray(DataOutputStream out, int[] a) throws IOException {
+        out.writeInt(a.length);
+        for (int i : a)
+            out.writeInt(i);
+    }
+
+    public static int[] getIntArray(ByteBuffer in) {
+        int[] a = new int[in.getInt()];
+        in.asIntBuffer().get(a);
+        in.position(in.position() + 4*a.length);
+        return a;
+    }
+
+    public static void putDoubleArray(DataOutputStream out, double[] a) throws IOException {
+        out.writeInt(a.length);
+        for (double d : a)
+            out.writeDouble(d);
+    }
+
+    public static double[] getDoubleArray(ByteBuffer in) {
+        double[] a = new double[in.getInt()];
+        in.asDoubleBuffer().get(a);
+        in.position(in.position() + 8*a.length);
+        return a;
+    }
+
+    /** Writes a non-negative int as a varint
+     * @return number of bytes written
+     */
+    public static int putVarInt(OutputStream out, int v) throws IOException {
+        int n = 1;
+        while ((v & ~0x7F) != 0) {
+            out.write((v & 0x7F) | 0x80);
+            v >>>= 7;
+            ++n;
+        }
+        out.write(v);
+        return n;
+    }
+
+    public static int getVarInt(ByteBuffer in) {
+        int b = in.get();
+        int v = b & 0x7F;
+        for (int shift = 7; (b & 0x80) != 0; shift += 7) {
+            b = in.get();
+            v |= (b & 0x7F) << shift;
+        }
+        return v;
+    }
+}
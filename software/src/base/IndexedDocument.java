@@ -46,25 +46,19 @@ public final class IndexedDocument {
     //! id of the document
     int id;
     
-    //! document length (sum of all freq)
-    int length;
-    
     //! pair term frequencies
-    HashMap<Integer, Integer> freq;
+    SparseVector freq;
     
     /** Empty constructor: creates a new instance of IndexedDocument */
     public IndexedDocument() {
-        freq = new HashMap<Integer, Integer>();
-        length = 0;
+        freq = SparseVector.EMPTY;
     }
     
-    public IndexedDocument(HashMap<Integer, Integer> myfreq, String identifier, int _id)
+    public IndexedDocument(SparseVector myfreq, String identifier, int _id)
     {
       id = _id;
-      length = 0;
+      this.identifier = identifier;
       freq = myfreq;
-      for (int t : freq.values())
-        length += t;
     }
         
     public int getId(){ return id; }
@@ -74,7 +68,17 @@ public final class IndexedDocument {
      */
     public IndexedDocument(String s)
     {
-      this.readFromString(s);
+      this(s, new SparseVector.Builder());
+    }
+    
+    /** Creates a new instance of IndexedDocument from a representing string,
+       using (and leaving empty) a builder of vectors
+       @param s string representing a IndexedDocument
+       @param builder builder for the vector of frequencies
+     */
+    public IndexedDocument(String s, SparseVector.Builder builder)
+    {
+      this.readFromString(s, builder);
     }
     
     /** Returns the frequency of a certain term in this
@@ -82,9 +86,7 @@ public final class IndexedDocument {
      */
     public int getFreqAtTerm(int term)
     {
-      if (freq.containsKey(term))
-          return freq.get(term);
-      else return 0;
+      return freq.get(term);
     }
     
     /** Returns one document's length (i.e. the sum of all frequencies for all term ids)
@@ -92,15 +94,15 @@ public final class IndexedDocument {
      */
     public int getLength()
     {
-      return length;
+      return freq.getLength();
     }
     
-    /** Returns the list of terms with positive freqs
-      @return set of terms
+    /** Returns the vector of frequencies of the document
+      @return vector of (term, frequency) sorted by term
      */
-    public Set<Integer> getListOfTerms()
+    public SparseVector getVector()
     {
-      return freq.keySet();
+      return freq;
     }
     
     
@@ -110,24 +112,24 @@ public final class IndexedDocument {
      */
     protected String getRepresentation()
     {
-      String s = "";
-      s += id;
-      s += " ";
-      s += length;
-      s += " ";
-      s += freq.size();
-      s += " ";
-      for (int t : freq.keySet())
+      StringBuilder s = new StringBuilder();
+      s.append(id);
+      s.append(' ');
+      s.append(freq.getLength());
+      s.append(' ');
+      s.append(freq.size());
+      s.append(' ');
+      for (int k=0; k<freq.size(); ++k)
       {
-        s += t;
-        s += " ";
-        s += freq.get(t);
-        s += " ";
+        s.append(freq.getTerm(k));
+        s.append(' ');
+        s.append(freq.getFreq(k));
+        s.append(' ');
       }
       
-      s += "\n";
+      s.append('\n');
       
-      return s;
+      return s.toString();
     }
     
     @Override
@@ -136,18 +138,13 @@ public final class IndexedDocument {
       return this.getRepresentation();
     }
     
-    
-    public HashMap<Integer, Integer> getMap(){
-        return this.freq;
-    }
     /**
      
      */
-    protected void readFromString(String s)
+    protected void readFromString(String s, SparseVector.Builder builder)
     {
-      freq = new HashMap <Integer, Integer>();
       StringTokenizer st = new StringTokenizer(s);
-      int myLength = 0;
+      int length = 0;
       
       try{
         
@@ -156,22 +153,23 @@ public final class IndexedDocument {
         
         int tam = Integer.parseInt(st.nextToken());
         
+        builder.clear();
         for (int i=0; i<tam; i++)
         {
           int term = Integer.parseInt(st.nextToken());
           int termfreq = Integer.parseInt(st.nextToken());
-          freq.put(term, termfreq);
-          myLength += termfreq;
+          builder.add(term, termfreq);
         }
+        freq = builder.build();
         
       } catch (Exception ex){
         System.err.println("Error when processing string: '" + s + "'. Exiting");
         System.exit(-1);
       }
       
-      if (myLength != length)
+      if (freq.getLength() != length)
       {
-        System.err.println(length + " != " + myLength);
+        System.err.println(length + " != " + freq.getLength());
         System.err.println("Error when processing string: '" + s + "'. Corrupted frequencies. Exiting");
         System.exit(-1);
       }
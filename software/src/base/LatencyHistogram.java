@@ -0,0 +1,135 @@
+/*
+ *
+ *   ReBayCT: a tool for classification on a Thesaurus
+ *
+ *	For details see:
+ *	 L. M. de Campos, A. E. Romero, Bayesian Network Models for Hierarchical Text
+ *	Classification from a Thesaurus, Int. J. Approx. Reasoning 50(7): 932-944 (2009).
+ *
+ *
+ *   Copyright (C) 2006-2008 Alfonso E. Romero <alfonsoeromero (AT) gmail (DOT) com>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package base;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies (in nanoseconds) which can be updated by several
+ * threads without locks. As in HdrHistogram, values are counted in buckets of
+ * logarithmic width: values under 16 have their own bucket, and each power of
+ * two is split in 8 sub-buckets, so percentiles have an error under 12.5%.
+ */
+public class LatencyHistogram {
+    //! sub-buckets of each power of two (2^SUB_BITS)
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int LINEAR = 2 * SUB_BUCKETS;
+
+    private static final int NUM_BUCKETS = LINEAR + (63 - SUB_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    private static int bucketOf(long value) {
+        if (value < LINEAR)
+            return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR + (exponent - SUB_BITS - 1) * SUB_BUCKETS + sub;
+    }
+
+    /** Lowest value counted in a bucket */
+    private static long lowestOf(int bucket) {
+        if (bucket < LINEAR)
+            return bucket;
+        int exponent = (bucket - LINEAR) / SUB_BUCKETS + SUB_BITS + 1;
+        long sub = (bucket - LINEAR) % SUB_BUCKETS;
+        return (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+    }
+
+    /** Counts a value (negative ones are counted as 0) */
+    public void record(long value) {
+        if (value < 0)
+            value = 0;
+        buckets.incrementAndGet(bucketOf(value));
+        count.incrementAndGet();
+        total.addAndGet(value);
+        long m = max.get();
+        while (value > m && !max.compareAndSet(m, value))
+            m = max.get();
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getTotal() {
+        return total.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long n = count.get();
+        return (n == 0) ? 0.0 : (double) total.get() / n;
+    }
+
+    /** Returns the value under which are the given percentage of the values
+     * (the middle of its bucket)
+     * @param percentile between 0 and 100
+     */
+    public long getPercentile(double percentile) {
+        long n = 0;
+        long[] counts = new long[NUM_BUCKETS];
+        for (int i=0; i<NUM_BUCKETS; ++i) {
+            counts[i] = buckets.get(i);
+            n += counts[i];
+        }
+        if (n == 0)
+            return 0;
+
+        long rank = (long) Math.ceil(percentile / 100.0 * n);
+        if (rank < 1)
+            rank = 1;
+        long seen = 0;
+        for (int i=0; i<NUM_BUCKETS; ++i) {
+            seen += counts[i];
+            if (seen >= rank) {
+                if (i < LINEAR)
+                    return i;
+                long low = lowestOf(i), high = (i + 1 < NUM_BUCKETS) ? lowestOf(i + 1) : Long.MAX_VALUE;
+                return Math.min(low + (high - low) / 2, max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /** Removes all the values (not atomic with respect to concurrent updates) */
+    public void reset() {
+        for (int i=0; i<NUM_BUCKETS; ++i)
+            buckets.set(i, 0);
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+}
@@ -38,6 +38,12 @@ public class Lexicon <T extends BaseTerm> {
     /** Identifiers by string */
     protected Map<String, Integer> termIdByString;
     
+    /** Frozen lexicon (see freeze): terms by identifier, null if not frozen */
+    private BaseTerm[] frozenTerms;
+    
+    /** Frozen lexicon: identifiers by string */
+    private PerfectHash frozenIds;
+    
     /** Empty constructor */
     public Lexicon() {
         // map initialization
@@ -55,7 +61,10 @@ public class Lexicon <T extends BaseTerm> {
      * @param id identifier of the term we want to obtain
      * @return corresponding object, null if it did not exist
      * */
+    @SuppressWarnings("unchecked")
     public T getTermById(int id) {
+        if (frozenTerms != null)
+            return (id >= 0 && id < frozenTerms.length) ? (T) frozenTerms[id] : null;
         return termById.get(id);
     }
     
@@ -64,9 +73,10 @@ public class Lexicon <T extends BaseTerm> {
      * @return identifier of term, -1 if it did not exist
      * */ 
     public int getTermIdByString(String s) {
-        if (termIdByString.containsKey(s))
-            return termIdByString.get(s);
-        else return -1;
+        if (frozenIds != null)
+            return frozenIds.get(s);
+        Integer id = termIdByString.get(s);
+        return (id != null) ? id : -1;
     }
     
     /** Returns the number of terms of the lexicon
@@ -78,6 +88,8 @@ public class Lexicon <T extends BaseTerm> {
      * @param t new term to add
      * */
     public void add(T t) {
+        if (frozenTerms != null)
+            this.thaw();
         int newId = size;
         t.setId(newId);
         this.termById.put(newId, t);
@@ -89,7 +101,67 @@ public class Lexicon <T extends BaseTerm> {
         out.write(new Integer(size).toString() + "\n");
         
         for (int i=0; i<size; ++i)
-            out.write(this.termById.get(i).toString());
+            out.write(this.getTermById(i).toString());
+    }
+    
+    /** Makes the lexicon read-only, once it is completely built: terms are
+     * kept in an array (their identifiers are 0..size-1) and identifiers of the
+     * strings in a minimal perfect hash, instead of the trees. Adding a term
+     * to a frozen lexicon makes it modifiable again.
+     * @return true if the lexicon could be frozen (identifiers 0..size-1 and
+     * no repeated strings)
+     */
+    public boolean freeze() {
+        if (frozenTerms != null)
+            return true;
+        if (termById.size() != size || termIdByString.size() != size)
+            return false;
+        
+        BaseTerm[] terms = new BaseTerm[size];
+        String[] strings = new String[size];
+        for (Map.Entry<Integer, T> e : termById.entrySet()) {
+            int id = e.getKey();
+            if (id < 0 || id >= size)
+                return false;
+            terms[id] = e.getValue();
+            strings[id] = e.getValue().getString();
+        }
+        PerfectHash ids = PerfectHash.build(strings);
+        if (ids == null)
+            return false;
+        
+        frozenTerms = terms;
+        frozenIds = ids;
+        termById = null;
+        termIdByString = null;
+        return true;
+    }
+    
+    /** Removes all the terms (a frozen lexicon becomes modifiable again) */
+    public void clear() {
+        size = 0;
+        termById = new TreeMap<Integer, T>();
+        termIdByString = new TreeMap<String, Integer>();
+        frozenTerms = null;
+        frozenIds = null;
+    }
+    
+    /** Tells if the lexicon is frozen (see freeze) */
+    public boolean isFrozen() {
+        return frozenTerms != null;
+    }
+    
+    /** Builds the trees of a frozen lexicon again, so that it can be modified */
+    @SuppressWarnings("unchecked")
+    private void thaw() {
+        termById = new TreeMap<Integer, T>();
+        termIdByString = new TreeMap<String, Integer>();
+        for (int i=0; i<frozenTerms.length; ++i) {
+            termById.put(i, (T) frozenTerms[i]);
+            termIdByString.put(frozenTerms[i].getString(), i);
+        }
+        frozenTerms = null;
+        frozenIds = null;
     }
     
     
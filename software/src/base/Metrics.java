@@ -0,0 +1,227 @@
+/*
+ *
+ *   ReBayCT: a tool for classification on a Thesaurus
+ *
+ *	For details see:
+ *	 L. M. de Campos, A. E. Romero, Bayesian Network Models for Hierarchical Text
+ *	Classification from a Thesaurus, Int. J. Approx. Reasoning 50(7): 932-944 (2009).
+ *
+ *
+ *   Copyright (C) 2006-2008 Alfonso E. Romero <alfonsoeromero (AT) gmail (DOT) com>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package base;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Latency of each stage of the classification pipeline and number of
+ * documents classified. The classifiers measure a stage this way:
+ *
+ *   long t = Metrics.start();
+ *   ...
+ *   t = Metrics.stop(Metrics.Stage.NIDF, t);   // t is the start of the next stage
+ *
+ * When metrics are disabled (the default) start() returns 0 and stop() does
+ * nothing, so the cost is a read of a flag. Otherwise the latency is counted
+ * in a LatencyHistogram, without locks.
+ */
+public class Metrics implements MetricsMBean {
+
+    /** Stages of the pipeline */
+    public enum Stage {
+        DOCUMENT("document"),
+        TOKENIZATION("tokenization"),
+        TRAINING_EVIDENCE("trainingEvidence"),
+        TEXT_TO_DESCRIPTORS("textToDescriptors"),
+        ND_TO_D("propagateNDToD"),
+        D_TO_D("propagateDToD"),
+        VSM_SCORING("vsmScoring"),
+        NIDF("computeNIDF"),
+        NAIVE_BAYES("naiveBayes"),
+        RANKING("ranking"),
+        OUTPUT("output");
+
+        private final String name;
+
+        Stage(String name) {
+            this.name = name;
+        }
+
+        public String toString() {
+            return name;
+        }
+    }
+
+    private static volatile boolean enabled = false;
+
+    //! histogram of each stage, indexed by ordinal
+    private static final LatencyHistogram[] histograms = new LatencyHistogram[Stage.values().length];
+
+    //! time of the last reset (for the throughput)
+    private static volatile long resetTime = System.nanoTime();
+
+    private static final Metrics instance = new Metrics();
+
+    static {
+        for (int i=0; i<histograms.length; ++i)
+            histograms[i] = new LatencyHistogram();
+    }
+
+    private Metrics() { }
+
+    /** Enables or disables the measures of all the stages */
+    public static void enable(boolean on) {
+        if (on && !enabled)
+            resetTime = System.nanoTime();
+        enabled = on;
+    }
+
+    public static boolean isActive() {
+        return enabled;
+    }
+
+    /** Starts the measure of a stage
+     * @return the current time, or 0 if metrics are disabled
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    /** Ends the measure of a stage
+     * @param stage stage measured
+     * @param start value returned by start() (or by the stop() of the previous stage)
+     * @return the current time (so that the next stage starts now), or 0 if metrics are disabled
+     */
+    public static long stop(Stage stage, long start) {
+        if (start == 0L)
+            return 0L;
+        long now = System.nanoTime();
+        histograms[stage.ordinal()].record(now - start);
+        return now;
+    }
+
+    /** Returns the view of the metrics registered in JMX */
+    public static Metrics getInstance() {
+        return instance;
+    }
+
+    public static LatencyHistogram getHistogram(Stage stage) {
+        return histograms[stage.ordinal()];
+    }
+
+    /** Writes a table with the latencies of the stages that were measured */
+    public static void print(PrintStream out) {
+        out.print(instance.getReport());
+    }
+
+    /** Registers the metrics in the platform MBean server (as rebayct:type=Metrics),
+     * so they can be consulted through JMX */
+    public static void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(instance, new ObjectName("rebayct:type=Metrics"));
+        } catch (JMException ex) {
+            System.err.println("WARNING: metrics could not be registered in JMX. " + ex);
+        }
+    }
+
+    // MetricsMBean
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        Metrics.enable(enabled);
+    }
+
+    public String[] getStages() {
+        Stage[] stages = Stage.values();
+        String[] names = new String[stages.length];
+        for (int i=0; i<stages.length; ++i)
+            names[i] = stages[i].toString();
+        return names;
+    }
+
+    public long[] getCounts() {
+        long[] counts = new long[histograms.length];
+        for (int i=0; i<histograms.length; ++i)
+            counts[i] = histograms[i].getCount();
+        return counts;
+    }
+
+    public double[] getMeanMicros() {
+        double[] values = new double[histograms.length];
+        for (int i=0; i<histograms.length; ++i)
+            values[i] = histograms[i].getMean() / 1000.0;
+        return values;
+    }
+
+    public double[] getP50Micros() {
+        return percentiles(50.0);
+    }
+
+    public double[] getP99Micros() {
+        return percentiles(99.0);
+    }
+
+    public double[] getMaxMicros() {
+        double[] values = new double[histograms.length];
+        for (int i=0; i<histograms.length; ++i)
+            values[i] = histograms[i].getMax() / 1000.0;
+        return values;
+    }
+
+    private double[] percentiles(double percentile) {
+        double[] values = new double[histograms.length];
+        for (int i=0; i<histograms.length; ++i)
+            values[i] = histograms[i].getPercentile(percentile) / 1000.0;
+        return values;
+    }
+
+    public double getThroughput() {
+        double seconds = (System.nanoTime() - resetTime) / 1e9;
+        return (seconds > 0.0) ? getHistogram(Stage.DOCUMENT).getCount() / seconds : 0.0;
+    }
+
+    public String getReport() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-20s %10s %12s %10s %10s %10s %10s%n", "stage", "count", "total(ms)", "mean(us)", "p50(us)", "p99(us)", "max(us)"));
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram h = getHistogram(stage);
+            if (h.getCount() == 0)
+                continue;
+            sb.append(String.format("%-20s %10d %12.1f %10.1f %10.1f %10.1f %10.1f%n", stage, h.getCount(), h.getTotal() / 1e6,
+                    h.getMean() / 1e3, h.getPercentile(50.0) / 1e3, h.getPercentile(99.0) / 1e3, h.getMax() / 1e3));
+        }
+        sb.append(String.format("throughput: %.1f documents/s%n", getThroughput()));
+        StemCache cache = StringIndexer.getStemCache();
+        if (cache != null && cache.getHits() + cache.getMisses() > 0)
+            sb.append(String.format("stem cache: %d hits, %d misses (%.1f%% hits), %d forms%n", cache.getHits(),
+                    cache.getMisses(), 100.0 * cache.getHitRatio(), cache.size()));
+        return sb.toString();
+    }
+
+    public void reset() {
+        for (LatencyHistogram h : histograms)
+            h.reset();
+        resetTime = System.nanoTime();
+    }
+}
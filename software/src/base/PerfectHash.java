@@ -0,0 +1,213 @@
+/*
+ *
+ *   ReBayCT: a tool for classification on a Thesaurus
+ *
+ *	For details see:
+ *	 L. M. de Campos, A. E. Romero, Bayesian Network Models for Hierarchical Text
+ *	Classification from a Thesaurus, Int. J. Approx. Reasoning 50(7): 932-944 (2009).
+ *
+ *
+ *   Copyright (C) 2006-2008 Alfonso E. Romero <alfonsoeromero (AT) gmail (DOT) com>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package base;
+
+import java.util.*;
+
+/**
+ * Minimal perfect hash of a fixed set of strings (string -> identifier), built
+ * with the "hash and displace" method (CHD): the keys are split in buckets of
+ * about 3 keys by a 64-bit hash, and for each bucket (biggest first) we look
+ * for a displacement which sends all its keys to free slots of a table with as
+ * many slots as keys. Buckets with a single key just take a free slot.
+ *
+ * A lookup hashes the string once, reads the displacement of its bucket and
+ * the identifier of its slot, and compares the string with the key of that
+ * identifier (the strings not in the set give -1). It is read-only, so it can
+ * be shared among threads.
+ */
+public class PerfectHash {
+    //! key of each identifier
+    private final String[] keys;
+
+    //! displacement of each bucket (-slot-1 if it has a single key)
+    private final int[] displacement;
+
+    //! identifier of the key of each slot
+    private final int[] ids;
+
+    private final long seed;
+
+    //! maximum number of displacements tried for a bucket
+    private static final int MAX_DISPLACEMENT = 1 << 20;
+
+    private PerfectHash(String[] keys, int[] displacement, int[] ids, long seed) {
+        this.keys = keys;
+        this.displacement = displacement;
+        this.ids = ids;
+        this.seed = seed;
+    }
+
+    /** Builds the hash of a set of strings
+     * @param keys the strings; the identifier of each one is its position
+     * @return the hash, or null if there are null or repeated strings
+     */
+    public static PerfectHash build(String[] keys) {
+        for (String k : keys)
+            if (k == null)
+                return null;
+
+        // with another seed, a 64-bit collision of two different strings is solved
+        for (int attempt = 0; attempt < 4; ++attempt) {
+            long seed = 0x9E3779B97F4A7C15L * (attempt + 1);
+            PerfectHash ph = build(keys, seed);
+            if (ph != null)
+                return ph;
+            if (hasRepeated(keys))
+                return null;
+        }
+        return null;
+    }
+
+    private static boolean hasRepeated(String[] keys) {
+        Set<String> seen = new HashSet<String>();
+        for (String k : keys)
+            if (!seen.add(k))
+                return true;
+        return false;
+    }
+
+    private static PerfectHash build(String[] keys, long seed) {
+        int n = keys.length;
+        int numBuckets = Math.max(1, (n + 2) / 3);
+        long[] h = new long[n];
+        int[] bucketStart = new int[numBuckets + 1];
+        for (int k=0; k<n; ++k) {
+            h[k] = hash(keys[k], seed);
+            ++bucketStart[bucketOf(h[k], numBuckets) + 1];
+        }
+        for (int b=0; b<numBuckets; ++b)
+            bucketStart[b+1] += bucketStart[b];
+
+        // keys of each bucket (counting sort)
+        int[] members = new int[n];
+        int[] fill = new int[numBuckets];
+        int maxSize = 0;
+        for (int k=0; k<n; ++k) {
+            int b = bucketOf(h[k], numBuckets);
+            members[bucketStart[b] + fill[b]++] = k;
+            maxSize = Math.max(maxSize, fill[b]);
+        }
+
+        // buckets sorted by decreasing size (counting sort)
+        int[] sizeStart = new int[maxSize + 2];
+        for (int b=0; b<numBuckets; ++b)
+            ++sizeStart[maxSize - fill[b] + 1];
+        for (int s=0; s<=maxSize; ++s)
+            sizeStart[s+1] += sizeStart[s];
+        int[] order = new int[numBuckets];
+        for (int b=0; b<numBuckets; ++b)
+            order[sizeStart[maxSize - fill[b]]++] = b;
+
+        int[] displacement = new int[numBuckets];
+        int[] ids = new int[n];
+        boolean[] used = new boolean[n];
+        int[] slots = new int[maxSize];
+        int nextFree = 0;
+
+        for (int b : order) {
+            int start = bucketStart[b], size = fill[b];
+            if (size == 0)
+                break;
+
+            if (size == 1) {
+                while (used[nextFree])
+                    ++nextFree;
+                used[nextFree] = true;
+                ids[nextFree] = members[start];
+                displacement[b] = -nextFree - 1;
+                continue;
+            }
+
+            int d = 0;
+            for (; d < MAX_DISPLACEMENT; ++d) {
+                boolean ok = true;
+                for (int i=0; i<size && ok; ++i) {
+                    int slot = slotOf(h[members[start + i]], d, n);
+                    if (used[slot])
+                        ok = false;
+                    for (int j=0; j<i && ok; ++j)
+                        if (slots[j] == slot)
+                            ok = false;
+                    slots[i] = slot;
+                }
+                if (ok)
+                    break;
+            }
+            if (d == MAX_DISPLACEMENT)
+                return null;
+
+            for (int i=0; i<size; ++i) {
+                used[slots[i]] = true;
+                ids[slots[i]] = members[start + i];
+            }
+            displacement[b] = d;
+        }
+        return new PerfectHash(keys, displacement, ids, seed);
+    }
+
+    /** Returns the identifier of a string, -1 if it is not in the set */
+    public int get(String s) {
+        if (ids.length == 0)
+            return -1;
+        long h = hash(s, seed);
+        int d = displacement[bucketOf(h, displacement.length)];
+        int slot = (d < 0) ? -d - 1 : slotOf(h, d, ids.length);
+        int id = ids[slot];
+        return keys[id].equals(s) ? id : -1;
+    }
+
+    /** Number of strings */
+    public int size() {
+        return keys.length;
+    }
+
+    /** 64-bit hash of the chars of a string (FNV-1a and a final mix) */
+    private static long hash(String s, long seed) {
+        long h = seed;
+        for (int i=0; i<s.length(); ++i)
+            h = (h ^ s.charAt(i)) * 0x100000001B3L;
+        return mix(h);
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static int bucketOf(long h, int numBuckets) {
+        return (int) ((h >>> 33) % numBuckets);
+    }
+
+    private static int slotOf(long h, int d, int n) {
+        return (int) ((mix(h + d * 0x9E3779B97F4A7C15L) >>> 33) % n);
+    }
+}
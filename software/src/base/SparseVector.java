@@ -0,0 +1,167 @@
+/*
+ *
+ *   ReBayCT: a tool for classification on a Thesaurus
+ *
+ *	For details see:
+ *	 L. M. de Campos, A. E. Romero, Bayesian Network Models for Hierarchical Text
+ *	Classification from a Thesaurus, Int. J. Approx. Reasoning 50(7): 932-944 (2009).
+ *
+ *
+ *   Copyright (C) 2006-2008 Alfonso E. Romero <alfonsoeromero (AT) gmail (DOT) com>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package base;
+
+import java.util.*;
+
+/**
+ * Sparse vector of term frequencies: the identifiers of the terms with
+ * positive frequency, sorted in ascending order, and their frequencies.
+ * Vectors are not modified once built; they are created with a Builder,
+ * which can be reused for many vectors.
+ *
+ * To go through a vector:
+ *
+ *   for (int k=0; k<v.size(); ++k)
+ *       ... v.getTerm(k) ... v.getFreq(k) ...
+ */
+public final class SparseVector {
+    //! the empty vector
+    public static final SparseVector EMPTY = new SparseVector(new int[0], new int[0], 0);
+
+    //! identifiers of the terms, sorted
+    private final int[] terms;
+
+    //! frequency of each term
+    private final int[] freqs;
+
+    //! sum of all frequencies
+    private final int length;
+
+    private SparseVector(int[] terms, int[] freqs, int length) {
+        this.terms = terms;
+        this.freqs = freqs;
+        this.length = length;
+    }
+
+    /** Number of terms (with positive frequency) */
+    public int size() {
+        return terms.length;
+    }
+
+    /** Identifier of the k-th term (in ascending order) */
+    public int getTerm(int k) {
+        return terms[k];
+    }
+
+    /** Frequency of the k-th term */
+    public int getFreq(int k) {
+        return freqs[k];
+    }
+
+    /** Frequency of a term, 0 if it is not in the vector */
+    public int get(int term) {
+        int k = Arrays.binarySearch(terms, term);
+        return (k >= 0) ? freqs[k] : 0;
+    }
+
+    public boolean contains(int term) {
+        return Arrays.binarySearch(terms, term) >= 0;
+    }
+
+    /** Sum of all the frequencies */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Builds sparse vectors from occurrences of terms, whose identifiers are
+     * small non-negative integers (the identifiers of a lexicon). Frequencies
+     * are accumulated in an array indexed by term, so adding an occurrence does
+     * not allocate anything; build() returns the vector and leaves the builder
+     * empty, ready for the next one.
+     */
+    public static final class Builder {
+        //! frequency of each term in the current vector
+        private int[] counts = new int[1024];
+
+        //! terms of the current vector, in order of first occurrence
+        private int[] touched = new int[64];
+
+        //! number of terms of the current vector
+        private int size = 0;
+
+        /** Adds one occurrence of a term */
+        public void add(int term) {
+            add(term, 1);
+        }
+
+        /** Adds "freq" occurrences of a term */
+        public void add(int term, int freq) {
+            if (freq <= 0)
+                return;
+            if (term >= counts.length) {
+                int[] c = new int[Math.max(term + 1, counts.length * 2)];
+                System.arraycopy(counts, 0, c, 0, counts.length);
+                counts = c;
+            }
+            if (counts[term] == 0) {
+                if (size == touched.length) {
+                    int[] t = new int[touched.length * 2];
+                    System.arraycopy(touched, 0, t, 0, size);
+                    touched = t;
+                }
+                touched[size++] = term;
+            }
+            counts[term] += freq;
+        }
+
+        /** Number of different terms added since the last build (or clear) */
+        public int size() {
+            return size;
+        }
+
+        /** Frequency of a term in the vector being built */
+        public int get(int term) {
+            return (term < counts.length) ? counts[term] : 0;
+        }
+
+        /** Discards the occurrences added so far */
+        public void clear() {
+            for (int k=0; k<size; ++k)
+                counts[touched[k]] = 0;
+            size = 0;
+        }
+
+        /** Returns the vector with the occurrences added so far, and clears the builder */
+        public SparseVector build() {
+            if (size == 0)
+                return EMPTY;
+            Arrays.sort(touched, 0, size);
+            int[] terms = new int[size], freqs = new int[size];
+            int length = 0;
+            for (int k=0; k<size; ++k) {
+                terms[k] = touched[k];
+                freqs[k] = counts[touched[k]];
+                length += freqs[k];
+                counts[touched[k]] = 0;
+            }
+            size = 0;
+            return new SparseVector(terms, freqs, length);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ *
+ *   ReBayCT: a tool for classification on a Thesaurus
+ *
+ *	For details see:
+ *	 L. M. de Campos, A. E. Romero, Bayesian Network Models for Hierarchical Text
+ *	Classification from a Thesaurus, Int. J. Approx. Reasoning 50(7): 932-944 (2009).
+ *
+ *
+ *   Copyright (C) 2006-2008 Alfonso E. Romero <alfonsoeromero (AT) gmail (DOT) com>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package base;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of the stems of the words (surface form -> stem), which can be used by
+ * several threads at the same time. Word frequencies are Zipfian, so a few
+ * thousand forms are most of the occurrences, and those are stemmed once.
+ *
+ * The size is bounded with two generations: new stems go to the young one and,
+ * when it is full (half the capacity), it becomes the old one and the former
+ * old one is dropped. A form found in the old generation is copied back to the
+ * young one, so the frequent forms survive and the rare ones are evicted.
+ */
+public class StemCache {
+    //! maximum number of forms (among both generations)
+    private final int capacity;
+
+    private volatile ConcurrentHashMap<String, String> young, old;
+
+    private final AtomicLong hits = new AtomicLong(), misses = new AtomicLong();
+
+    /** Creates an empty cache
+     * @param capacity maximum number of forms kept
+     */
+    public StemCache(int capacity) {
+        this.capacity = Math.max(2, capacity);
+        young = new ConcurrentHashMap<String, String>();
+        old = new ConcurrentHashMap<String, String>();
+    }
+
+    /** Returns the stem of a form, or null if it is not in the cache */
+    public String get(String form) {
+        String stem = young.get(form);
+        if (stem == null) {
+            stem = old.get(form);
+            if (stem == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            put(form, stem);
+        }
+        hits.incrementAndGet();
+        return stem;
+    }
+
+    /** Stores the stem of a form (evicting the old generation if needed) */
+    public void put(String form, String stem) {
+        ConcurrentHashMap<String, String> y = young;
+        y.put(form, stem);
+        if (y.size() >= capacity / 2)
+            rotate(y);
+    }
+
+    private synchronized void rotate(ConcurrentHashMap<String, String> full) {
+        // another thread could have rotated it
+        if (young == full) {
+            old = full;
+            young = new ConcurrentHashMap<String, String>();
+        }
+    }
+
+    /** Removes all the forms (for instance, if the language changes) */
+    public synchronized void clear() {
+        young = new ConcurrentHashMap<String, String>();
+        old = new ConcurrentHashMap<String, String>();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /** Number of forms in the cache */
+    public int size() {
+        return young.size() + old.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /** Fraction of lookups found in the cache (0 if there was none) */
+    public double getHitRatio() {
+        long h = hits.get(), n = h + misses.get();
+        return (n == 0) ? 0.0 : (double) h / n;
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ *
+ *   ReBayCT: a tool for classification on a Thesaurus
+ *
+ *	For details see:
+ *	 L. M. de Campos, A. E. Romero, Bayesian Network Models for Hierarchical Text
+ *	Classification from a Thesaurus, Int. J. Approx. Reasoning 50(7): 932-944 (2009).
+ *
+ *
+ *   Copyright (C) 2006-2008 Alfonso E. Romero <alfonsoeromero (AT) gmail (DOT) com>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package base;
+
+import java.util.*;
+import org.tartarus.snowball.SnowballProgram;
+import org.tartarus.snowball.ext.*;
+
+/**
+ * Snowball stemmers of a language. Stemmers keep the word being stemmed, so
+ * they cannot be shared among threads: get() returns the stemmer of the
+ * calling thread, created the first time it is asked for.
+ *
+ * Languages are given by their ISO 639-1 code (es, en, fr...) or by the name
+ * of the snowball stemmer (spanish, english, french..., and porter for the
+ * original Porter stemmer).
+ */
+public final class StemmerFactory {
+    //! stemmer class of each code and name of a language
+    private static final Map<String, Class<? extends SnowballProgram>> LANGUAGES =
+            new LinkedHashMap<String, Class<? extends SnowballProgram>>();
+
+    static {
+        language("es", "spanish", spanishStemmer.class);
+        language("en", "english", englishStemmer.class);
+        language("fr", "french", frenchStemmer.class);
+        language("de", "german", germanStemmer.class);
+        language("it", "italian", italianStemmer.class);
+        language("pt", "portuguese", portugueseStemmer.class);
+        language("nl", "dutch", dutchStemmer.class);
+        language("da", "danish", danishStemmer.class);
+        language("sv", "swedish", swedishStemmer.class);
+        language("no", "norwegian", norwegianStemmer.class);
+        language("fi", "finnish", finnishStemmer.class);
+        language("hu", "hungarian", hungarianStemmer.class);
+        language("ru", "russian", russianStemmer.class);
+        LANGUAGES.put("porter", porterStemmer.class);
+    }
+
+    private static void language(String code, String name, Class<? extends SnowballProgram> c) {
+        LANGUAGES.put(code, c);
+        LANGUAGES.put(name, c);
+    }
+
+    //! language, as given to forLanguage
+    private final String language;
+
+    private final Class<? extends SnowballProgram> stemmerClass;
+
+    //! stemmer of each thread
+    private final ThreadLocal<SnowballProgram> stemmers = new ThreadLocal<SnowballProgram>() {
+        @Override
+        protected SnowballProgram initialValue() {
+            return newStemmer();
+        }
+    };
+
+    private StemmerFactory(String language, Class<? extends SnowballProgram> stemmerClass) {
+        this.language = language;
+        this.stemmerClass = stemmerClass;
+    }
+
+    /** Returns the factory of the stemmers of a language, null if there is no
+     * stemmer for it
+     * @param language code (es, en...) or name (spanish, english...) of the language
+     */
+    public static StemmerFactory forLanguage(String language) {
+        String lng = language.trim().toLowerCase();
+        Class<? extends SnowballProgram> c = LANGUAGES.get(lng);
+        return (c == null) ? null : new StemmerFactory(lng, c);
+    }
+
+    /** Codes and names of the languages with a stemmer */
+    public static Set<String> getLanguages() {
+        return Collections.unmodifiableSet(LANGUAGES.keySet());
+    }
+
+    public String getLanguage() {
+        return language;
+    }
+
+    /** Returns the stemmer of the calling thread */
+    public SnowballProgram get() {
+        return stemmers.get();
+    }
+
+    /** Returns a new stemmer (not shared with any thread) */
+    public SnowballProgram newStemmer() {
+        try {
+            return stemmerClass.getDeclaredConstructor().newInstance();
+        } catch (Exception ex) {
+            System.err.println("ERROR: could not create a stemmer of class " + stemmerClass.getName() + ". Exiting. " + ex);
+            System.exit(-1);
+            return null;
+        }
+    }
+}
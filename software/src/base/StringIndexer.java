@@ -28,7 +28,6 @@ package base;
 import java.util.*;
 import java.io.*;
 import org.tartarus.snowball.*;
-import org.tartarus.snowball.ext.*;
 
 public abstract class StringIndexer <T extends BaseTerm, L extends Lexicon> {
     // tells if we should use stemming or not
@@ -43,11 +42,20 @@ public abstract class StringIndexer <T extends BaseTerm, L extends Lexicon> {
     //! associated lexicon
     protected L l;
     
-    //! snowball spanish stemmer
-    protected static SnowballProgram myStemmer;
+    //! stemmers of the language (one for each thread)
+    protected static StemmerFactory stemmers;
+    
+    //! stemmer of this indexer (see useOwnStemmer), the one of the thread if null
+    protected SnowballProgram stemmer;
+    
+    //! default maximum number of forms in the stem cache
+    public static final int DEFAULT_STEM_CACHE_SIZE = 65536;
+    
+    //! stems already computed (surface form -> stem), null if not used
+    protected static StemCache stemCache = new StemCache(DEFAULT_STEM_CACHE_SIZE);
     
     //! freqs by term
-    protected Map<Integer, Integer> freq;
+    protected SparseVector.Builder freq;
     
     private static String encoding = "UTF8";
     
@@ -55,16 +63,29 @@ public abstract class StringIndexer <T extends BaseTerm, L extends Lexicon> {
     
     protected static boolean removeNumbers = false;
     
+    /** Sets the language of the stemmers: any language of the snowball
+     * stemmers, by its code (es, en, fr...) or by its name (spanish...)
+     */
     public static void setStemLanguage(String lng) {
-        // currently only spanish and english are supported languages
-        if (lng.trim().equalsIgnoreCase("es"))
-            myStemmer = new spanishStemmer();
-        else if (lng.trim().equalsIgnoreCase("en"))
-            myStemmer = new englishStemmer();
-        else {
-            System.err.println("Error: string '" + lng + "' does not corresponde to any language, use 'es' or 'en' instead.");
+        StemmerFactory factory = StemmerFactory.forLanguage(lng);
+        if (factory == null) {
+            System.err.println("Error: string '" + lng + "' does not corresponde to any language, use one of " + StemmerFactory.getLanguages() + " instead.");
             System.exit(-1);
         }
+        stemmers = factory;
+        // the stems of the former language are not valid anymore
+        if (stemCache != null)
+            stemCache.clear();
+    }
+    
+    /** Sets the maximum number of forms of the stem cache (0 for not using it) */
+    public static void setStemCacheSize(int size) {
+        stemCache = (size > 0) ? new StemCache(size) : null;
+    }
+    
+    /** Returns the stem cache (with its number of hits and misses), null if it is not used */
+    public static StemCache getStemCache() {
+        return stemCache;
     }
     
     public static void setRemoveNumbers(boolean rem) {
@@ -79,8 +100,11 @@ public abstract class StringIndexer <T extends BaseTerm, L extends Lexicon> {
         freq.clear();
     }
     
-    public Map<Integer, Integer> getFreq() {
-        return freq;
+    /** Returns the vector of frequencies of the terms added since the last
+     * call (or clear), and starts a new one
+     */
+    public SparseVector getVector() {
+        return freq.build();
     }
     
     public int size() {
@@ -99,22 +123,18 @@ public abstract class StringIndexer <T extends BaseTerm, L extends Lexicon> {
         
     }
     
-    public void add(String s) {
-        String _s = s.toLowerCase().toLowerCase();
-        _s = _s.replaceAll("\\[V4.2\\]", "");
-        _s = _s.replaceAll("<\\/?\\w+>", "");  // remove html/sgml tags
-        _s = _s.replaceAll("[\\p{Punct}&&[^-]]+", " ");
-        _s = _s.replaceAll("á", "a");
-        _s = _s.replaceAll("é", "e");
-        _s = _s.replaceAll("í", "i");
-        _s = _s.replaceAll("ó", "o");
-        _s = _s.replaceAll("ú", "u");
-        _s = _s.replaceAll("ü", "u");
+    /** Returns the terms of a string (in the order they appear): the tokens
+     * which are not stopwords (nor numbers, if we are removing them), stemmed
+     * if we are doing stemming
+     * @param s string to process
+     * @return list of terms
+     */
+    public List<String> getTerms(String s) {
+        List<String> terms = new ArrayList<String>();
+        List<String> tokens = new ArrayList<String>();
+        Tokenizer.tokenize(s, tokens);
         
-        StringTokenizer st = new StringTokenizer(_s);
-        
-        while (st.hasMoreTokens()) {
-            String token = st.nextToken();
+        for (String token : tokens) {
             
             // is the token a number
                        
@@ -124,57 +144,99 @@ public abstract class StringIndexer <T extends BaseTerm, L extends Lexicon> {
                 if (token.length() > 1 && Collections.binarySearch(list, token) < 0) {
                     // stem it
                     if (doStem) {
-                        int last_index = token.indexOf('_');
-                        if (last_index != -1)
-                        {
-                            // if contains "_"
-                            if (last_index != token.length()-1)
-                            {
-                                // we extract the two substrings: before the last "_" and after it
-                                String preffix = token.substring(0, last_index+1);
-                                String newtoken = token.substring(last_index, token.length());
-                                
-                                StringIndexer.myStemmer.setCurrent(newtoken);
-                                StringIndexer.myStemmer.stem();
-                                token = preffix + StringIndexer.myStemmer.getCurrent();
-                            
-                            } // else do nothing (ends with "_")
-                        
-                        } else {
-                            // token does not contains "_"
-                            StringIndexer.myStemmer.setCurrent(token);
-                            StringIndexer.myStemmer.stem();
-                            token = StringIndexer.myStemmer.getCurrent();
+                        StemCache cache = StringIndexer.stemCache;
+                        String stem = (cache != null) ? cache.get(token) : null;
+                        if (stem == null) {
+                            stem = this.stem(token);
+                            if (cache != null)
+                                cache.put(token, stem);
                         }
+                        token = stem;
                     }
                     
-                    //obtain its identifier
-                    int id = l.getTermIdByString(token);
-                    
-                    if (id == -1) // if the term did not exist in the system
-                    {
-                        if (indexing) // ... and we were indexing
-                        {
-                            // we insert it
-                            createNewTerm(token);
-                        /*id = l.size();
-                        t.setId(id);
-                        l.add(t);
-                        this.freq.put(id, 1);*/
-                        } // otherwise we do nothing
-                        
-                    } else {
-                        
-                        if (this.freq.containsKey(id))
-                            this.freq.put(id, this.freq.get(id) + 1);
-                        else this.freq.put(id, 1);
-                    }
-                    // add to "this.freq"
-                    
+                    terms.add(token);
                 } // if (!Collections.binarySearch...
             }
             
-        } // while (st.hasMoreTokens())
+        } // for (String token : tokens)
+        return terms;
+    }
+    
+    /** Stems a token with the stemmer of this indexer (if the token contains
+     * "_", only the part after the last one is stemmed)
+     */
+    private String stem(String token) {
+        SnowballProgram stemmer = (this.stemmer != null) ? this.stemmer : StringIndexer.stemmers.get();
+        int last_index = token.indexOf('_');
+        if (last_index != -1)
+        {
+            // if contains "_"
+            if (last_index != token.length()-1)
+            {
+                // we extract the two substrings: before the last "_" and after it
+                String preffix = token.substring(0, last_index+1);
+                String newtoken = token.substring(last_index, token.length());
+                
+                stemmer.setCurrent(newtoken);
+                stemmer.stem();
+                return preffix + stemmer.getCurrent();
+                
+            } // else do nothing (ends with "_")
+            return token;
+            
+        } else {
+            // token does not contains "_"
+            stemmer.setCurrent(token);
+            stemmer.stem();
+            return stemmer.getCurrent();
+        }
+    }
+    
+    public void add(String s) {
+        this.addTerms(this.getTerms(s));
+    }
+    
+    /** Adds the terms of a string already given by getTerms (maybe computed
+     * by another thread, with its own stemmer)
+     * @param terms list of terms, in the order they appear
+     */
+    public void addTerms(List<String> terms) {
+        for (String token : terms)
+            this.addTerm(token);
+    }
+    
+    /** Adds one occurrence of a (already processed) term to "this.freq"
+     * @param token the term
+     */
+    protected void addTerm(String token) {
+        //obtain its identifier
+        int id = l.getTermIdByString(token);
+        
+        if (id == -1) // if the term did not exist in the system
+        {
+            if (indexing) // ... and we were indexing
+            {
+                // we insert it
+                createNewTerm(token);
+            /*id = l.size();
+            t.setId(id);
+            l.add(t);
+            this.freq.add(id);*/
+            } // otherwise we do nothing
+            
+        } else {
+            
+            this.freq.add(id);
+        }
+    }
+    
+    /** Gives this indexer its own stemmer (of the language set with
+     * setStemLanguage). It is not needed to use indexers in parallel, as
+     * otherwise each thread uses its own stemmer.
+     */
+    public void useOwnStemmer() {
+        if (stemmers != null)
+            stemmer = stemmers.newStemmer();
     }
     
     public static void setIndexing(boolean b) {
@@ -183,12 +245,12 @@ public abstract class StringIndexer <T extends BaseTerm, L extends Lexicon> {
     
     
     public StringIndexer() {
-        freq = new HashMap<Integer, Integer>();
+        freq = new SparseVector.Builder();
     }
     
     
     public StringIndexer(String s) {
-        freq = new HashMap<Integer, Integer>();
+        freq = new SparseVector.Builder();
         this.add(s);
     }
     
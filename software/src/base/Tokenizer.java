@@ -0,0 +1,146 @@
+/*
+ *
+ *   ReBayCT: a tool for classification on a Thesaurus
+ *
+ *	For details see:
+ *	 L. M. de Campos, A. E. Romero, Bayesian Network Models for Hierarchical Text
+ *	Classification from a Thesaurus, Int. J. Approx. Reasoning 50(7): 932-944 (2009).
+ *
+ *
+ *   Copyright (C) 2006-2008 Alfonso E. Romero <alfonsoeromero (AT) gmail (DOT) com>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package base;
+
+import java.util.*;
+
+/**
+ * Splits a line of text into (lowercased, accent-free) tokens in a single pass
+ * over its characters. It gives the same tokens as the former chain of
+ * regular expressions of StringIndexer.add:
+ *
+ *   s.toLowerCase()
+ *    .replaceAll("\\[V4.2\\]", "")             (never matches: 'V' is uppercase)
+ *    .replaceAll("<\\/?\\w+>", "")             (html/sgml tags)
+ *    .replaceAll("[\\p{Punct}&&[^-]]+", " ")  (punctuation, except '-')
+ *    .replaceAll("á", "a") ... ("ü", "u")
+ *
+ * followed by a StringTokenizer with the default delimiters.
+ */
+public final class Tokenizer {
+
+    private Tokenizer() { }
+
+    /** Default delimiters of StringTokenizer */
+    private static boolean isDelimiter(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+    }
+
+    /** ASCII punctuation (\p{Punct}) except '-' */
+    private static boolean isPunctuation(char c) {
+        return c != '-' && ((c >= '!' && c <= '/') || (c >= ':' && c <= '@')
+                || (c >= '[' && c <= '`') || (c >= '{' && c <= '~'));
+    }
+
+    /** Word characters (\w) */
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    /** If there is a tag (<\/?\w+>) starting at position i, returns the position
+     * after it, otherwise i
+     */
+    private static int skipTag(String s, int i) {
+        int j = i + 1, n = s.length();
+        if (j < n && s.charAt(j) == '/')
+            ++j;
+        int k = j;
+        while (k < n && isWordChar(s.charAt(k)))
+            ++k;
+        if (k > j && k < n && s.charAt(k) == '>')
+            return k + 1;
+        return i;
+    }
+
+    /** Accent folding of StringIndexer */
+    private static char fold(char c) {
+        switch (c) {
+            case 'á': return 'a';
+            case 'é': return 'e';
+            case 'í': return 'i';
+            case 'ó': return 'o';
+            case 'ú': return 'u';
+            case 'ü': return 'u';
+            default: return c;
+        }
+    }
+
+    /** Returns the tokens of a line of text, in order
+     * @param s line of text
+     * @param tokens list where the tokens are appended
+     */
+    public static void tokenize(String s, List<String> tokens) {
+        String _s = s.toLowerCase();
+        int n = _s.length();
+        StringBuilder token = new StringBuilder();
+
+        int i = 0;
+        while (i < n) {
+            char c = _s.charAt(i);
+            if (c == '<') {
+                int end = skipTag(_s, i);
+                if (end != i) {
+                    // tags are removed, not replaced by a delimiter
+                    i = end;
+                    continue;
+                }
+            }
+
+            if (isDelimiter(c) || isPunctuation(c)) {
+                if (token.length() > 0) {
+                    tokens.add(token.toString());
+                    token.setLength(0);
+                }
+            } else
+                token.append(fold(c));
+            ++i;
+        }
+
+        if (token.length() > 0)
+            tokens.add(token.toString());
+    }
+
+    /** Lowercases a text and removes its accents (á, é, í, ó, ú, û), as used
+     * by the unsupervised classifiers to look for exact phrases
+     * @param s text
+     * @return the same text, lowercased and without accents
+     */
+    public static String internationalize(String s) {
+        char[] c = s.toLowerCase().toCharArray();
+        for (int i=0; i<c.length; ++i) {
+            switch (c[i]) {
+                case 'á': c[i] = 'a'; break;
+                case 'é': c[i] = 'e'; break;
+                case 'í': c[i] = 'i'; break;
+                case 'ó': c[i] = 'o'; break;
+                case 'ú': c[i] = 'u'; break;
+                case 'û': c[i] = 'u'; break;
+            }
+        }
+        return new String(c);
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ *
+ *   ReBayCT: a tool for classification on a Thesaurus
+ *
+ *	For details see:
+ *	 L. M. de Campos, A. E. Romero, Bayesian Network Models for Hierarchical Text
+ *	Classification from a Thesaurus, Int. J. Approx. Reasoning 50(7): 932-944 (2009).
+ *
+ *
+ *   Copyright (C) 2006-2008 Alfonso E. Romero <alfonsoeromero (AT) gmail (DOT) com>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package base;
+
+import java.util.*;
+
+/**
+ * Selection of the best scored classes (or descriptors) of a document. Instead
+ * of sorting all the scores, only the k best ones are kept in a bounded heap,
+ * whose root is the worst of them.
+ */
+public final class TopK {
+
+    /** Decreasing order of scores (a total order, as Double.compare: NaN goes
+     * first and 0.0 before -0.0) */
+    public static final Comparator<Map.Entry<Integer, Double>> DECREASING = new Comparator<Map.Entry<Integer, Double>>() {
+        public int compare(Map.Entry<Integer, Double> entry, Map.Entry<Integer, Double> entry1) {
+            return Double.compare(entry1.getValue(), entry.getValue());
+        }
+    };
+
+    private TopK() { }
+
+    /** Returns the entries of "scores" sorted by decreasing score (ties keep
+     * the iteration order of the map), only the first k of them
+     * @param scores score of each identifier
+     * @param k maximum number of entries, all of them if k <= 0
+     * @param minScore entries with a lower score are discarded
+     * @return list of entries, the same as the first k of the whole sorted list
+     */
+    public static List<Map.Entry<Integer, Double>> select(Map<Integer, Double> scores, int k, double minScore) {
+        if (k <= 0 || k >= scores.size()) {
+            List<Map.Entry<Integer, Double>> l = new ArrayList<Map.Entry<Integer, Double>>(scores.size());
+            for (Map.Entry<Integer, Double> e : scores.entrySet())
+                if (!(e.getValue() < minScore))
+                    l.add(e);
+            Collections.sort(l, DECREASING);
+            if (k > 0 && l.size() > k)
+                l.subList(k, l.size()).clear();
+            return l;
+        }
+
+        // bounded heap: the entry at 0 is the worst one (lowest score, and
+        // the last one in iteration order among equal scores)
+        List<Map.Entry<Integer, Double>> heap = new ArrayList<Map.Entry<Integer, Double>>(k);
+        double[] score = new double[k];
+        int[] order = new int[k];
+
+        int n = 0;
+        for (Map.Entry<Integer, Double> e : scores.entrySet()) {
+            double v = e.getValue();
+            int myOrder = n++;
+            if (v < minScore)
+                continue;
+
+            if (heap.size() < k) {
+                // sift up
+                int i = heap.size();
+                heap.add(e);
+                while (i > 0) {
+                    int parent = (i - 1) / 2;
+                    if (!worse(v, myOrder, score[parent], order[parent]))
+                        break;
+                    heap.set(i, heap.get(parent));
+                    score[i] = score[parent];
+                    order[i] = order[parent];
+                    i = parent;
+                }
+                heap.set(i, e);
+                score[i] = v;
+                order[i] = myOrder;
+
+            } else if (Double.compare(v, score[0]) > 0) {
+                // the root is replaced, sift down
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= k)
+                        break;
+                    if (child + 1 < k && worse(score[child + 1], order[child + 1], score[child], order[child]))
+                        ++child;
+                    if (!worse(score[child], order[child], v, myOrder))
+                        break;
+                    heap.set(i, heap.get(child));
+                    score[i] = score[child];
+                    order[i] = order[child];
+                    i = child;
+                }
+                heap.set(i, e);
+                score[i] = v;
+                order[i] = myOrder;
+            }
+        }
+
+        // best first: ties are sorted by iteration order as in the whole sort
+        Integer[] positions = new Integer[heap.size()];
+        for (int i=0; i<positions.length; ++i)
+            positions[i] = i;
+        final double[] s = score;
+        final int[] o = order;
+        Arrays.sort(positions, new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                return worse(s[a], o[a], s[b], o[b]) ? 1 : (worse(s[b], o[b], s[a], o[a]) ? -1 : 0);
+            }
+        });
+        List<Map.Entry<Integer, Double>> l = new ArrayList<Map.Entry<Integer, Double>>(positions.length);
+        for (int p : positions)
+            l.add(heap.get(p));
+        return l;
+    }
+
+    /** Tells if an entry (score s1, position o1 in the iteration) goes after another one */
+    private static boolean worse(double s1, int o1, double s2, int o2) {
+        int c = Double.compare(s1, s2);
+        return c < 0 || (c == 0 && o1 > o2);
+    }
+}
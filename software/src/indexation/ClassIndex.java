@@ -0,0 +1,262 @@
+/*
+ *
+ *   ReBayCT: a tool for classification on a Thesaurus
+ *
+ *	For details see:
+ *	 L. M. de Campos, A. E. Romero, Bayesian Network Models for Hierarchical Text
+ *	Classification from a Thesaurus, Int. J. Approx. Reasoning 50(7): 932-944 (2009).
+ *
+ *
+ *   Copyright (C) 2006-2008 Alfonso E. Romero <alfonsoeromero (AT) gmail (DOT) com>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package indexation;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+
+/**
+ * Index of classes: the classified lexicon (occurrences of each term in each
+ * class), and for each class the number of documents and the total frequency
+ * of its terms. It is written by ClassIndexer and GlobalTermSelection and read
+ * by all the supervised classifiers.
+ *
+ * Two formats are supported. The text one has the lexicon (a term per line),
+ * the number of classes, the number of documents and a line per class. The
+ * binary one starts with a magic number and a version, then the number of
+ * classes and documents, the classes (sorted) with their number of documents
+ * and total frequency, and the lexicon, where every term stores its classes
+ * (sorted) and its frequency and number of documents on them as int arrays.
+ * It is read through FileChannel.map, but decoded completely when read (the
+ * binary format is faster to parse, the lexicon takes the same memory).
+ */
+public class ClassIndex {
+    /** "RBCI" */
+    public static final int MAGIC = 0x52424349;
+
+    public static final int VERSION = 1;
+
+    //! ClassifiedLexicon stores the inverted list of occurrences of term in classes
+    private ClassifiedLexicon cl;
+
+    //! Number of classes
+    private int numClasses;
+
+    //! Number of documents classified (to compute a priori probabilities)
+    private int numDocuments;
+
+    //! For each class, it stores the number of documents classified over it
+    private HashMap<Integer, Integer> numDocs;
+
+    //! For each class, it stores the total frequency of terms appearing in it
+    private HashMap<Integer, Integer> totalFreq;
+
+    public ClassIndex(ClassifiedLexicon _cl, int _numClasses, int _numDocuments,
+            HashMap<Integer, Integer> _numDocs, HashMap<Integer, Integer> _totalFreq) {
+        cl = _cl;
+        numClasses = _numClasses;
+        numDocuments = _numDocuments;
+        numDocs = _numDocs;
+        totalFreq = _totalFreq;
+    }
+
+    public ClassifiedLexicon getLexicon() {
+        return cl;
+    }
+
+    public int getNumClasses() {
+        return numClasses;
+    }
+
+    public int getNumDocuments() {
+        return numDocuments;
+    }
+
+    public HashMap<Integer, Integer> getNumDocs() {
+        return numDocs;
+    }
+
+    public HashMap<Integer, Integer> getTotalFreq() {
+        return totalFreq;
+    }
+
+    /** Tells if a file is a binary class index (by its magic number)
+     * @param fileName name of the file
+     */
+    public static boolean isBinary(String fileName) {
+        try {
+            DataInputStream in = new DataInputStream(new FileInputStream(fileName));
+            try {
+                return in.readInt() == MAGIC;
+            } finally {
+                in.close();
+            }
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    /** Reads a class index, in text or binary format. Exits if it could not be read.
+     * @param classIndexName name of the file
+     */
+    public static ClassIndex read(String classIndexName) {
+        try {
+            if (isBinary(classIndexName))
+                return readBinary(classIndexName);
+
+            BufferedReader in = new BufferedReader(new FileReader(classIndexName));
+
+            // 1.- we read the lexicon
+            ClassifiedLexicon cl = new ClassifiedLexicon();
+            cl.read(in);
+
+            // 2.- we read the number of classes and documents
+            int numClasses = Integer.parseInt(in.readLine());
+            int numDocuments = Integer.parseInt(in.readLine());
+
+            // 3.- we initialize the arrays and fill them
+            HashMap<Integer, Integer> numDocs = new HashMap<Integer, Integer>(numClasses);
+            HashMap<Integer, Integer> totalFreq = new HashMap<Integer, Integer>(numClasses);
+
+            // for each class (stored in one line...)
+            for (int i=0; i<numClasses; ++i) {
+                // we read the line and tokenize it
+                StringTokenizer st = new StringTokenizer(in.readLine());
+
+                // should have three tokens...
+                int classID = Integer.parseInt(st.nextToken());
+                int numDocz = Integer.parseInt(st.nextToken());
+                int myFreq = Integer.parseInt(st.nextToken());
+
+                // we insert the values on the arrays
+                numDocs.put(classID, numDocz);
+                totalFreq.put(classID, myFreq);
+            }
+            in.close();
+
+            return new ClassIndex(cl, numClasses, numDocuments, numDocs, totalFreq);
+
+        } catch (FileNotFoundException ex) {
+            System.err.println("ERROR: file " + classIndexName + " does not exist. Exiting.");
+            System.exit(-1);
+        } catch (NumberFormatException ex) {
+            System.err.println("ERROR: number expected in file " + classIndexName + " was not found. Exiting. " + ex);
+            System.exit(-1);
+        } catch (BufferUnderflowException ex) {
+            System.err.println("ERROR: binary class index " + classIndexName + " is truncated. Exiting.");
+            System.exit(-1);
+        } catch (IOException ex){
+            System.err.println("ERROR: file " + classIndexName + " could not be read. Exiting. " + ex);
+            System.exit(-1);
+        }
+        return null;
+    }
+
+    private static ClassIndex readBinary(String classIndexName) throws IOException {
+        ByteBuffer in;
+        RandomAccessFile raf = new RandomAccessFile(classIndexName, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            raf.close();
+        }
+
+        in.getInt(); // magic number
+        int version = in.getInt();
+        if (version != VERSION)
+            throw new IOException("unsupported version " + version + " of binary class index");
+
+        int numClasses = in.getInt();
+        int numDocuments = in.getInt();
+
+        int n = in.getInt();
+        HashMap<Integer, Integer> numDocs = new HashMap<Integer, Integer>(numClasses);
+        HashMap<Integer, Integer> totalFreq = new HashMap<Integer, Integer>(numClasses);
+        for (int i=0; i<n; ++i) {
+            int classID = in.getInt();
+            numDocs.put(classID, in.getInt());
+            totalFreq.put(classID, in.getInt());
+        }
+
+        ClassifiedLexicon cl = new ClassifiedLexicon();
+        cl.read(in);
+
+        return new ClassIndex(cl, numClasses, numDocuments, numDocs, totalFreq);
+    }
+
+    /** Writes the index. Exits if it could not be written.
+     * @param indexName name of the file
+     * @param binary true to use the binary format, false for the text one
+     */
+    public void write(String indexName, boolean binary) {
+        try {
+            if (binary) {
+                writeBinary(indexName);
+                return;
+            }
+
+            //1.- we open the buffer
+            BufferedWriter out = new BufferedWriter(new FileWriter(indexName));
+
+            //2.- we write the lexicon
+            cl.write(out);
+
+            //3.- we write the number of classes
+            out.write(numClasses + "\n");
+
+            //3.- we write the number of documents used to create this index of classes
+            out.write(this.numDocuments + "\n");
+
+            //5.- for each class, we write its id, the number of documents and the total frequency
+            for (int i : numDocs.keySet())
+              out.write(i + " " + numDocs.get(i) + " " + totalFreq.get(i) + "\n" );
+
+            out.write("\n");
+
+            //6.- we flush the buffer
+            out.close();
+        } catch(IOException ex) {
+            System.err.println("ERROR: class index " + indexName + " could not be written. Exiting. " + ex);
+            System.exit(-1);
+        }
+    }
+
+    private void writeBinary(String indexName) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexName)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(numClasses);
+            out.writeInt(numDocuments);
+
+            out.writeInt(numDocs.size());
+            for (int i : new TreeSet<Integer>(numDocs.keySet())) {
+                out.writeInt(i);
+                out.writeInt(numDocs.get(i));
+                out.writeInt(totalFreq.get(i));
+            }
+
+            cl.write(out);
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -36,6 +36,7 @@ package indexation;
 import java.util.*;
 import java.io.*;
 import base.IndexedDocument;
+import base.SparseVector;
 
 /**
  *
@@ -65,32 +66,16 @@ public class ClassIndexer {
     
     public void writeIndex(String indexName)
     {
-        try{
-            //1.- we open the buffer
-            BufferedWriter out = new BufferedWriter(new FileWriter(indexName));
-            
-            //2.- we write the lexicon
-            cl.write(out);
-            
-            //3.- we write the number of classes
-            out.write(numClasses + "\n");
-            
-            //3.- we write the number of documents used to create this index of classes
-            out.write(this.numDocuments + "\n");
-            
-            //5.- for each class, we write its id, the number of documents and the total frequency
-            for (int i : numDocs.keySet())
-              out.write(i + " " + numDocs.get(i) + " " + totalFreq.get(i) + "\n" );
-            
-            out.write("\n");
-            
-            //6.- we flush the buffer
-            out.close();
-        } catch(Exception ex) {
-            System.err.println("ERROR: ");
-            System.err.println(". Exiting.");
-            System.exit(-1);       
-        }
+        writeIndex(indexName, false);
+    }
+    
+    /** Writes the index of classes
+     * @param indexName name of the file
+     * @param binary true to write it in the binary format of ClassIndex
+     */
+    public void writeIndex(String indexName, boolean binary)
+    {
+        new ClassIndex(cl, numClasses, numDocuments, numDocs, totalFreq).write(indexName, binary);
     }
     
     private void processDocument(IndexedDocument id, ProcessedLexicon pl) 
@@ -102,8 +87,11 @@ public class ClassIndexer {
         int totalFrequency = 0;
         
         //2.- for each term "k" in the document...
-        for (int k : id.getListOfTerms()) 
+        SparseVector v = id.getVector();
+        for (int pos=0; pos<v.size(); ++pos) 
         {    
+            int k = v.getTerm(pos);
+            
             //2.1.- we get the string of the term "k"
             String word = (pl.getTermById(k)).getString();
             
@@ -123,7 +111,7 @@ public class ClassIndexer {
             myTermId = ct.getId();
             
             //2.4.- we get the frequency of the term in termFrequency
-            int termFrequency = id.getFreqAtTerm(k);
+            int termFrequency = v.getFreq(pos);
             totalFrequency += termFrequency;
             
             // we add the frequency on this document to the total frequency of the term
@@ -152,7 +140,7 @@ public class ClassIndexer {
         ClassifiedFileReader cf = new ClassifiedFileReader(classifiedFileName);
         
         //2.- we read the LexicalIndex (the ProcessedLexicon and an Array of IndexedDocument)
-        ProcessedLexicon pl = new ProcessedLexicon();
+        ProcessedLexicon pl = null;
         
         //3.- we initiate the classifiedLexicon
         cl = new ClassifiedLexicon();
@@ -181,23 +169,24 @@ public class ClassIndexer {
         System.out.println("Reading lexical index...");
         
         try {
-            BufferedReader in = new BufferedReader(new FileReader(lexicalIndexName));
-            pl.read(in);
+            LexicalIndex in = new LexicalIndex(lexicalIndexName);
+            pl = in.getLexicon();
             
             System.out.println("Lexicon read...");
             
             // we read the number of documents
-            this.numDocuments = Integer.parseInt(in.readLine());
+            this.numDocuments = in.getNumDocuments();
             
             // for each document in the vectors file
             for (int i=0; i<this.numDocuments ; ++i) {
                 // we read an indexed document from this file
-                IndexedDocument id = new IndexedDocument(in.readLine()); 
+                IndexedDocument id = in.next(); 
                 currentDocument = id.getId();
                 
                 // we process (index) it
                 processDocument(id, pl);
             }
+            in.close();
             
         } catch (FileNotFoundException ex) {
             System.err.println("ERROR: File " + lexicalIndexName + " does not exist. Exiting");
@@ -33,6 +33,8 @@
 
 package indexation;
 import java.io.*;
+import java.nio.ByteBuffer;
+import base.BinaryIO;
 import base.Lexicon;
 
 /**
@@ -42,6 +44,7 @@ import base.Lexicon;
 public class ClassifiedLexicon extends Lexicon<ClassifiedTerm> {
     
     public void read(BufferedReader in) throws IOException, NumberFormatException {
+        this.clear();
         size = Integer.parseInt(in.readLine());
         
         for (int i=0; i<size; ++i) {
@@ -50,5 +53,38 @@ public class ClassifiedLexicon extends Lexicon<ClassifiedTerm> {
             this.termById.put(t.getId(), t);
             this.termIdByString.put(t.getString(), t.getId());
         }
+        this.freeze();
     } 
+    
+    /** Reads the lexicon of a binary class index (see ClassIndex) */
+    public void read(ByteBuffer in) {
+        this.clear();
+        size = in.getInt();
+        
+        for (int i=0; i<size; ++i) {
+            String s = BinaryIO.getString(in);
+            int totalFreq = in.getInt();
+            int totalDocumentalFreq = in.getInt();
+            int numDocs = in.getInt();
+            ClassifiedTerm t = new ClassifiedTerm(i, s, totalFreq, totalDocumentalFreq, numDocs,
+                    BinaryIO.getIntArray(in), BinaryIO.getIntArray(in), BinaryIO.getIntArray(in));
+            this.termById.put(t.getId(), t);
+            this.termIdByString.put(t.getString(), t.getId());
+        }
+        this.freeze();
+    }
+    
+    /** Writes the lexicon in the format of a binary class index (see ClassIndex) */
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(size);
+        
+        for (int i=0; i<size; ++i) {
+            ClassifiedTerm t = this.getTermById(i);
+            BinaryIO.putString(out, t.getString());
+            out.writeInt(t.getTotalFreq());
+            out.writeInt(t.getTotalDocumentalFreq());
+            out.writeInt(t.getNumDocs());
+            t.writePostings(out);
+        }
+    }
 }
@@ -34,6 +34,7 @@
 package indexation;
 
 import base.*;
+import java.io.*;
 import java.util.*;
 
 /**
@@ -48,10 +49,16 @@ public class ClassifiedTerm extends BaseTerm
     //! total number of appearances of the term summing in the documents
     int totalDocumentalFreq;
     
-    //! pairs of class/frequency
+    //! classes the term appears in (sorted), with its frequency and number of documents
+    //  in each one; only the first "numClasses" positions are used
+    int[] classes, freqs, docs;
+    int numClasses;
+    
+    //! pairs of class/frequency (read-only view of "classes" and "freqs"; each
+    //  entry is allocated when iterated, the classifiers use the arrays)
     public Map<Integer, Integer> occurrence;
     
-    //! pairs of class/number of docs
+    //! pairs of class/number of docs (read-only view of "classes" and "docs")
     public Map<Integer, Integer> numDocsPerClass;
     
     
@@ -61,67 +68,131 @@ public class ClassifiedTerm extends BaseTerm
         totalFreq = 0;
         totalDocumentalFreq = 0;
         myString = s;
-        occurrence = new HashMap<Integer, Integer> ();
-        numDocsPerClass = new HashMap<Integer, Integer> ();
+        classes = new int[2];
+        freqs = new int[2];
+        docs = new int[2];
+        numClasses = 0;
+        occurrence = new PostingsMap(false);
+        numDocsPerClass = new PostingsMap(true);
+    }
+    
+    /** Term with the postings already computed (read from a class index)
+     * @param _classes classes the term appears in, sorted
+     * @param _freqs frequency of the term in each class
+     * @param _docs number of documents of each class the term appears in
+     */
+    ClassifiedTerm(int _id, String s, int _totalFreq, int _totalDocumentalFreq, int _numDocs,
+            int[] _classes, int[] _freqs, int[] _docs) {
+        this(s);
+        id = _id;
+        totalFreq = _totalFreq;
+        totalDocumentalFreq = _totalDocumentalFreq;
+        numDocs = _numDocs;
+        classes = _classes;
+        freqs = _freqs;
+        docs = _docs;
+        numClasses = _classes.length;
     }
     
     /** Returns the number of different classes in which this term appears in */
     public int getNumClasses()
     {
-      return this.occurrence.size();
+      return this.numClasses;
     }
     
+    /** Read-only map from class to frequency. Iterating it allocates an
+     * entry per class, so the loops run for every document iterate
+     * getClasses() and getFreqs() instead */
     public Map<Integer, Integer> getOccurrence()
     {
         return occurrence;
     }
     
+    /** Returns the classes the term appears in, sorted. Only the first
+     * getNumClasses() positions are valid. */
+    public int[] getClasses() {
+        return classes;
+    }
+    
+    /** Frequency of the term on each class of getClasses() */
+    public int[] getFreqs() {
+        return freqs;
+    }
+    
+    /** Number of documents of each class of getClasses() the term appears in */
+    public int[] getDocs() {
+        return docs;
+    }
+    
     @Override
     public String toString() {
-        String s = "";
-        s += id;
-        s += " ";
-        s += myString;
-        s += " ";
-        s += totalFreq;
-        s += " ";
-        s += totalDocumentalFreq;
-        s += " ";
-        s += numDocs;
-        s += " ";
-        for (Map.Entry<Integer, Integer> e : occurrence.entrySet()) {
-            s += e.getKey();
-            s += " ";
-            s += e.getValue();
-            s += " ";
-            s += numDocsPerClass.get(e.getKey());
-            s += " ";
+        StringBuilder s = new StringBuilder();
+        s.append(id).append(' ');
+        s.append(myString).append(' ');
+        s.append(totalFreq).append(' ');
+        s.append(totalDocumentalFreq).append(' ');
+        s.append(numDocs).append(' ');
+        for (int i=0; i<numClasses; ++i)
+            s.append(classes[i]).append(' ').append(freqs[i]).append(' ').append(docs[i]).append(' ');
+        s.append('\n');
+        return s.toString();
+    }
+    
+    /** Writes the classes, frequencies and numbers of documents of the term */
+    void writePostings(DataOutputStream out) throws IOException {
+        for (int[] a : new int[][] {classes, freqs, docs}) {
+            out.writeInt(numClasses);
+            for (int i=0; i<numClasses; ++i)
+                out.writeInt(a[i]);
         }
-        s += "\n";
-        return s;
+    }
+    
+    /** Position of a class in "classes", or -(insertion point)-1 if it is not there */
+    private int find(int myclass) {
+        return Arrays.binarySearch(classes, 0, numClasses, myclass);
     }
     
     public void add(int myclass, int freq) {
-        if (occurrence.containsKey(myclass))
+        int i = find(myclass);
+        if (i >= 0)
         {
-            occurrence.put(myclass, occurrence.get(myclass) + freq);
-            numDocsPerClass.put(myclass, numDocsPerClass.get(myclass) + 1);
+            freqs[i] += freq;
+            ++docs[i];
         } else {
-            occurrence.put(myclass, freq);
-            numDocsPerClass.put(myclass, 1);
+            i = -i - 1;
+            if (numClasses == classes.length) {
+                classes = grow(classes);
+                freqs = grow(freqs);
+                docs = grow(docs);
+            }
+            System.arraycopy(classes, i, classes, i+1, numClasses-i);
+            System.arraycopy(freqs, i, freqs, i+1, numClasses-i);
+            System.arraycopy(docs, i, docs, i+1, numClasses-i);
+            classes[i] = myclass;
+            freqs[i] = freq;
+            docs[i] = 1;
+            ++numClasses;
         }
         totalFreq += freq;
     }
     
+    private static int[] grow(int[] a) {
+        int[] b = new int[2*a.length + 1];
+        System.arraycopy(a, 0, b, 0, a.length);
+        return b;
+    }
+    
     public int getFreqOnClassI(int i) {
-        if  (occurrence.containsKey(i))
-            return occurrence.get(i);
+        int pos = find(i);
+        if  (pos >= 0)
+            return freqs[pos];
         else return 0;
     }
     
     public int getNumDocsPerClass(int i){
-        if (this.numDocsPerClass.containsKey(i))
-            return numDocsPerClass.get(i);
+        int pos = find(i);
+        if (pos >= 0)
+            return docs[pos];
         else return 0;
     }
     
@@ -143,22 +214,37 @@ public class ClassifiedTerm extends BaseTerm
         
         try{
             StringTokenizer st = new StringTokenizer(s);
-            occurrence = new HashMap<Integer, Integer>();
-            numDocsPerClass = new HashMap<Integer, Integer>();
+            numClasses = 0;
             
             id = Integer.parseInt(st.nextToken());
             myString = st.nextToken();
             totalFreq = Integer.parseInt(st.nextToken());
             totalDocumentalFreq = Integer.parseInt(st.nextToken());
             numDocs = Integer.parseInt(st.nextToken());
-            while(st.hasMoreTokens()) 
+            
+            int n = st.countTokens() / 3;
+            long[] triples = new long[n];
+            int[] myfreqs = new int[n], mydocs = new int[n];
+            for (int i=0; i<n; ++i) 
             {
                 int myclass = Integer.parseInt(st.nextToken());
-                int myfreq = Integer.parseInt(st.nextToken());
-                int myNumDocPerClass = Integer.parseInt(st.nextToken());
-                occurrence.put(myclass, myfreq);
-                numDocsPerClass.put(myclass, myNumDocPerClass);
+                myfreqs[i] = Integer.parseInt(st.nextToken());
+                mydocs[i] = Integer.parseInt(st.nextToken());
+                // the classes are not sorted in the file
+                triples[i] = ((long) myclass << 32) | i;
+            }
+            Arrays.sort(triples);
+            
+            classes = new int[n];
+            freqs = new int[n];
+            docs = new int[n];
+            for (int i=0; i<n; ++i) {
+                int j = (int) triples[i];
+                classes[i] = (int) (triples[i] >> 32);
+                freqs[i] = myfreqs[j];
+                docs[i] = mydocs[j];
             }
+            numClasses = n;
             
         } catch (NumberFormatException  nex) {
             System.err.println("Error constructing ClassifiedTerm " + id + "\n. String: " + s + "\n");
@@ -167,4 +253,103 @@ public class ClassifiedTerm extends BaseTerm
             System.err.println("'" + s + "'");
         }
     }
+    
+    /** Read-only map from class to frequency (or number of documents) backed by the
+     * arrays of the term, iterated in increasing order of class */
+    private class PostingsMap extends AbstractMap<Integer, Integer> {
+        private final boolean numberOfDocs;
+        
+        PostingsMap(boolean _numberOfDocs) {
+            numberOfDocs = _numberOfDocs;
+        }
+        
+        private int valueAt(int i) {
+            return numberOfDocs ? docs[i] : freqs[i];
+        }
+        
+        @Override
+        public int size() {
+            return numClasses;
+        }
+        
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof Integer && find((Integer) key) >= 0;
+        }
+        
+        @Override
+        public Integer get(Object key) {
+            if (!(key instanceof Integer))
+                return null;
+            int i = find((Integer) key);
+            return i >= 0 ? valueAt(i) : null;
+        }
+        
+        @Override
+        public Set<Map.Entry<Integer, Integer>> entrySet() {
+            return new AbstractSet<Map.Entry<Integer, Integer>>() {
+                @Override
+                public int size() {
+                    return numClasses;
+                }
+                
+                @Override
+                public Iterator<Map.Entry<Integer, Integer>> iterator() {
+                    return new Iterator<Map.Entry<Integer, Integer>>() {
+                        private int next = 0;
+                        
+                        public boolean hasNext() {
+                            return next < numClasses;
+                        }
+                        
+                        public Map.Entry<Integer, Integer> next() {
+                            if (next >= numClasses)
+                                throw new NoSuchElementException();
+                            int i = next++;
+                            return new Posting(classes[i], valueAt(i));
+                        }
+                        
+                        public void remove() {
+                            throw new UnsupportedOperationException();
+                        }
+                    };
+                }
+            };
+        }
+    }
+    
+    /** Entry returned by PostingsMap */
+    private static class Posting implements Map.Entry<Integer, Integer> {
+        private final Integer key, value;
+        
+        Posting(int _key, int _value) {
+            key = _key;
+            value = _value;
+        }
+        
+        public Integer getKey() {
+            return key;
+        }
+        
+        public Integer getValue() {
+            return value;
+        }
+        
+        public Integer setValue(Integer v) {
+            throw new UnsupportedOperationException();
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+            return key.equals(e.getKey()) && value.equals(e.getValue());
+        }
+        
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ value.hashCode();
+        }
+    }
 }
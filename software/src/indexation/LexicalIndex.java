@@ -0,0 +1,331 @@
+/*
+ *
+ *   ReBayCT: a tool for classification on a Thesaurus
+ *
+ *	For details see:
+ *	 L. M. de Campos, A. E. Romero, Bayesian Network Models for Hierarchical Text
+ *	Classification from a Thesaurus, Int. J. Approx. Reasoning 50(7): 932-944 (2009).
+ *
+ *
+ *   Copyright (C) 2006-2008 Alfonso E. Romero <alfonsoeromero (AT) gmail (DOT) com>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package indexation;
+
+import base.BinaryIO;
+import base.IndexedDocument;
+import base.SparseVector;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Lexical index (the "vectors" file written by Text2Vectors): the processed
+ * lexicon, the number of documents and the vector of each document. It is
+ * read sequentially by ClassIndexer and the supervised classifiers.
+ *
+ * Two formats are supported. The text one has the lexicon (a term per line),
+ * the number of documents and a line per document ("id length n t1 f1 ... tn fn").
+ * The binary one has a header (magic number, version, number of documents,
+ * offset of the lexicon and offset of the table of documents) followed by the
+ * documents, the lexicon and the table with the offset of each document, so
+ * that any document can be read directly (getDocument). Each document is its
+ * id (int) and its number of terms, terms and frequencies as varints, the
+ * terms coded as the difference with the previous one. Documents are read
+ * through a FileChannel into a ByteBuffer, the lexicon and the table are mapped.
+ */
+public class LexicalIndex {
+    /** "RBLI" */
+    public static final int MAGIC = 0x52424C49;
+
+    public static final int VERSION = 1;
+
+    //! magic number, version, number of documents and two offsets
+    private static final int HEADER_SIZE = 28;
+
+    //! processed lexicon
+    private ProcessedLexicon pl;
+
+    //! number of documents
+    private int numDocuments;
+
+    //! next document to be read by next()
+    private int nextDocument;
+
+    //! builder of the vectors of the documents
+    private SparseVector.Builder builder = new SparseVector.Builder();
+
+    //! reader of the documents (text format)
+    private BufferedReader in;
+
+    //! file of the documents (binary format)
+    private RandomAccessFile file;
+
+    //! start of each document, and end of the last one (binary format)
+    private long[] offsets;
+
+    //! documents read from the file, starting at "bufferStart" (binary format)
+    private ByteBuffer buffer;
+    private long bufferStart;
+
+    /** Tells if a file is a binary lexical index (by its magic number)
+     * @param fileName name of the file
+     */
+    public static boolean isBinary(String fileName) {
+        try {
+            DataInputStream in = new DataInputStream(new FileInputStream(fileName));
+            try {
+                return in.readInt() == MAGIC;
+            } finally {
+                in.close();
+            }
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    /** Opens a lexical index (text or binary) and reads its lexicon
+     * @param fileName name of the file
+     * @throws IOException if it could not be read
+     * @throws NumberFormatException if a text index is malformed
+     */
+    public LexicalIndex(String fileName) throws IOException {
+        pl = new ProcessedLexicon();
+        nextDocument = 0;
+
+        if (!isBinary(fileName)) {
+            in = new BufferedReader(new FileReader(fileName));
+            pl.read(in);
+            numDocuments = Integer.parseInt(in.readLine());
+            return;
+        }
+
+        file = new RandomAccessFile(fileName, "r");
+        FileChannel channel = file.getChannel();
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+        header.getInt(); // magic number
+        int version = header.getInt();
+        if (version != VERSION)
+            throw new IOException("unsupported version " + version + " of binary lexical index " + fileName);
+        numDocuments = header.getInt();
+        long lexiconOffset = header.getLong();
+        long tableOffset = header.getLong();
+
+        pl.read(channel.map(FileChannel.MapMode.READ_ONLY, lexiconOffset, tableOffset - lexiconOffset));
+
+        offsets = new long[numDocuments + 1];
+        channel.map(FileChannel.MapMode.READ_ONLY, tableOffset, 8L * numDocuments).asLongBuffer().get(offsets, 0, numDocuments);
+        offsets[numDocuments] = lexiconOffset;
+
+        buffer = ByteBuffer.allocateDirect(1 << 20);
+        buffer.limit(0);
+        bufferStart = HEADER_SIZE;
+    }
+
+    public ProcessedLexicon getLexicon() {
+        return pl;
+    }
+
+    public int getNumDocuments() {
+        return numDocuments;
+    }
+
+    public boolean hasNext() {
+        return nextDocument < numDocuments;
+    }
+
+    /** Reads the next document */
+    public IndexedDocument next() throws IOException {
+        if (in != null) {
+            ++nextDocument;
+            return new IndexedDocument(in.readLine(), builder);
+        }
+        return getDocument(nextDocument++);
+    }
+
+    /** Reads the i-th document (0 is the first one) of a binary index */
+    public IndexedDocument getDocument(int i) throws IOException {
+        if (file == null)
+            throw new IOException("documents of a text lexical index can only be read in order");
+
+        long start = offsets[i];
+        int length = (int) (offsets[i+1] - start);
+        if (start < bufferStart || start + length > bufferStart + buffer.limit())
+            fill(start, length);
+        buffer.position((int) (start - bufferStart));
+
+        int id = buffer.getInt();
+        int n = BinaryIO.getVarInt(buffer);
+        int term = 0;
+        for (int k=0; k<n; ++k) {
+            term += BinaryIO.getVarInt(buffer);
+            builder.add(term, BinaryIO.getVarInt(buffer));
+        }
+        return new IndexedDocument(builder.build(), null, id);
+    }
+
+    /** Reads the file from "start" on, at least "length" bytes */
+    private void fill(long start, int length) throws IOException {
+        if (buffer.capacity() < length)
+            buffer = ByteBuffer.allocateDirect(length);
+        buffer.clear();
+        FileChannel channel = file.getChannel();
+        while (buffer.position() < length)
+            if (channel.read(buffer, start + buffer.position()) < 0)
+                throw new EOFException("binary lexical index is truncated");
+        buffer.flip();
+        bufferStart = start;
+    }
+
+    public void close() throws IOException {
+        if (in != null)
+            in.close();
+        if (file != null)
+            file.close();
+    }
+
+    /**
+     * Writes a lexical index: the documents are added in order, and the
+     * lexicon (which is complete only when all of them have been processed)
+     * is given at the end.
+     */
+    public static abstract class Writer {
+        //! number of documents written
+        protected int numDocuments = 0;
+
+        /** Creates the writer of a lexical index
+         * @param fileName name of the index
+         * @param binary true to use the binary format, false for the text one
+         */
+        public static Writer create(String fileName, boolean binary) throws IOException {
+            if (binary)
+                return new BinaryWriter(fileName);
+            return new TextWriter(fileName);
+        }
+
+        public abstract void add(IndexedDocument d) throws IOException;
+
+        /** Writes the lexicon and closes the index */
+        public abstract void close(ProcessedLexicon lex) throws IOException;
+    }
+
+    /** In the text format the lexicon goes first, so the documents are kept
+     * in a temporal file until it is known
+     */
+    private static class TextWriter extends Writer {
+        String fileName;
+        File tempFile;
+        BufferedWriter temp;
+
+        TextWriter(String fileName) throws IOException {
+            this.fileName = fileName;
+            tempFile = File.createTempFile(fileName, "temp");
+            // Delete temp file when program exits
+            tempFile.deleteOnExit();
+            temp = new BufferedWriter(new FileWriter(tempFile));
+        }
+
+        public void add(IndexedDocument d) throws IOException {
+            temp.write(d.toString());
+            ++numDocuments;
+        }
+
+        public void close(ProcessedLexicon lex) throws IOException {
+            temp.close();
+
+            BufferedWriter out = new BufferedWriter(new FileWriter(fileName));
+            BufferedReader in = new BufferedReader(new FileReader(tempFile));
+
+            // 1st.- The lexicon
+            lex.write(out);
+
+            // 2nd.- The number of documents
+            out.write(numDocuments + "\n");
+
+            // 3rd.- The documents themselves
+            while (in.ready())
+                out.write( in.readLine() + "\n");
+
+            in.close();
+            out.close();
+            tempFile.delete();
+        }
+    }
+
+    private static class BinaryWriter extends Writer {
+        String fileName;
+        DataOutputStream out;
+
+        //! bytes written so far
+        long position;
+
+        //! start of each document
+        long[] offsets = new long[1024];
+
+        BinaryWriter(String fileName) throws IOException {
+            this.fileName = fileName;
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName), 1 << 16));
+            // the header is written when the offsets are known
+            out.write(new byte[HEADER_SIZE]);
+            position = HEADER_SIZE;
+        }
+
+        public void add(IndexedDocument d) throws IOException {
+            if (numDocuments == offsets.length) {
+                long[] o = new long[offsets.length * 2];
+                System.arraycopy(offsets, 0, o, 0, numDocuments);
+                offsets = o;
+            }
+            offsets[numDocuments++] = position;
+
+            SparseVector v = d.getVector();
+            out.writeInt(d.getId());
+            position += 4 + BinaryIO.putVarInt(out, v.size());
+            int previous = 0;
+            for (int k=0; k<v.size(); ++k) {
+                position += BinaryIO.putVarInt(out, v.getTerm(k) - previous);
+                position += BinaryIO.putVarInt(out, v.getFreq(k));
+                previous = v.getTerm(k);
+            }
+        }
+
+        public void close(ProcessedLexicon lex) throws IOException {
+            long lexiconOffset = position;
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream lexicon = new DataOutputStream(bytes);
+            lex.write(lexicon);
+            lexicon.close();
+            bytes.writeTo(out);
+            long tableOffset = lexiconOffset + bytes.size();
+
+            for (int i=0; i<numDocuments; ++i)
+                out.writeLong(offsets[i]);
+            out.close();
+
+            RandomAccessFile raf = new RandomAccessFile(fileName, "rw");
+            try {
+                raf.writeInt(MAGIC);
+                raf.writeInt(VERSION);
+                raf.writeInt(numDocuments);
+                raf.writeLong(lexiconOffset);
+                raf.writeLong(tableOffset);
+            } finally {
+                raf.close();
+            }
+        }
+    }
+}
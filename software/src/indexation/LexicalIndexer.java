@@ -34,11 +34,13 @@
 package indexation;
 
 import base.IndexedDocument;
+import base.SparseVector;
 import base.StringIndexer;
 import base.Lexicon;
 import document.*;
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  *
@@ -48,6 +50,9 @@ public class LexicalIndexer {
     
     int numdocs;
     
+    //! number of documents of each thread read at once in the parallel mode
+    private static final int DOCUMENTS_PER_THREAD = 256;
+    
    /** Lexicon */ 
     protected static ProcessedLexicon lex = new ProcessedLexicon();
     
@@ -61,62 +66,31 @@ public class LexicalIndexer {
         numdocs = 0;
     }
     
-    private void writeIndex(String indexName, File tempFileName, Lexicon<ProcessedTerm> lex) 
-    {
-        FileWriter fp = null;
-        
-        try {
-            fp = new FileWriter(indexName);
-        } catch (FileNotFoundException ex){
-            System.err.println("ERROR. File " + tempFileName + " not found. Exiting. " + ex);
-            System.exit(-1);
-        } catch (IOException ex){
-            System.err.println("ERROR. File " + tempFileName + " not writable. Exiting. " + ex);
-            System.exit(-1);
-        }
-        
-        BufferedWriter out = new BufferedWriter(fp);
-        
-        try{
-            BufferedReader in = new BufferedReader(new FileReader(tempFileName));
-            
-            // 1st.- The lexicon
-            lex.write(out);
-            
-            // 2nd.- The number of documents
-            out.write(numdocs + "\n");
-            
-            // 3rd.- The documents themselves
-            while (in.ready())
-                out.write( in.readLine() + "\n");
-            
-            out.close();
-            
-        }  catch (IOException ex){
-            System.out.println("File " + indexName + " could not be written. Media error. " + ex);
-            System.exit(0);
-        }
-        
+    public void makeIndex(String indexName, boolean stemming, String stopwordsFileName) {
+        this.makeIndex(indexName, stemming, stopwordsFileName, 1, false);
     }
     
-    
-    public void makeIndex(String indexName, boolean stemming, String stopwordsFileName) {
+    /** Indexes the collection and writes the index
+     * @param indexName name of the index
+     * @param stemming tells if we are doing stemming
+     * @param stopwordsFileName name of the stopwords file
+     * @param numThreads number of threads which tokenize the documents (the
+     *        index is the same whatever their number is)
+     * @param binary true to write the index in the binary format of LexicalIndex
+     */
+    public void makeIndex(String indexName, boolean stemming, String stopwordsFileName, int numThreads, boolean binary) {
         StringIndexer.setIndexing(true);
         StringIndexer.setStem(stemming);
         StringIndexer.setStopwordList(stopwordsFileName);
         
-        FileWriter fp = null;
-        File tempFile = null;
+        LexicalIndex.Writer out = null;
         
         // ------------------------------------------------------------------------
-        // 1.- We prepare a temporal file to write the document vectors
+        // 1.- We prepare the writer of the document vectors
         // ------------------------------------------------------------------------
         
         try {
-            tempFile = File.createTempFile(indexName, "temp");
-            // Delete temp file when program exits
-            tempFile.deleteOnExit();
-            fp = new FileWriter(tempFile);
+            out = LexicalIndex.Writer.create(indexName, binary);
             
         } catch (FileNotFoundException ex){
             System.err.println("ERROR. File " + indexName + " not found. Exiting. " + ex);
@@ -126,53 +100,164 @@ public class LexicalIndexer {
             System.exit(-1);
         }
         
-        BufferedWriter out = new BufferedWriter(fp); // temporal file
-        
         // ------------------------------------------------------------------------
         // 2.- We process the document collection
         // ------------------------------------------------------------------------
         
-        LexicalStringIndexer si = new LexicalStringIndexer();
-        si.setLexicon(lex);
+        if (numThreads > 1)
+            this.processInParallel(out, indexName, numThreads);
+        else {
+            LexicalStringIndexer si = new LexicalStringIndexer();
+            si.setLexicon(lex);
         
-        try{
-            int size_collection = col.getSize();
+            try{
+                int size_collection = col.getSize();
             
-            for (int i=0; i<size_collection; ++i)
-            {
-              Document d = col.getNextDocument();
+                for (int i=0; i<size_collection; ++i)
+                {
+                  Document d = col.getNextDocument();
               
-              ++numdocs;
+                  ++numdocs;
               
-              si.clear();
+                  si.clear();
               
-              while (d.hasMoreLines())
-                si.add(d.getLine());
+                  while (d.hasMoreLines())
+                    si.add(d.getLine());
               
-              HashMap<Integer, Integer> mp = (HashMap<Integer, Integer>) si.getFreq();
+                  SparseVector mp = si.getVector();
               
-              for (int _t : mp.keySet())
-              {
-                ProcessedTerm t = new ProcessedTerm();
-                t = lex.getTermById(_t);
-                t.incNumDocs();              
-              }
+                  for (int k=0; k<mp.size(); ++k)
+                    lex.getTermById(mp.getTerm(k)).incNumDocs();
               
-              IndexedDocument id = new IndexedDocument( mp, d.getDocumentName(), d.getId() );
+                  IndexedDocument id = new IndexedDocument( mp, d.getDocumentName(), d.getId() );
               
-              out.write(id.toString());
+                  out.add(id);
+                }
+            
+            }  catch (IOException ex){
+                System.out.println("File " + indexName + " could not be written. Media error. " + ex);
+                System.exit(0);
             }
+        
+        }
+        
+        System.err.println("End of lexical processing, writing indexes");
+        // Finally, we write the index
+        try{
+            out.close(lex);
+        }  catch (IOException ex){
+            System.out.println("File " + indexName + " could not be written. Media error. " + ex);
+            System.exit(0);
+        }
+    }
+    
+    /** A document read from the collection, to be tokenized by a worker */
+    private static class PendingDocument {
+        String name;
+        int id;
+        List<String> lines = new ArrayList<String>();
+        
+        //! frequencies of the terms of the document, in order of first occurrence
+        LinkedHashMap<String, Integer> counts;
+        
+        PendingDocument(Document d) {
+            name = d.getDocumentName();
+            id = d.getId();
+            while (d.hasMoreLines())
+                lines.add(d.getLine());
+        }
+        
+        void tokenize(LexicalStringIndexer si) {
+            counts = new LinkedHashMap<String, Integer>();
+            for (String line : lines)
+                for (String term : si.getTerms(line)) {
+                    Integer f = counts.get(term);
+                    counts.put(term, (f == null) ? 1 : f + 1);
+                }
+            lines = null;
+        }
+    }
+    
+    /** Processes the collection with several threads. The documents are read
+     * here in blocks, tokenized and stemmed by the workers (each one with its
+     * own stemmer), and their terms are added to the lexicon in the order of
+     * the documents, so the term ids and the vectors are the same as in the
+     * sequential processing.
+     */
+    private void processInParallel(LexicalIndex.Writer out, String indexName, int numThreads) {
+        ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+        final LexicalStringIndexer[] indexers = new LexicalStringIndexer[numThreads];
+        for (int i=0; i<numThreads; ++i) {
+            indexers[i] = new LexicalStringIndexer();
+            indexers[i].useOwnStemmer();
+        }
+        
+        SparseVector.Builder builder = new SparseVector.Builder();
+        
+        try{
+            int size_collection = col.getSize();
+            int blockSize = numThreads * DOCUMENTS_PER_THREAD;
+            final List<PendingDocument> block = new ArrayList<PendingDocument>(blockSize);
             
-            out.close();
+            for (int first=0; first<size_collection; first+=blockSize)
+            {
+              block.clear();
+              for (int i=first; i<size_collection && i<first+blockSize; ++i)
+                block.add(new PendingDocument(col.getNextDocument()));
+              
+              // worker w tokenizes the documents w, w+numThreads, w+2*numThreads...
+              List<Future<Void>> results = new ArrayList<Future<Void>>();
+              for (int w=0; w<numThreads && w<block.size(); ++w)
+              {
+                final int worker = w;
+                results.add(pool.submit(new Callable<Void>() {
+                  public Void call() {
+                    for (int i=worker; i<block.size(); i+=indexers.length)
+                      block.get(i).tokenize(indexers[worker]);
+                    return null;
+                  }
+                }));
+              }
+              for (Future<Void> f : results)
+                f.get();
+              
+              for (int i=0; i<block.size(); ++i)
+              {
+                PendingDocument pd = block.get(i);
+                ++numdocs;
+                
+                for (Map.Entry<String, Integer> e : pd.counts.entrySet())
+                {
+                  int _t = lex.getTermIdByString(e.getKey());
+                  if (_t == -1)
+                  {
+                    ProcessedTerm t = new ProcessedTerm(e.getKey());
+                    _t = lex.size();
+                    t.setId(_t);
+                    lex.add(t);
+                  }
+                  builder.add(_t, e.getValue());
+                  lex.getTermById(_t).incNumDocs();
+                }
+                
+                IndexedDocument id = new IndexedDocument( builder.build(), pd.name, pd.id );
+                
+                out.add(id);
+              }
+            }
             
         }  catch (IOException ex){
             System.out.println("File " + indexName + " could not be written. Media error. " + ex);
             System.exit(0);
+        }  catch (InterruptedException ex){
+            System.err.println("ERROR. Indexing interrupted. Exiting. " + ex);
+            System.exit(-1);
+        }  catch (ExecutionException ex){
+            System.err.println("ERROR. Indexing failed. Exiting. " + ex.getCause());
+            System.exit(-1);
+        } finally {
+            pool.shutdown();
         }
-        
-        System.err.println("End of lexical processing, writing indexes");
-        // Finally, we write the index
-        this.writeIndex(indexName, tempFile, lex);
     }
 }
 
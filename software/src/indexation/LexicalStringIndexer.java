@@ -51,7 +51,7 @@ public class LexicalStringIndexer extends StringIndexer<ProcessedTerm, Processed
         id = l.size();
         t.setId(id);
         l.add(t);
-        this.freq.put(id, 1);
+        this.freq.add(id);
     }
 }
  
@@ -33,8 +33,10 @@
 
 package indexation;
 
+import base.BinaryIO;
 import base.Lexicon;
 import java.io.*;
+import java.nio.ByteBuffer;
 
 /**
  *
@@ -44,6 +46,7 @@ public class ProcessedLexicon extends Lexicon<ProcessedTerm> {
 
     
     public void read(BufferedReader in) throws IOException, NumberFormatException {
+        this.clear();
         size = Integer.parseInt(in.readLine());
         
         for (int i=0; i<size; ++i) {
@@ -52,6 +55,30 @@ public class ProcessedLexicon extends Lexicon<ProcessedTerm> {
             this.termById.put(t.getId(), t);
             this.termIdByString.put(t.getString(), t.getId());
         }
+        this.freeze();
+    }
+    
+    public void read(ByteBuffer in) {
+        this.clear();
+        size = in.getInt();
+        
+        for (int i=0; i<size; ++i) {
+            int numDocs = in.getInt();
+            ProcessedTerm t = new ProcessedTerm(i, BinaryIO.getString(in), numDocs);
+            this.termById.put(t.getId(), t);
+            this.termIdByString.put(t.getString(), t.getId());
+        }
+        this.freeze();
+    }
+    
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(size);
+        
+        for (int i=0; i<size; ++i) {
+            ProcessedTerm t = this.getTermById(i);
+            out.writeInt(t.getNumDocs());
+            BinaryIO.putString(out, t.getString());
+        }
     }
      
 }
@@ -46,6 +46,11 @@ public class ProcessedTerm extends BaseTerm {
     
     public ProcessedTerm(String s) { myString = s; }
     
+    ProcessedTerm(int id, String s, int numDocs) {
+        super(id, s);
+        this.numDocs = numDocs;
+    }
+    
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder("" + id);
@@ -2,23 +2,62 @@
 package org.tartarus.snowball;
 import java.lang.reflect.InvocationTargetException;
 
+/**
+ * Base of the snowball stemmers. The word is kept in a char[] which is reused
+ * between words (it only grows), so stemming does not allocate: the word can
+ * be set from a char[] (setCurrent(char[], int, int)) and the stem read from
+ * getCurrentBuffer() or copied into a char[] or a StringBuilder given by the
+ * caller. getCurrent() still returns a new String.
+ */
 abstract public class SnowballProgram {
     protected SnowballProgram()
     {
-	current = new StringBuffer();
+	current = new char[8];
 	setCurrent("");
     }
 
     abstract public boolean stem();
-    
+
+    private static final Object[] NO_ARGUMENTS = new Object[0];
+
     /**
      * Set the current string.
      */
     public void setCurrent(String value)
     {
-	current.replace(0, current.length(), value);
+	int n = value.length();
+	reset(n);
+	value.getChars(0, n, current, 0);
+    }
+
+    /**
+     * Set the current string from a text (it is copied).
+     */
+    public void setCurrent(CharSequence value)
+    {
+	int n = value.length();
+	reset(n);
+	for (int i = 0; i < n; i++)
+	    current[i] = value.charAt(i);
+    }
+
+    /**
+     * Set the current string from the chars offset..offset+length-1 of an
+     * array (they are copied).
+     */
+    public void setCurrent(char[] text, int offset, int length)
+    {
+	reset(length);
+	System.arraycopy(text, offset, current, 0, length);
+    }
+
+    private void reset(int n)
+    {
+	if (current.length < n)
+	    current = new char[Math.max(n, 2 * current.length)];
+	currentLength = n;
 	cursor = 0;
-	limit = current.length();
+	limit = n;
 	limit_backward = 0;
 	bra = cursor;
 	ket = limit;
@@ -29,19 +68,44 @@ abstract public class SnowballProgram {
      */
     public String getCurrent()
     {
-        String result = current.toString();
-        // Make a new StringBuffer.  If we reuse the old one, and a user of
-        // the library keeps a reference to the buffer returned (for example,
-        // by converting it to a String in a way which doesn't force a copy),
-        // the buffer size will not decrease, and we will risk wasting a large
-        // amount of memory.
-        // Thanks to Wolfram Esser for spotting this problem.
-        current = new StringBuffer();
-        return result;
+	return new String(current, 0, currentLength);
+    }
+
+    /**
+     * Copy the current string into an array, which must have room for it.
+     * @return the length of the current string
+     */
+    public int getCurrent(char[] sink, int offset)
+    {
+	System.arraycopy(current, 0, sink, offset, currentLength);
+	return currentLength;
     }
 
-    // current string
-    protected StringBuffer current;
+    /**
+     * Append the current string to a StringBuilder.
+     */
+    public StringBuilder getCurrent(StringBuilder sink)
+    {
+	return sink.append(current, 0, currentLength);
+    }
+
+    /**
+     * Working buffer with the current string (its first
+     * getCurrentBufferLength() chars). It is overwritten by the next word.
+     */
+    public char[] getCurrentBuffer()
+    {
+	return current;
+    }
+
+    public int getCurrentBufferLength()
+    {
+	return currentLength;
+    }
+
+    // current string (first currentLength chars)
+    protected char[] current;
+    protected int currentLength;
 
     protected int cursor;
     protected int limit;
@@ -52,6 +116,7 @@ abstract public class SnowballProgram {
     protected void copy_from(SnowballProgram other)
     {
 	current          = other.current;
+	currentLength    = other.currentLength;
 	cursor           = other.cursor;
 	limit            = other.limit;
 	limit_backward   = other.limit_backward;
@@ -62,7 +127,7 @@ abstract public class SnowballProgram {
     protected boolean in_grouping(char [] s, int min, int max)
     {
 	if (cursor >= limit) return false;
-	char ch = current.charAt(cursor);
+	char ch = current[cursor];
 	if (ch > max || ch < min) return false;
 	ch -= min;
 	if ((s[ch >> 3] & (0X1 << (ch & 0X7))) == 0) return false;
@@ -73,7 +138,7 @@ abstract public class SnowballProgram {
     protected boolean in_grouping_b(char [] s, int min, int max)
     {
 	if (cursor <= limit_backward) return false;
-	char ch = current.charAt(cursor - 1);
+	char ch = current[cursor - 1];
 	if (ch > max || ch < min) return false;
 	ch -= min;
 	if ((s[ch >> 3] & (0X1 << (ch & 0X7))) == 0) return false;
@@ -84,7 +149,7 @@ abstract public class SnowballProgram {
     protected boolean out_grouping(char [] s, int min, int max)
     {
 	if (cursor >= limit) return false;
-	char ch = current.charAt(cursor);
+	char ch = current[cursor];
 	if (ch > max || ch < min) {
 	    cursor++;
 	    return true;
@@ -100,7 +165,7 @@ abstract public class SnowballProgram {
     protected boolean out_grouping_b(char [] s, int min, int max)
     {
 	if (cursor <= limit_backward) return false;
-	char ch = current.charAt(cursor - 1);
+	char ch = current[cursor - 1];
 	if (ch > max || ch < min) {
 	    cursor--;
 	    return true;
@@ -116,7 +181,7 @@ abstract public class SnowballProgram {
     protected boolean in_range(int min, int max)
     {
 	if (cursor >= limit) return false;
-	char ch = current.charAt(cursor);
+	char ch = current[cursor];
 	if (ch > max || ch < min) return false;
 	cursor++;
 	return true;
@@ -125,7 +190,7 @@ abstract public class SnowballProgram {
     protected boolean in_range_b(int min, int max)
     {
 	if (cursor <= limit_backward) return false;
-	char ch = current.charAt(cursor - 1);
+	char ch = current[cursor - 1];
 	if (ch > max || ch < min) return false;
 	cursor--;
 	return true;
@@ -134,7 +199,7 @@ abstract public class SnowballProgram {
     protected boolean out_range(int min, int max)
     {
 	if (cursor >= limit) return false;
-	char ch = current.charAt(cursor);
+	char ch = current[cursor];
 	if (!(ch > max || ch < min)) return false;
 	cursor++;
 	return true;
@@ -143,41 +208,41 @@ abstract public class SnowballProgram {
     protected boolean out_range_b(int min, int max)
     {
 	if (cursor <= limit_backward) return false;
-	char ch = current.charAt(cursor - 1);
+	char ch = current[cursor - 1];
 	if(!(ch > max || ch < min)) return false;
 	cursor--;
 	return true;
     }
 
-    protected boolean eq_s(int s_size, String s)
+    protected boolean eq_s(int s_size, CharSequence s)
     {
 	if (limit - cursor < s_size) return false;
 	int i;
 	for (i = 0; i != s_size; i++) {
-	    if (current.charAt(cursor + i) != s.charAt(i)) return false;
+	    if (current[cursor + i] != s.charAt(i)) return false;
 	}
 	cursor += s_size;
 	return true;
     }
 
-    protected boolean eq_s_b(int s_size, String s)
+    protected boolean eq_s_b(int s_size, CharSequence s)
     {
 	if (cursor - limit_backward < s_size) return false;
 	int i;
 	for (i = 0; i != s_size; i++) {
-	    if (current.charAt(cursor - s_size + i) != s.charAt(i)) return false;
+	    if (current[cursor - s_size + i] != s.charAt(i)) return false;
 	}
 	cursor -= s_size;
 	return true;
     }
 
-    protected boolean eq_v(StringBuffer s)
+    protected boolean eq_v(CharSequence s)
     {
-	return eq_s(s.length(), s.toString());
+	return eq_s(s.length(), s);
     }
 
-    protected boolean eq_v_b(StringBuffer s)
-    {   return eq_s_b(s.length(), s.toString());
+    protected boolean eq_v_b(CharSequence s)
+    {   return eq_s_b(s.length(), s);
     }
 
     protected int find_among(Among v[], int v_size)
@@ -204,7 +269,7 @@ abstract public class SnowballProgram {
 		    diff = -1;
 		    break;
 		}
-		diff = current.charAt(c + common) - w.s.charAt(i2);
+		diff = current[c + common] - w.s.charAt(i2);
 		if (diff != 0) break;
 		common++;
 	    }
@@ -232,18 +297,7 @@ abstract public class SnowballProgram {
 	    if (common_i >= w.s_size) {
 		cursor = c + w.s_size;
 		if (w.method == null) return w.result;
-		boolean res;
-		try {
-		    Object resobj = w.method.invoke(w.methodobject,
-						    new Object[0]);
-		    res = resobj.toString().equals("true");
-		} catch (InvocationTargetException e) {
-		    res = false;
-		    // FIXME - debug message
-		} catch (IllegalAccessException e) {
-		    res = false;
-		    // FIXME - debug message
-		}
+		boolean res = invoke(w);
 		cursor = c + w.s_size;
 		if (res) return w.result;
 	    }
@@ -277,7 +331,7 @@ abstract public class SnowballProgram {
 		    diff = -1;
 		    break;
 		}
-		diff = current.charAt(c - 1 - common) - w.s.charAt(i2);
+		diff = current[c - 1 - common] - w.s.charAt(i2);
 		if (diff != 0) break;
 		common++;
 	    }
@@ -300,19 +354,7 @@ abstract public class SnowballProgram {
 	    if (common_i >= w.s_size) {
 		cursor = c - w.s_size;
 		if (w.method == null) return w.result;
-
-		boolean res;
-		try {
-		    Object resobj = w.method.invoke(w.methodobject,
-						    new Object[0]);
-		    res = resobj.toString().equals("true");
-		} catch (InvocationTargetException e) {
-		    res = false;
-		    // FIXME - debug message
-		} catch (IllegalAccessException e) {
-		    res = false;
-		    // FIXME - debug message
-		}
+		boolean res = invoke(w);
 		cursor = c - w.s_size;
 		if (res) return w.result;
 	    }
@@ -321,13 +363,39 @@ abstract public class SnowballProgram {
 	}
     }
 
+    /* calls the routine of an among (a method without arguments returning boolean) */
+    private static boolean invoke(Among w)
+    {
+	try {
+	    Object resobj = w.method.invoke(w.methodobject, NO_ARGUMENTS);
+	    return ((Boolean) resobj).booleanValue();
+	} catch (InvocationTargetException e) {
+	    return false;
+	    // FIXME - debug message
+	} catch (IllegalAccessException e) {
+	    return false;
+	    // FIXME - debug message
+	}
+    }
+
     /* to replace chars between c_bra and c_ket in current by the
      * chars in s.
      */
-    protected int replace_s(int c_bra, int c_ket, String s)
+    protected int replace_s(int c_bra, int c_ket, CharSequence s)
     {
-	int adjustment = s.length() - (c_ket - c_bra);
-	current.replace(c_bra, c_ket, s);
+	int n = s.length();
+	int adjustment = n - (c_ket - c_bra);
+	int newLength = currentLength + adjustment;
+	if (newLength > current.length) {
+	    char[] bigger = new char[Math.max(newLength, 2 * current.length)];
+	    System.arraycopy(current, 0, bigger, 0, currentLength);
+	    current = bigger;
+	}
+	if (adjustment != 0)
+	    System.arraycopy(current, c_ket, current, c_bra + n, currentLength - c_ket);
+	for (int i = 0; i < n; i++)
+	    current[c_bra + i] = s.charAt(i);
+	currentLength = newLength;
 	limit += adjustment;
 	if (cursor >= c_ket) cursor += adjustment;
 	else if (cursor > c_bra) cursor = c_bra;
@@ -339,7 +407,7 @@ abstract public class SnowballProgram {
 	if (bra < 0 ||
 	    bra > ket ||
 	    ket > limit ||
-	    limit > current.length())   // this line could be removed
+	    limit > currentLength)   // this line could be removed
 	{
 	    System.err.println("faulty slice operation");
 	// FIXME: report error somehow.
@@ -351,46 +419,37 @@ abstract public class SnowballProgram {
 	}
     }
 
-    protected void slice_from(String s)
+    protected void slice_from(CharSequence s)
     {
 	slice_check();
 	replace_s(bra, ket, s);
     }
 
-    protected void slice_from(StringBuffer s)
-    {
-        slice_from(s.toString());
-    }
-
     protected void slice_del()
     {
 	slice_from("");
     }
 
-    protected void insert(int c_bra, int c_ket, String s)
+    protected void insert(int c_bra, int c_ket, CharSequence s)
     {
 	int adjustment = replace_s(c_bra, c_ket, s);
 	if (c_bra <= bra) bra += adjustment;
 	if (c_bra <= ket) ket += adjustment;
     }
 
-    protected void insert(int c_bra, int c_ket, StringBuffer s)
-    {
-	insert(c_bra, c_ket, s.toString());
-    }
-
-    /* Copy the slice into the supplied StringBuffer */
-    protected StringBuffer slice_to(StringBuffer s)
+    /* Copy the slice into the supplied StringBuilder */
+    protected StringBuilder slice_to(StringBuilder s)
     {
 	slice_check();
-	//int len = ket - bra;
-	s.replace(0, s.length(), current.substring(bra, ket));
+	s.setLength(0);
+	s.append(current, bra, ket - bra);
 	return s;
     }
 
-    protected StringBuffer assign_to(StringBuffer s)
+    protected StringBuilder assign_to(StringBuilder s)
     {
-	s.replace(0, s.length(), current.substring(0, limit));
+	s.setLength(0);
+	s.append(current, 0, limit);
 	return s;
     }
 };
@@ -31,6 +31,7 @@
  */
 
 package programs;
+import base.Metrics;
 import java.io.*;
 import indexation.*;
 import java.util.*;
@@ -53,6 +54,15 @@ public class BNaiveBayes {
     //! name of the file with apriori probabilities (obtained with an unsupervised classifier)
     String aprioriFileName;
     
+    //! number of classes written for each document (0 means all of them)
+    int topK = 0;
+    
+    //! classes with a lower score are not written
+    double minScore = Double.NEGATIVE_INFINITY;
+    
+    //! are we measuring the stages of the classification?
+    boolean metrics = false;
+    
     /** Creates a new instance of MNaiveBayes */
     public BNaiveBayes() {
     }
@@ -62,12 +72,15 @@ public class BNaiveBayes {
         System.err.println(" -vectors=NAME : name of the file with indexed documents");
         System.err.println(" -classindex=NAME : name of the file with indexed classes");
         System.err.println(" -output=FILENAME : name of the file with the categorization results");
+        System.err.println(" -topK=N : number of classes written for each document, all if 0 (OPTIONAL PARAMETER)");
+        System.err.println(" -minScore=X : classes with a lower score are not written (OPTIONAL PARAMETER)");
         System.err.println(" -apriori=FILENAME : name of the file with apriori results (OPTIONAL PARAMETER)");
+        System.err.println(" -metrics=(yes|no) : writes the latency of each stage of the classification at the end (OPTIONAL PARAMETER)");
         System.exit(-1);
     }
     
     public void processArguments(String args[]) {
-        if (args.length < 3 || args.length > 4) this.usage();
+        if (args.length < 3 || args.length > 7) this.usage();
         boolean usedArgs[] = new boolean[3];
         for (int i=0; i<usedArgs.length; ++i) usedArgs[i] = false;
         
@@ -106,6 +119,22 @@ public class BNaiveBayes {
                     System.err.println("ERROR: classified file " + aprioriFileName+ " does not exist. Exiting.");
                     System.exit(-1);
                 }
+            } else if (arg.trim().startsWith("-topK=")) {
+                try {
+                    topK = Integer.parseInt(arg.trim().substring(6).trim());
+                } catch (NumberFormatException ex) {
+                    System.err.println("ERROR: -topK must be an integer. Exiting.");
+                    System.exit(-1);
+                }
+            } else if (arg.trim().startsWith("-minScore=")) {
+                try {
+                    minScore = Double.parseDouble(arg.trim().substring(10).trim());
+                } catch (NumberFormatException ex) {
+                    System.err.println("ERROR: -minScore must be a number. Exiting.");
+                    System.exit(-1);
+                }
+            } else if (arg.trim().startsWith("-metrics=")) {
+                metrics = ("yes".compareTo(arg.trim().substring(9).trim()) == 0);
             } else {
                 System.err.println("Unrecognized argument " + arg);
                 this.usage();
@@ -137,21 +166,19 @@ public class BNaiveBayes {
         
         // we read the collection and the lexicon
         try {
-            BufferedReader in = new BufferedReader(new FileReader(mn.vectorsFileName));
+            LexicalIndex in = new LexicalIndex(mn.vectorsFileName);
             BufferedWriter out = new BufferedWriter(new FileWriter(mn.outputFileName));
             
-            ProcessedLexicon pl = new ProcessedLexicon();
-            pl.read(in);
-            
+            ProcessedLexicon pl = in.getLexicon();
             
-            in.readLine(); // we discard the number of documents...
             
             naive.setProcessedLexicon(pl);
+            Metrics.enable(mn.metrics);
             
-            while (in.ready()) {
-                base.IndexedDocument id = new base.IndexedDocument(in.readLine());
+            while (in.hasNext()) {
+                base.IndexedDocument id = in.next();
                 
-                HashMap<Integer, Double> list = naive.classifyDocument(id.getMap(), id.getId());
+                HashMap<Integer, Double> list = naive.classifyDocument(id.getVector(), id.getId());
                 
                 //StringBuffer sb = new StringBuffer(id.getId() + " ");
                 StringBuilder sb = new StringBuilder("");
@@ -164,16 +191,11 @@ public class BNaiveBayes {
                  */
                 
                 
-                // Get a list of the entries in the map
-                List<Map.Entry<Integer, Double>> lst = new ArrayList<Map.Entry<Integer, Double>>(list.entrySet());
-                
-                // Sort the list using an annonymous inner class implementing Comparator for the compare method
-                java.util.Collections.sort(lst, new Comparator<Map.Entry<Integer, Double>>(){
-                    public int compare(Map.Entry<Integer, Double> entry, Map.Entry<Integer, Double> entry1) {
-                        // Return 0 for a match, -1 for less than and +1 for more then
-                        return (entry.getValue().equals(entry1.getValue()) ? 0 : (entry.getValue() < entry1.getValue() ? 1 : -1));
-                    }
-                });
+                // Get the entries of the map sorted by decreasing score (only the best
+                // topK, if set)
+                long t = Metrics.start();
+                List<Map.Entry<Integer, Double>> lst = base.TopK.select(list, mn.topK, mn.minScore);
+                t = Metrics.stop(Metrics.Stage.RANKING, t);
                 
                 // Clear the map
                 list.clear();
@@ -183,16 +205,21 @@ public class BNaiveBayes {
                 // Copy back the entries now in order
                 for (Map.Entry<Integer, Double> entry: lst) {
                     list.put(entry.getKey(), entry.getValue());
-                    sb.append(id.getId()).append(entry.getKey()).append(" ").append(i).append(" ").append(entry.getValue()).append("\n");
+                    sb.append(id.getId()).append(" ").append(entry.getKey()).append(" ").append(i).append(" ").append(entry.getValue()).append("\n");
                     ++i;
                 }
                 
                 out.write(sb.toString());
+                Metrics.stop(Metrics.Stage.OUTPUT, t);
                 
             }
             
             out.flush();
             out.close();
+            in.close();
+            
+            if (mn.metrics)
+                Metrics.print(System.out);
             
         } catch (FileNotFoundException ex) {
             System.exit(-1);
@@ -51,6 +51,9 @@ public class Class2Vectors
     //! name of the output (indexed classes) file
     String outputFileName;
     
+    //! true if the output is written in the binary format
+    boolean binary;
+    
     /** Usage instructions for the program */
     private void usage()
     {
@@ -58,6 +61,7 @@ public class Class2Vectors
         System.err.println(" -vectors=NAME : name of the file with indexed documents");
         System.err.println(" -classfile=NAME : name of the file with classified documents");        
         System.err.println(" -output=FILENAME : name of the file with the indexed classes");
+        System.err.println(" [-format=(text|binary)] : format of the file with the indexed classes (text by default)");
         System.exit(-1);   
     }
     
@@ -96,6 +100,15 @@ public class Class2Vectors
                   System.exit(-1);
                 }
                 processedOptions[2] = true;
+            } else if (arg.trim().startsWith("-format=")) {
+                String format = arg.trim().substring(8).trim();
+                if (format.equals("binary"))
+                    binary = true;
+                else if (!format.equals("text"))
+                {
+                  System.err.println("ERROR: unknown format " + format);
+                  this.usage();
+                }
             } else {
                 System.err.println("Unrecognized argument " + arg);
                 this.usage();
@@ -120,7 +133,7 @@ public class Class2Vectors
        Class2Vectors t = new Class2Vectors();
        
        // argument processing
-       if (args.length != 3)
+       if (args.length != 3 && args.length != 4)
          t.usage();
        
        t.processArguments(args);
@@ -129,7 +142,7 @@ public class Class2Vectors
        ClassIndexer ci = new ClassIndexer(t.vectorsFileName, t.classifiedDocumentsFileName);
        
        // writing the output file..
-       ci.writeIndex(t.outputFileName);
+       ci.writeIndex(t.outputFileName, t.binary);
        
     }
     
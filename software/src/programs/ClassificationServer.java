@@ -0,0 +1,411 @@
+/*
+ *
+ *   ReBayCT: a tool for classification on a Thesaurus
+ *
+ *	For details see:
+ *	 L. M. de Campos, A. E. Romero, Bayesian Network Models for Hierarchical Text
+ *	Classification from a Thesaurus, Int. J. Approx. Reasoning 50(7): 932-944 (2009).
+ *
+ *
+ *   Copyright (C) 2006-2008 Alfonso E. Romero <alfonsoeromero (AT) gmail (DOT) com>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package programs;
+
+import base.Metrics;
+import com.sun.net.httpserver.*;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.util.*;
+import java.util.concurrent.*;
+import supervisedClassifier.SupervisedBN;
+import thesaurus.ThesaurusStringIndexer;
+import unsupervisedClassifier.*;
+
+/**
+ * Resident classifier: the model (thesaurus index and, for the supervised
+ * model, class index) is read once, and documents are classified as they
+ * arrive through a local HTTP endpoint, by a pool of workers (each one with
+ * its own context of the model). The documents of a request are split among
+ * the workers.
+ *
+ * A request is a POST to /classify whose body has a document per line ("id
+ * text"), encoded in UTF-8. A battery can be sent as it is: its first line,
+ * the number of documents, is skipped. The answer has the same lines
+ * UnsupervisedClassifier writes: "id descriptor rank score" for each ranked
+ * descriptor, or "id 0 0 0.0" if there is none, in the order of the request.
+ *
+ *   curl --data-binary @documents.txt http://localhost:8080/classify
+ *
+ * The latency of each stage of the classification is given by GET /metrics,
+ * and through JMX (rebayct:type=Metrics), where it can also be enabled.
+ */
+public class ClassificationServer {
+    //! name of the stopwords file
+    String stopwordsFileName;
+    //! name of the index with the thesaurus
+    String thesaurusIndexFileName;
+    //! name of the file with indexed classes (supervised model)
+    String classIndexFileName;
+    //! are we doing stemming?
+    boolean doingStemming = false;
+    //! are we using exact phrases?
+    boolean phrases = false;
+    //! are we using nidf? (supervised model)
+    boolean usenIdf = false;
+    //! strength of the thesaurus and of the structure (supervised model)
+    double strengthThesaurus = 1.0;
+    double strengthStructure = 1.0;
+    //! number of descriptors returned for each document (0 means all of them)
+    int topK = 0;
+    //! descriptors with a lower score are not returned
+    double minScore = Double.NEGATIVE_INFINITY;
+    //! port of the server
+    int port = 8080;
+    //! number of threads classifying documents
+    int numThreads = Runtime.getRuntime().availableProcessors();
+    //! are we measuring the stages of the classification?
+    boolean metrics = false;
+
+    private static final int BN = 0;
+    private static final int VSM = 1;
+    private static final int HVSM = 2;
+    private static final int SBN = 3;
+    int MODEL;
+
+    //! the model, shared by all the workers
+    private ClassifierModel cm;
+
+    //! context of the model of each worker
+    private ThreadLocal<ClassifierModel.Context> contexts;
+
+    //! threads classifying the documents of the requests
+    private ExecutorService workers;
+
+    public ClassificationServer() {
+    }
+
+    private int parseInt(String name, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+            System.err.println("ERROR: " + name + " must be an integer. Exiting.");
+            System.exit(-1);
+        }
+        return 0;
+    }
+
+    private double parseDouble(String name, String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException ex) {
+            System.err.println("ERROR: " + name + " must be a number. Exiting.");
+            System.exit(-1);
+        }
+        return 0.0;
+    }
+
+    private void processArguments(String args[]) {
+        boolean processedOptions[] = new boolean[3];
+        for (int i = 0; i < processedOptions.length; ++i) {
+            processedOptions[i] = false;
+        }
+
+        for (String arg : args) {
+            if (arg.trim().startsWith("-stopwords=")) {
+                this.stopwordsFileName = arg.trim().substring(11).trim();
+                if (!new File(this.stopwordsFileName).exists()) {
+                    System.err.println("ERROR: file " + this.stopwordsFileName + " does not exist. Exiting.");
+                    System.exit(-1);
+                }
+                processedOptions[0] = true;
+            } else if (arg.trim().startsWith("-index=")) {
+                this.thesaurusIndexFileName = arg.trim().substring(7).trim();
+                if (!new File(this.thesaurusIndexFileName).exists()) {
+                    System.err.println("ERROR: file " + this.thesaurusIndexFileName + " does not exist. Exiting.");
+                    System.exit(-1);
+                }
+                processedOptions[1] = true;
+            } else if (arg.trim().startsWith("-classindex=")) {
+                this.classIndexFileName = arg.trim().substring(12).trim();
+                if (!new File(this.classIndexFileName).exists()) {
+                    System.err.println("ERROR: file " + this.classIndexFileName + " does not exist. Exiting.");
+                    System.exit(-1);
+                }
+            } else if (arg.trim().startsWith("-stemming=")) {
+                ThesaurusStringIndexer.setStemLanguage(arg.trim().substring(10).trim());
+                this.doingStemming = true;
+            } else if (arg.trim().startsWith("-exactPhrases=")) {
+                this.phrases = ("yes".compareTo(arg.trim().substring(14).trim()) == 0);
+            } else if (arg.trim().startsWith("-useNidf=")) {
+                this.usenIdf = ("yes".compareTo(arg.trim().substring(9).trim()) == 0);
+            } else if (arg.trim().startsWith("-strengthThesaurus=")) {
+                this.strengthThesaurus = parseDouble("-strengthThesaurus", arg.trim().substring(19).trim());
+            } else if (arg.trim().startsWith("-strengthStructure=")) {
+                this.strengthStructure = parseDouble("-strengthStructure", arg.trim().substring(19).trim());
+            } else if (arg.trim().startsWith("-topK=")) {
+                this.topK = parseInt("-topK", arg.trim().substring(6).trim());
+            } else if (arg.trim().startsWith("-minScore=")) {
+                this.minScore = parseDouble("-minScore", arg.trim().substring(10).trim());
+            } else if (arg.trim().startsWith("-port=")) {
+                this.port = parseInt("-port", arg.trim().substring(6).trim());
+            } else if (arg.trim().startsWith("-threads=")) {
+                this.numThreads = parseInt("-threads", arg.trim().substring(9).trim());
+                if (this.numThreads < 1) {
+                    System.err.println("ERROR: -threads must be at least 1. Exiting.");
+                    System.exit(-1);
+                }
+            } else if (arg.trim().startsWith("-metrics=")) {
+                this.metrics = ("yes".compareTo(arg.trim().substring(9).trim()) == 0);
+            } else if (arg.trim().startsWith("-model=")) {
+                String myModel = arg.trim().substring(7).trim();
+
+                if (myModel.compareTo("BN") == 0) {
+                    this.MODEL = BN;
+                } else if (myModel.compareTo("VSM") == 0) {
+                    this.MODEL = VSM;
+                } else if (myModel.compareTo("HVSM") == 0) {
+                    this.MODEL = HVSM;
+                } else if (myModel.compareTo("SBN") == 0) {
+                    this.MODEL = SBN;
+                } else {
+                    System.err.println("ERROR: wrong model");
+                    this.usage();
+                }
+
+                processedOptions[2] = true;
+            } else {
+                System.err.println("Unrecognized argument " + arg);
+                this.usage();
+            }
+        }
+
+        for (int i = 0; i < processedOptions.length; ++i) {
+            if (!processedOptions[i]) {
+                System.err.println("Runaway argument");
+                this.usage();
+            }
+        }
+
+        if (this.MODEL == SBN && this.classIndexFileName == null) {
+            System.err.println("ERROR: the SBN model needs a class index (-classindex)");
+            this.usage();
+        }
+    }
+
+    /** Reads the model, once for all the requests */
+    private void loadModel() {
+        switch (this.MODEL) {
+            case VSM:
+                cm = new SimpleVSMClassifier(this.thesaurusIndexFileName, this.stopwordsFileName, false, this.doingStemming, false);
+                break;
+            case HVSM:
+                cm = new SimpleVSMClassifier(this.thesaurusIndexFileName, this.stopwordsFileName, true, this.doingStemming, false);
+                break;
+            case SBN:
+                cm = new SupervisedBN(this.classIndexFileName, this.thesaurusIndexFileName, this.stopwordsFileName, this.doingStemming,
+                        this.usenIdf, false, this.strengthThesaurus, this.strengthStructure);
+                break;
+            default:
+                cm = new BNClassifier(this.thesaurusIndexFileName, this.stopwordsFileName, this.doingStemming, false, this.phrases);
+        }
+        cm.setTopK(this.topK);
+        cm.setMinScore(this.minScore);
+
+        contexts = new ThreadLocal<ClassifierModel.Context>() {
+            protected ClassifierModel.Context initialValue() {
+                return cm.newContext();
+            }
+        };
+    }
+
+    /** Reads the documents of a request, a document per line ("id text"). A
+     * first line with only a number (the number of documents of a battery) is
+     * skipped
+     * @param in body of the request
+     * @param nums identifiers of the documents
+     * @param texts texts of the documents
+     */
+    private static void readDocuments(BufferedReader in, List<String> nums, List<String> texts) throws IOException {
+        boolean first = true;
+        String s = in.readLine();
+        while (s != null) {
+            StringTokenizer st = new StringTokenizer(s);
+            if (st.hasMoreTokens()) {
+                String num = st.nextToken();
+                if (!st.hasMoreTokens() && first && isNumber(num)) {
+                    first = false;
+                    s = in.readLine();
+                    continue;
+                }
+                nums.add(num);
+                texts.add(st.hasMoreTokens() ? st.nextToken("\n") : "");
+                first = false;
+            }
+            s = in.readLine();
+        }
+    }
+
+    private static boolean isNumber(String s) {
+        try {
+            Integer.parseInt(s);
+            return true;
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+    }
+
+    /** Classifies the documents of a request. They are split in (consecutive)
+     * blocks, one for each worker, and the results are joined in the order of
+     * the request */
+    private String classify(BufferedReader in) throws IOException, InterruptedException, ExecutionException {
+        final List<String> nums = new ArrayList<String>(), texts = new ArrayList<String>();
+        readDocuments(in, nums, texts);
+
+        int numBlocks = Math.min(this.numThreads, texts.size());
+        if (numBlocks <= 1) {
+            return classify(nums, texts, 0, texts.size());
+        }
+
+        List<Future<String>> blocks = new ArrayList<Future<String>>(numBlocks);
+        for (int i = 0; i < numBlocks; ++i) {
+            final int from = (int) ((long) texts.size() * i / numBlocks);
+            final int to = (int) ((long) texts.size() * (i + 1) / numBlocks);
+            blocks.add(workers.submit(new Callable<String>() {
+                public String call() {
+                    return classify(nums, texts, from, to);
+                }
+            }));
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (Future<String> block : blocks) {
+            sb.append(block.get());
+        }
+        return sb.toString();
+    }
+
+    /** Classifies the documents from "from" to "to" (not included) of a
+     * request, with the context of the current thread */
+    private String classify(List<String> nums, List<String> texts, int from, int to) {
+        ClassifierModel.Context c = contexts.get();
+        StringBuilder sb = new StringBuilder();
+
+        for (int i = from; i < to; ++i) {
+            String num = nums.get(i);
+            List<Result> l = cm.classifyString(texts.get(i), c);
+
+            long t = Metrics.start();
+            if (l.size() > 0) {
+                int rank = 1;
+                for (Result r : l) {
+                    sb.append(num).append(" ").append(r.getDescriptor().getId()).append(" ").append(rank).append(" ").append(r.getProb()).append("\n");
+                    ++rank;
+                }
+            } else {
+                sb.append(num).append(" ").append(0).append(" ").append(0).append(" ").append(0.0).append("\n");
+            }
+            Metrics.stop(Metrics.Stage.OUTPUT, t);
+        }
+        return sb.toString();
+    }
+
+    private static void send(HttpExchange exchange, int status, String answer) throws IOException {
+        byte[] bytes = answer.getBytes("UTF-8");
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(bytes);
+        out.close();
+    }
+
+    /** Starts the server, listening only on the local host */
+    public void start() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", this.port), 0);
+        server.createContext("/classify", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    if (!"POST".equals(exchange.getRequestMethod())) {
+                        send(exchange, 405, "ERROR: documents must be sent with POST\n");
+                        return;
+                    }
+                    BufferedReader in = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), "UTF-8"));
+                    send(exchange, 200, classify(in));
+                } catch (ExecutionException ex) {
+                    System.err.println("ERROR: request could not be classified. " + ex.getCause());
+                    send(exchange, 500, "ERROR: " + ex.getCause() + "\n");
+                } catch (InterruptedException ex) {
+                    System.err.println("ERROR: request could not be classified. " + ex);
+                    send(exchange, 500, "ERROR: " + ex + "\n");
+                } catch (RuntimeException ex) {
+                    System.err.println("ERROR: request could not be classified. " + ex);
+                    send(exchange, 500, "ERROR: " + ex + "\n");
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        server.createContext("/metrics", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    send(exchange, 200, Metrics.isActive() ? Metrics.getInstance().getReport() : "metrics disabled (-metrics=yes)\n");
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        // the requests are read and answered by their own threads, which wait
+        // for the workers
+        workers = Executors.newFixedThreadPool(this.numThreads);
+        server.setExecutor(Executors.newFixedThreadPool(this.numThreads));
+        server.start();
+        System.out.println("Classifier listening on http://localhost:" + this.port + "/classify");
+    }
+
+    public void usage() {
+        System.err.println("ERROR. The list of argument is the following:");
+        System.err.println(" -model=(BN|VSM|HVSM|SBN) : Model used here => Bayesian Network,");
+        System.err.println("\tVector Space Model, Hierarchical Vector Space Model or Supervised Bayesian Network");
+        System.err.println(" -index=FILENAME : name of the file with the thesaurus index");
+        System.err.println(" -stopwords=FILENAME : name of the stopwords file");
+        System.err.println(" [-classindex=NAME] : name of the file with indexed classes (needed by SBN)");
+        System.err.println(" [-stemming=LANGUAGE] : tells if we are doing stemming, and the language (es, en, fr, de, it, pt, nl, da, sv, no, fi, hu, ru) (optional parameter)");
+        System.err.println(" [-exactPhrases=(yes|no)] : tells if we are using exact phrases or not (only BN), no by default");
+        System.err.println(" [-strengthThesaurus=0.0-1.0] [-strengthStructure=0.0-1.0] [-useNidf=yes|no] : parameters of SBN");
+        System.err.println(" [-topK=N] : number of descriptors returned for each document, all if 0 (optional parameter)");
+        System.err.println(" [-minScore=X] : descriptors with a lower score are not returned (optional parameter)");
+        System.err.println(" [-port=N] : port of the server, 8080 by default");
+        System.err.println(" [-threads=N] : number of threads classifying documents, the number of processors by default");
+        System.err.println(" [-metrics=(yes|no)] : measures the latency of each stage of the classification (GET /metrics and JMX)");
+        System.exit(-1);
+    }
+
+    public static void main(String[] args) {
+        ClassificationServer server = new ClassificationServer();
+
+        server.processArguments(args);
+        server.loadModel();
+        Metrics.registerMBean();
+        Metrics.enable(server.metrics);
+
+        try {
+            server.start();
+        } catch (IOException ex) {
+            System.err.println("ERROR: server could not be started. Exiting. " + ex);
+            System.exit(-1);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ *
+ *   ReBayCT: a tool for classification on a Thesaurus
+ *
+ *	For details see:
+ *	 L. M. de Campos, A. E. Romero, Bayesian Network Models for Hierarchical Text
+ *	Classification from a Thesaurus, Int. J. Approx. Reasoning 50(7): 932-944 (2009).
+ *
+ *
+ *   Copyright (C) 2006-2008 Alfonso E. Romero <alfonsoeromero (AT) gmail (DOT) com>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package programs;
+import java.io.*;
+import unsupervisedClassifier.IndexReader;
+
+/**
+ * Translates a thesaurus index between the text and the binary formats
+ */
+public class ConvertThesaurusIndex
+{
+    //! name of the input index
+    String inputFileName;
+
+    //! name of the output index
+    String outputFileName;
+
+    //! true if the output is written in binary format
+    boolean binary;
+
+    /** Usage instructions for the program */
+    private void usage()
+    {
+        System.err.println("ERROR. The list of argument is the following:");
+        System.err.println(" -input=FILENAME : name of the file with the thesaurus index (text or binary)");
+        System.err.println(" -output=FILENAME : name of the file with the converted index");
+        System.err.println(" -format=(text|binary) : format of the converted index");
+        System.exit(-1);
+    }
+
+    private void processArguments(String args[])
+    {
+        boolean processedOptions[] = new boolean[3];
+        for (int i=0; i<processedOptions.length; ++i) processedOptions[i] = false;
+
+        for (String arg : args)
+        {
+            if (arg.trim().startsWith("-output=")) {
+                outputFileName = arg.trim().substring(8).trim();
+                File route = new File(outputFileName);
+                if (route.exists())
+                {
+                  System.err.println("ERROR: could not overwrite file " + outputFileName + ". It already exists. Exiting.");
+                  System.exit(-1);
+                }
+                processedOptions[0] = true;
+            } else if (arg.trim().startsWith("-input=")) {
+                inputFileName = arg.trim().substring(7).trim();
+                File route = new File(inputFileName);
+                if (!route.exists())
+                {
+                  System.err.println("ERROR: index file " + inputFileName + " does not exist. Exiting.");
+                  System.exit(-1);
+                }
+                processedOptions[1] = true;
+            } else if (arg.trim().startsWith("-format=")) {
+                String format = arg.trim().substring(8).trim();
+                if (format.equals("binary"))
+                    binary = true;
+                else if (format.equals("text"))
+                    binary = false;
+                else {
+                    System.err.println("ERROR: unknown format " + format);
+                    this.usage();
+                }
+                processedOptions[2] = true;
+            } else {
+                System.err.println("Unrecognized argument " + arg);
+                this.usage();
+            }
+        }
+        int count = 0;
+        for (int i=0; i<processedOptions.length; ++i) if(processedOptions[i]) ++count;
+
+        if (count != processedOptions.length)
+        {
+                System.err.println("Runaway arguments.");
+                this.usage();
+        }
+    }
+
+    /** Creates a new instance of ConvertThesaurusIndex */
+    public ConvertThesaurusIndex() { }
+
+
+    public static void main(String args[])
+    {
+       ConvertThesaurusIndex c = new ConvertThesaurusIndex();
+
+       // argument processing
+       if (args.length != 3)
+         c.usage();
+
+       c.processArguments(args);
+
+       // the postings of the terms are needed to write the index again
+       IndexReader reader = new IndexReader();
+       reader.readIndex(c.inputFileName, true);
+       reader.writeIndex(c.outputFileName, c.binary);
+    }
+
+}
@@ -44,6 +44,10 @@ public class GlobalTermSelection {
     //! strings with filenames and parameters
     static String inputFileName, outputFileName, parameters;
     
+    //! format of the output classIndex (by default, the one of the input)
+    static String format;
+    static boolean binaryOutput;
+    
     //! classified (output) lexicon
     ClassifiedLexicon outputl;
     
@@ -86,39 +90,13 @@ public class GlobalTermSelection {
         // for each term appearing in a certain class, we sum its frequency to the total freq
         for (int i=0; i<this.outputl.size(); ++i) {
             ClassifiedTerm ct = cl.getTermById(i);
-            Map<Integer, Integer> mp = ct.getOccurrence();
-            for (int j : mp.keySet())
-                newTotalFreq.put(j, newTotalFreq.get(j) + mp.get(j));
-        }
-        
-        //! writing of the index
-        try{
-            //1.- we open the buffer
-            BufferedWriter out = new BufferedWriter(new FileWriter(GlobalTermSelection.outputFileName));
-            
-            //2.- we write the lexicon (NOT THE ORIGINAL!!!)
-            this.outputl.write(out);
-            
-            //3.- we write the number of classes
-            out.write(numClasses + "\n");
-            
-            //3.- we write the number of documents used to create this index of classes
-            out.write(this.numDocuments + "\n");
-            
-            //5.- for each class, we write its id, the number of documents and the total frequency
-            for (int i : newNumDocs.keySet())
-                out.write(i + " " + newNumDocs.get(i) + " " + newTotalFreq.get(i) + "\n" );
-            
-            out.write("\n");
-            
-            //6.- we flush the buffer
-            out.close();
-        } catch(Exception ex) {
-            System.err.println("ERROR: ");
-            System.err.println(". Exiting.");
-            System.exit(-1);
+            int[] classes = ct.getClasses(), freqs = ct.getFreqs();
+            for (int k=0; k<ct.getNumClasses(); ++k)
+                newTotalFreq.put(classes[k], newTotalFreq.get(classes[k]) + freqs[k]);
         }
         
+        //! writing of the index (the lexicon written is NOT THE ORIGINAL!!!)
+        new ClassIndex(this.outputl, numClasses, this.numDocuments, newNumDocs, newTotalFreq).write(GlobalTermSelection.outputFileName, GlobalTermSelection.binaryOutput);
     }
     
     private void selectTermsByPerc() {
@@ -223,50 +201,15 @@ public class GlobalTermSelection {
         GlobalTermSelection.parameters = params;
         
         //! class index reading and initialization
-        int line = 1;
-        
         System.out.println("Reading input file: " + inputFileName);
-        try {
-            BufferedReader in = new BufferedReader(new FileReader(inputFileName));
-            
-            // 1.- we read the lexicon
-            cl = new ClassifiedLexicon();
-            this.outputl = new ClassifiedLexicon();
-            cl.read(in);
-            
-            // 2.- we read the number of classes and documents
-            this.numClasses = Integer.parseInt(in.readLine());
-            this.numDocuments = Integer.parseInt(in.readLine());
-            
-            // 3.- we initialize the arrays and fill them
-            numDocs = new HashMap<Integer, Integer>(this.numClasses);
-            totalFreq = new HashMap<Integer, Integer>(this.numClasses);
-            
-            // for each class (stored in one line...)
-            for (int i=0; i<numClasses; ++i) {
-                // we read the line and tokenize it
-                StringTokenizer st = new StringTokenizer(in.readLine());
-                
-                // should have three tokens...
-                int classID = Integer.parseInt(st.nextToken());
-                int numDocz = Integer.parseInt(st.nextToken());
-                int myFreq = Integer.parseInt(st.nextToken());
-                
-                // we insert the values on the arrays
-                numDocs.put(classID, numDocz);
-                totalFreq.put(classID, myFreq);
-            }
-            
-        } catch (FileNotFoundException ex) {
-            System.err.println("ERROR: file " + inputFileName + " does not exist. Exiting.");
-            System.exit(-1);
-        } catch (NumberFormatException ex) {
-            System.err.println("ERROR: number expected at line " + line + " of file " + inputFileName + " was not found. Exiting.");
-            System.exit(-1);
-        } catch (IOException ex){
-            System.err.println("ERROR: file " + inputFileName + " could not be read. Exiting.");
-            System.exit(-1);
-        }
+        ClassIndex index = ClassIndex.read(inputFileName);
+        
+        cl = index.getLexicon();
+        this.outputl = new ClassifiedLexicon();
+        this.numClasses = index.getNumClasses();
+        this.numDocuments = index.getNumDocuments();
+        numDocs = index.getNumDocs();
+        totalFreq = index.getTotalFreq();
     }
     
     private static void usage() {
@@ -278,6 +221,7 @@ public class GlobalTermSelection {
         System.err.println("\t\t example:  -method=NUMDOCS_MIN -parameters=\"3\" (prunes terms appearing in less than 3 documents)");
         System.err.println("\t method:NUMDOCS_PERC prunes terms appearing in the less documents, leaving a percentage of the terms");
         System.err.println("\t\t example:  -method=NUMDOCS_PERC -parameters=\"10%\" (prunes the 90% most infrequent terms)");
+        System.err.println(" [-format=(text|binary)] : format of the output classIndex (the one of the input by default)");
         System.exit(-1);
     }
     
@@ -319,6 +263,12 @@ public class GlobalTermSelection {
                     processedOptions[2] = true;
                 } else processedOptions[2] = false;
                 
+            } else if (arg.trim().startsWith("-format=")) {
+                format = arg.trim().substring(8).trim();
+                if (!format.equals("text") && !format.equals("binary")) {
+                    System.err.println("ERROR: unknown format " + format);
+                    usage();
+                }
             } else if (arg.trim().startsWith("-parameters=")) {
                 parameters = arg.trim().substring(12);
                 System.out.println(parameters);
@@ -335,6 +285,10 @@ public class GlobalTermSelection {
             usage();
         }
         
+        if (format == null)
+            binaryOutput = ClassIndex.isBinary(inputFileName);
+        else binaryOutput = format.equals("binary");
+        
         return method;
     }
     
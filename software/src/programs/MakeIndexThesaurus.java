@@ -27,6 +27,8 @@ package programs;
 
 import base.StringIndexer;
 import java.io.File;
+import java.util.*;
+import java.util.concurrent.*;
 import thesaurus.IndexBuilder;
 import thesaurus.IndexBuilder_Desc;
 import thesaurus.IndexBuilder_Micro;
@@ -34,6 +36,7 @@ import thesaurus.IndexBuilder_Thes;
 import thesaurus.IndexBuilder_relation_bt;
 import thesaurus.IndexBuilder_uf;
 import thesaurus.ThesaurusStringIndexer;
+import thesaurus.XMLEvents;
 
 /**
  *
@@ -47,7 +50,7 @@ public class MakeIndexThesaurus {
         indexer.processArguments(args);
 
         //! argument processing
-        if (args.length != 4 && args.length != 5) {
+        if (args.length < 3 || args.length > 6) {
             indexer.usage();
         }
 
@@ -59,9 +62,12 @@ public class MakeIndexThesaurus {
     private String stopwordsFileName;
     private String baseDirectory;
     private boolean doingStemming;
+    private boolean binaryIndex;
+    //! number of threads parsing the thesaurus files
+    private int numThreads = 1;
 
     private void processArguments(String[] args) {
-        if (args.length < 3 || args.length > 4) {
+        if (args.length < 3 || args.length > 6) {
             this.usage();
         }
 
@@ -98,6 +104,25 @@ public class MakeIndexThesaurus {
                 String myLang = arg.trim().substring(10).trim();
                 ThesaurusStringIndexer.setStemLanguage(myLang);
                 doingStemming = true;
+            } else if (arg.trim().startsWith("-format=")) {
+                String format = arg.trim().substring(8).trim();
+                if (format.equals("binary")) {
+                    binaryIndex = true;
+                } else if (!format.equals("text")) {
+                    System.err.println("ERROR: unknown index format " + format);
+                    this.usage();
+                }
+            } else if (arg.trim().startsWith("-threads=")) {
+                try {
+                    this.numThreads = Integer.parseInt(arg.trim().substring(9).trim());
+                } catch (NumberFormatException ex) {
+                    System.err.println("ERROR: -threads must be an integer. Exiting.");
+                    System.exit(-1);
+                }
+                if (this.numThreads < 1) {
+                    System.err.println("ERROR: -threads must be at least 1. Exiting.");
+                    System.exit(-1);
+                }
             } else {
                 System.err.println("Unrecognized argument " + arg);
                 this.usage();
@@ -123,8 +148,6 @@ public class MakeIndexThesaurus {
 
         System.out.println(base);
 
-        thesaurus.XMLReader reader = new thesaurus.XMLReader();
-
         String fileDescriptors = base + "DESC_ES.XML";
         String fileBTRelation = base + "RELATION_BT.XML";
         String fileUFRelation = base + "UF_ES.XML";
@@ -142,31 +165,83 @@ public class MakeIndexThesaurus {
 
         IndexBuilder.setStopwordList("./" + stopwordsFileName);
 
-        reader.setBuilder(new IndexBuilder_Desc());
-        reader.parseFile(fileDescriptors);
+        if (this.numThreads > 1) {
+            this.indexInParallel(new String[]{fileDescriptors, fileBTRelation,
+                fileUFRelation, fileMicrothesaurus, fileThesaurus});
+        } else {
+            thesaurus.XMLReader reader = new thesaurus.XMLReader();
+
+            reader.setBuilder(new IndexBuilder_Desc());
+            reader.parseFile(fileDescriptors);
 
-        reader.setBuilder(new IndexBuilder_relation_bt());
-        reader.parseFile(fileBTRelation);
+            reader.setBuilder(new IndexBuilder_relation_bt());
+            reader.parseFile(fileBTRelation);
 
-        reader.setBuilder(new IndexBuilder_uf());
-        reader.parseFile(fileUFRelation);
+            reader.setBuilder(new IndexBuilder_uf());
+            reader.parseFile(fileUFRelation);
 
-        reader.setBuilder(new IndexBuilder_Thes());
-        reader.parseFile(fileMicrothesaurus);
+            reader.setBuilder(new IndexBuilder_Thes());
+            reader.parseFile(fileMicrothesaurus);
 
-        reader.setBuilder(new IndexBuilder_Micro());
-        reader.parseFile(fileThesaurus);
+            reader.setBuilder(new IndexBuilder_Micro());
+            reader.parseFile(fileThesaurus);
+        }
 
         System.out.println("Computing weights...");
         IndexBuilder.computeWeights();
         IndexBuilder.normalizeWeights();
 
         System.out.println("Writing index to disk...");
-        IndexBuilder.writeIndex(this.thesaurusIndexFileName);
+        if (this.binaryIndex) {
+            IndexBuilder.writeBinaryIndex(this.thesaurusIndexFileName);
+        } else {
+            IndexBuilder.writeIndex(this.thesaurusIndexFileName);
+        }
 
         System.out.println("Indexation finished, everything OK");
     }
 
+    /** Parses the thesaurus files with several threads (which also tokenize
+     * and stem their text) and gives their events to the builders one file
+     * after another, in the order of the sequential build, as soon as each one
+     * is parsed. The builders add the terms to the lexicon and number the
+     * descriptors in the same order, so the index is the same. A file is only
+     * parsed when there are less than numThreads files parsed and not yet
+     * replayed, so that not all the files are kept in memory.
+     * @param files DESC, RELATION_BT, UF, DESC_THES and THES files
+     */
+    private void indexInParallel(final String[] files) {
+        IndexBuilder[] builders = new IndexBuilder[]{new IndexBuilder_Desc(),
+            new IndexBuilder_relation_bt(), new IndexBuilder_uf(),
+            new IndexBuilder_Thes(), new IndexBuilder_Micro()};
+        ExecutorService pool = Executors.newFixedThreadPool(this.numThreads);
+        List<Future<XMLEvents>> parsed = new ArrayList<Future<XMLEvents>>();
+
+        try {
+            for (int i=0; i<files.length; ++i) {
+                while (parsed.size() < files.length && parsed.size() < i + this.numThreads) {
+                    final String file = files[parsed.size()];
+                    parsed.add(pool.submit(new Callable<XMLEvents>() {
+                        public XMLEvents call() {
+                            return XMLEvents.parse(file);
+                        }
+                    }));
+                }
+                parsed.get(i).get().replay(builders[i]);
+                parsed.set(i, null);
+                builders[i] = null;
+            }
+        } catch (InterruptedException ex) {
+            System.err.println("ERROR. Indexation interrupted. Exiting. " + ex);
+            System.exit(-1);
+        } catch (ExecutionException ex) {
+            System.err.println("ERROR. Parsing of the thesaurus failed. Exiting. " + ex.getCause());
+            System.exit(-1);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
     private boolean fileExists(String fileName) {
         File f = new File(fileName);
         return f.exists();
@@ -176,8 +251,10 @@ public class MakeIndexThesaurus {
         System.err.println("ERROR. The list of argument is the following:");
         System.err.println(" -baseDirectory=DIRECTORY : route to the thesaurus files");
         System.err.println(" -index=FILENAME : name of the file with the thesaurus index we are producing");
-        System.err.println(" [-stemming=(en/es)] : tells if we are doing stemming (optional parameter)");
+        System.err.println(" [-stemming=LANGUAGE] : tells if we are doing stemming, and the language (es, en, fr, de, it, pt, nl, da, sv, no, fi, hu, ru) (optional parameter)");
         System.err.println(" -stopwords=FILENAME : name of the stopwords file");
+        System.err.println(" [-format=(text|binary)] : format of the index, text by default (optional parameter)");
+        System.err.println(" [-threads=N] : number of threads parsing the thesaurus files, 1 by default (optional parameter)");
         System.exit(-1);
     }
 }
@@ -31,9 +31,11 @@
  */
 
 package programs;
+import base.Metrics;
 import java.io.*;
 import indexation.*;
 import java.util.*;
+import java.util.concurrent.*;
 import supervisedClassifier.*;
 import unsupervisedClassifier.*;
 
@@ -69,6 +71,21 @@ public class SupervisedBNClassifier {
     //! strength of the relationship of the structure
     double strengthStructure;
     
+    //! number of descriptors written for each document (0 means all of them)
+    int topK = 0;
+    
+    //! descriptors with a lower score are not written
+    double minScore = Double.NEGATIVE_INFINITY;
+    
+    //! number of threads classifying documents
+    int numThreads = 1;
+    
+    //! documents given to each thread at a time
+    private static final int DOCUMENTS_PER_THREAD = 64;
+    
+    //! are we measuring the stages of the classification?
+    boolean metrics = false;
+    
     /** Creates a new instance of MNaiveBayes */
     public SupervisedBNClassifier() {
         this.doingStemming = false;
@@ -80,16 +97,20 @@ public class SupervisedBNClassifier {
         System.err.println(" -index=FILENAME : name of the file with the thesaurus index");
         System.err.println(" -classindex=NAME : name of the file with indexed classes");
         System.err.println(" -output=FILENAME : name of the file with the (unsupervised) classification results");
-        System.err.println(" [-stemming=(en/es)] : tells if we are doing stemming (optional parameter)");
+        System.err.println(" [-stemming=LANGUAGE] : tells if we are doing stemming, and the language (es, en, fr, de, it, pt, nl, da, sv, no, fi, hu, ru) (optional parameter)");
         System.err.println(" [-strengthThesaurus=0.0-1.0] : strength of a the thesaurus informationin its corresponding concept (double from 0.0 to 1.0, optional parameter), 1.0 by default");
         System.err.println(" [-strengthStructure=0.0-1.0] : strength of the structure (double from 0.0 to 1.0, optional parameter), 1.0 by default");
         System.err.println(" [-useNidf=yes|no]: using nidf or not (false by default)");
         System.err.println(" -stopwords=FILENAME : name of the stopwords file");
+        System.err.println(" [-topK=N] : number of descriptors written for each document, all if 0 (optional parameter)");
+        System.err.println(" [-minScore=X] : descriptors with a lower score are not written (optional parameter)");
+        System.err.println(" [-threads=N] : number of threads classifying documents, 1 by default (optional parameter)");
+        System.err.println(" [-metrics=(yes|no)] : writes the latency of each stage of the classification at the end (optional parameter)");
         System.exit(-1);
     }
     
     public void processArguments(String args[]) {
-        if (args.length < 5 || args.length > 9) this.usage();
+        if (args.length < 5 || args.length > 13) this.usage();
         boolean usedArgs[] = new boolean[5];
         for (int i=0; i<usedArgs.length; ++i) usedArgs[i] = false;
         
@@ -176,6 +197,33 @@ public class SupervisedBNClassifier {
                     System.out.println("ERROR: stregth should be a floating point number");
                     this.usage();
                 }
+            } else if (arg.trim().startsWith("-topK=")) {
+                try {
+                    this.topK = Integer.parseInt(arg.trim().substring(6).trim());
+                } catch (NumberFormatException ex) {
+                    System.err.println("ERROR: -topK must be an integer. Exiting.");
+                    System.exit(-1);
+                }
+            } else if (arg.trim().startsWith("-minScore=")) {
+                try {
+                    this.minScore = Double.parseDouble(arg.trim().substring(10).trim());
+                } catch (NumberFormatException ex) {
+                    System.err.println("ERROR: -minScore must be a number. Exiting.");
+                    System.exit(-1);
+                }
+            } else if (arg.trim().startsWith("-threads=")) {
+                try {
+                    this.numThreads = Integer.parseInt(arg.trim().substring(9).trim());
+                } catch (NumberFormatException ex) {
+                    System.err.println("ERROR: -threads must be an integer. Exiting.");
+                    System.exit(-1);
+                }
+                if (this.numThreads < 1) {
+                    System.err.println("ERROR: -threads must be at least 1. Exiting.");
+                    System.exit(-1);
+                }
+            } else if (arg.trim().startsWith("-metrics=")) {
+                this.metrics = ("yes".compareTo(arg.trim().substring(9).trim()) == 0);
             } else {
                 System.err.println("Unrecognized argument " + arg);
                 this.usage();
@@ -192,6 +240,82 @@ public class SupervisedBNClassifier {
         }
     }
     
+    /** Returns the lines with the (ranked) descriptors of a document */
+    private static String formatResults(String num, List<Result> l) {
+        StringBuilder sb = new StringBuilder();
+        int i=1;
+        if (l.size()>0)
+            for (Result r : l) {
+                sb.append(num).append(" ").append(r.getDescriptor().getId()).append(" ").append(i).append(" ").append(r.getProb()).append("\n");
+                ++i;
+            } else sb.append(num).append(" ").append(0).append(" ").append(i).append(" ").append(0.0).append("\n");
+        return sb.toString();
+    }
+    
+    /** Writes the (ranked) descriptors of a document */
+    private static void writeResults(BufferedWriter obuff, String num, List<Result> l) throws IOException {
+        long t = Metrics.start();
+        obuff.write(formatResults(num, l));
+        Metrics.stop(Metrics.Stage.OUTPUT, t);
+    }
+    
+    /** Classifies the documents with several threads. They are read in blocks
+     * and classified by the workers (each one with its own context of the
+     * model), and the results are written in the order of the documents.
+     */
+    private void classifyInParallel(final SupervisedBN bayes, BufferedReader buff, BufferedWriter obuff) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(this.numThreads);
+        final ClassifierModel.Context[] contexts = new ClassifierModel.Context[this.numThreads];
+        for (int i=0; i<contexts.length; ++i)
+            contexts[i] = bayes.newContext();
+        
+        int blockSize = this.numThreads * DOCUMENTS_PER_THREAD;
+        List<String> nums = new ArrayList<String>(blockSize);
+        final List<String> texts = new ArrayList<String>(blockSize);
+        final List<List<Result>> results = new ArrayList<List<Result>>(blockSize);
+        
+        try {
+            while (buff.ready()) {
+                nums.clear();
+                texts.clear();
+                results.clear();
+                while (nums.size() < blockSize && buff.ready()) {
+                    StringTokenizer st = new StringTokenizer(buff.readLine());
+                    nums.add(st.nextToken());
+                    texts.add(st.nextToken("\n"));
+                    results.add(null);
+                }
+                
+                // worker w classifies the documents w, w+numThreads, w+2*numThreads...
+                List<Future<Void>> done = new ArrayList<Future<Void>>();
+                for (int w=0; w<contexts.length && w<texts.size(); ++w) {
+                    final int worker = w;
+                    done.add(pool.submit(new Callable<Void>() {
+                        public Void call() {
+                            for (int i=worker; i<texts.size(); i+=contexts.length)
+                                results.set(i, bayes.classifyString(texts.get(i), contexts[worker]));
+                            return null;
+                        }
+                    }));
+                }
+                for (Future<Void> f : done)
+                    f.get();
+                
+                for (int i=0; i<nums.size(); ++i)
+                    writeResults(obuff, nums.get(i), results.get(i));
+            }
+            
+        } catch (InterruptedException ex) {
+            System.err.println("ERROR. Classification interrupted. Exiting. " + ex);
+            System.exit(-1);
+        } catch (ExecutionException ex) {
+            System.err.println("ERROR. Classification failed. Exiting. " + ex.getCause());
+            System.exit(-1);
+        } finally {
+            pool.shutdown();
+        }
+    }
+    
     public static void main(String args[]) {
         SupervisedBNClassifier mn = new SupervisedBNClassifier();
         
@@ -201,15 +325,19 @@ public class SupervisedBNClassifier {
         // class initialization
         SupervisedBN bayes = new SupervisedBN(mn.classIndexFileName, mn.thesaurusIndexFileName, mn.stopwordsFileName, mn.doingStemming, mn.usenIdf, false,
                 mn.strengthThesaurus, mn.strengthStructure);
+        bayes.setTopK(mn.topK);
+        bayes.setMinScore(mn.minScore);
         
+        Metrics.enable(mn.metrics);
         try {
             BufferedReader buff = new BufferedReader(new FileReader(mn.collectionFileName));
             BufferedWriter obuff = new BufferedWriter(new FileWriter(mn.outputFileName));
             
             String s = buff.readLine(); // number of lines... it is not used here
             
-            int id = 1;
-            while (buff.ready()) {
+            if (mn.numThreads > 1)
+                mn.classifyInParallel(bayes, buff, obuff);
+            else while (buff.ready()) {
                 s = buff.readLine();
                 
                 StringTokenizer st = new StringTokenizer(s);
@@ -219,15 +347,7 @@ public class SupervisedBNClassifier {
                 
                 List<Result> l = bayes.classifyString(s);
                 
-                StringBuilder sb = new StringBuilder();
-                int i=1;
-                if (l.size()>0)
-                    for (Result r : l) {
-                        sb.append(num).append(" ").append(r.getDescriptor().getId()).append(" ").append(i).append(" ").append(r.getProb()).append("\n");
-                        ++i;
-                    } else sb.append(num).append(" ").append(0).append(" ").append(i).append(" ").append(0.0).append("\n");
-                
-                obuff.write(sb.toString());
+                writeResults(obuff, num, l);
             }
             
             obuff.flush();
@@ -237,5 +357,8 @@ public class SupervisedBNClassifier {
             System.err.println("ERROR: input file could not be read. Exiting. " + ex);
             System.exit(-1);
         }
+        
+        if (mn.metrics)
+            Metrics.print(System.out);
     }
 }
@@ -54,14 +54,22 @@ public class Text2Vectors {
     //! name of the output (vectors) file
     String vectorsFileName;
     
+    //! number of threads used to process the documents
+    int numThreads;
+    
+    //! true if the output is written in the binary format
+    boolean binary;
+    
     /** Usage instructions for the program */
     private void usage() {
         System.err.println("ERROR. The list of argument is the following:");
         System.err.println(" -collection=NAME : route or file with the collection");
         System.err.println(" -output=FILENAME : name of the file with the processed collection");
-        System.err.println(" [-stemming=(en/es)] : tells if we are doing stemming (optional parameter)");
+        System.err.println(" [-stemming=LANGUAGE] : tells if we are doing stemming, and the language (es, en, fr, de, it, pt, nl, da, sv, no, fi, hu, ru) (optional parameter)");
         System.err.println(" [-removingNumbers=(yes/no)]: tells if we are removing numbers or not (\"no\" by default)");
         System.err.println(" -stopwords=FILENAME : name of the stopwords file");
+        System.err.println(" [-threads=N] : number of threads processing the documents (1 by default)");
+        System.err.println(" [-format=(text|binary)] : format of the file with the processed collection (text by default)");
         System.exit(-1);
     }
     
@@ -124,6 +132,25 @@ public class Text2Vectors {
                 String myOpt = arg.trim().substring(17).trim();
                 this.removingNumbers = myOpt.equalsIgnoreCase("yes");
                 LexicalStringIndexer.setRemoveNumbers(this.removingNumbers);
+            } else if (arg.trim().startsWith("-threads=")) {
+                try {
+                    numThreads = Integer.parseInt(arg.trim().substring(9).trim());
+                } catch (NumberFormatException ex) {
+                    numThreads = 0;
+                }
+                if (numThreads < 1) {
+                    System.err.println("ERROR: the number of threads must be a positive integer");
+                    this.usage();
+                }
+            } else if (arg.trim().startsWith("-format=")) {
+                String format = arg.trim().substring(8).trim();
+                if (format.equals("binary"))
+                    binary = true;
+                else if (!format.equals("text"))
+                {
+                  System.err.println("ERROR: unknown format " + format);
+                  this.usage();
+                }
             } else {
                 System.err.println("Unrecognized argument " + arg);
                 this.usage();
@@ -142,6 +169,7 @@ public class Text2Vectors {
     /** Creates a new instance of Text2Vectors */
     public Text2Vectors() {
         doingStemming = false;
+        numThreads = 1;
     }
     
     
@@ -158,7 +186,7 @@ public class Text2Vectors {
         LexicalIndexer lex = new LexicalIndexer(c);
         
         // we write the index
-        lex.makeIndex(t.vectorsFileName, t.doingStemming, t.stopwordsFileName);
+        lex.makeIndex(t.vectorsFileName, t.doingStemming, t.stopwordsFileName, t.numThreads, t.binary);
         
     }
     
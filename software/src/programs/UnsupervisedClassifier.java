@@ -25,12 +25,14 @@
  */
 package programs;
 
+import base.Metrics;
 import thesaurus.*;
 import unsupervisedClassifier.BNClassifier;
 import unsupervisedClassifier.ClassifierModel;
 import unsupervisedClassifier.Result;
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 import unsupervisedClassifier.SimpleVSMClassifier;
 
 public class UnsupervisedClassifier {
@@ -51,6 +53,16 @@ public class UnsupervisedClassifier {
     private static final int VSM = 1;
     private static final int HVSM = 2;
     int MODEL;
+    //! number of descriptors written for each document (0 means all of them)
+    int topK = 0;
+    //! descriptors with a lower score are not written
+    double minScore = Double.NEGATIVE_INFINITY;
+    //! number of threads classifying documents
+    int numThreads = 1;
+    //! documents given to each thread at a time
+    private static final int DOCUMENTS_PER_THREAD = 64;
+    //! are we measuring the stages of the classification?
+    boolean metrics = false;
 
     public UnsupervisedClassifier() {
         doingStemming = false;
@@ -127,6 +139,33 @@ public class UnsupervisedClassifier {
 
                 processedOptions[5] = true;
 
+            } else if (arg.trim().startsWith("-topK=")) {
+                try {
+                    this.topK = Integer.parseInt(arg.trim().substring(6).trim());
+                } catch (NumberFormatException ex) {
+                    System.err.println("ERROR: -topK must be an integer. Exiting.");
+                    System.exit(-1);
+                }
+            } else if (arg.trim().startsWith("-minScore=")) {
+                try {
+                    this.minScore = Double.parseDouble(arg.trim().substring(10).trim());
+                } catch (NumberFormatException ex) {
+                    System.err.println("ERROR: -minScore must be a number. Exiting.");
+                    System.exit(-1);
+                }
+            } else if (arg.trim().startsWith("-threads=")) {
+                try {
+                    this.numThreads = Integer.parseInt(arg.trim().substring(9).trim());
+                } catch (NumberFormatException ex) {
+                    System.err.println("ERROR: -threads must be an integer. Exiting.");
+                    System.exit(-1);
+                }
+                if (this.numThreads < 1) {
+                    System.err.println("ERROR: -threads must be at least 1. Exiting.");
+                    System.exit(-1);
+                }
+            } else if (arg.trim().startsWith("-metrics=")) {
+                this.metrics = ("yes".compareTo(arg.trim().substring(9).trim()) == 0);
             } else {
                 System.err.println("Unrecognized argument " + arg);
                 this.usage();
@@ -162,7 +201,11 @@ public class UnsupervisedClassifier {
                 cm = new BNClassifier(this.thesaurusIndexFileName, this.stopwordsFileName, this.doingStemming, false, this.phrases);
         }
 
+        cm.setTopK(this.topK);
+        cm.setMinScore(this.minScore);
+
         System.out.println("Classifier running...");
+        Metrics.enable(this.metrics);
 
         try {
             BufferedReader buff = new BufferedReader(new FileReader(this.collectionFileName));
@@ -170,28 +213,20 @@ public class UnsupervisedClassifier {
 
             String s = buff.readLine(); // number of lines... it is not used here
 
-            while (buff.ready()) {
-                s = buff.readLine();
-
-                StringTokenizer st = new StringTokenizer(s);
-                String num = st.nextToken();
+            if (this.numThreads > 1) {
+                this.classifyInParallel(cm, buff, obuff);
+            } else {
+                while (buff.ready()) {
+                    s = buff.readLine();
 
-                s = st.nextToken("\n");
+                    StringTokenizer st = new StringTokenizer(s);
+                    String num = st.nextToken();
 
-                List<Result> l = cm.classifyString(s);
+                    s = st.nextToken("\n");
 
-                StringBuilder sb = new StringBuilder(num + " ");
+                    List<Result> l = cm.classifyString(s);
 
-                if (l.size() > 0) {
-                    int rank = 1;
-                    for (Result r : l) {
-                        obuff.write(num + " " + r.getDescriptor().getId() + " " + rank + " " + r.getProb());
-                        obuff.newLine();
-                        ++rank;
-                    }
-                } else {
-                    obuff.write(num + " " + 0 + " " + 0 + " " + 0.0);
-                    obuff.newLine();
+                    writeResults(obuff, num, l);
                 }
             }
 
@@ -203,6 +238,88 @@ public class UnsupervisedClassifier {
             System.exit(-1);
         }
         System.out.println("Classifier finished!");
+        if (this.metrics) {
+            Metrics.print(System.out);
+        }
+    }
+
+    /** Writes the (ranked) descriptors of a document */
+    private static void writeResults(BufferedWriter obuff, String num, List<Result> l) throws IOException {
+        long t = Metrics.start();
+        if (l.size() > 0) {
+            int rank = 1;
+            for (Result r : l) {
+                obuff.write(num + " " + r.getDescriptor().getId() + " " + rank + " " + r.getProb());
+                obuff.newLine();
+                ++rank;
+            }
+        } else {
+            obuff.write(num + " " + 0 + " " + 0 + " " + 0.0);
+            obuff.newLine();
+        }
+        Metrics.stop(Metrics.Stage.OUTPUT, t);
+    }
+
+    /** Classifies the documents with several threads. They are read in blocks
+     * and classified by the workers (each one with its own context of the
+     * model), and the results are written in the order of the documents, so the
+     * output is the same as in the sequential classification.
+     */
+    private void classifyInParallel(final ClassifierModel cm, BufferedReader buff, BufferedWriter obuff) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(this.numThreads);
+        final ClassifierModel.Context[] contexts = new ClassifierModel.Context[this.numThreads];
+        for (int i = 0; i < contexts.length; ++i) {
+            contexts[i] = cm.newContext();
+        }
+
+        int blockSize = this.numThreads * DOCUMENTS_PER_THREAD;
+        List<String> nums = new ArrayList<String>(blockSize);
+        final List<String> texts = new ArrayList<String>(blockSize);
+        final List<List<Result>> results = new ArrayList<List<Result>>(blockSize);
+
+        try {
+            while (buff.ready()) {
+                nums.clear();
+                texts.clear();
+                results.clear();
+                while (nums.size() < blockSize && buff.ready()) {
+                    StringTokenizer st = new StringTokenizer(buff.readLine());
+                    nums.add(st.nextToken());
+                    texts.add(st.nextToken("\n"));
+                    results.add(null);
+                }
+
+                // worker w classifies the documents w, w+numThreads, w+2*numThreads...
+                List<Future<Void>> done = new ArrayList<Future<Void>>();
+                for (int w = 0; w < contexts.length && w < texts.size(); ++w) {
+                    final int worker = w;
+                    done.add(pool.submit(new Callable<Void>() {
+                        public Void call() {
+                            for (int i = worker; i < texts.size(); i += contexts.length) {
+                                results.set(i, cm.classifyString(texts.get(i), contexts[worker]));
+                            }
+                            return null;
+                        }
+                    }));
+                }
+                for (Future<Void> f : done) {
+                    f.get();
+                }
+
+                for (int i = 0; i < nums.size(); ++i) {
+                    writeResults(obuff, nums.get(i), results.get(i));
+                }
+            }
+
+        } catch (InterruptedException ex) {
+            System.err.println("ERROR. Classification interrupted. Exiting. " + ex);
+            System.exit(-1);
+        } catch (ExecutionException ex) {
+            System.err.println("ERROR. Classification failed. Exiting. " + ex.getCause());
+            System.exit(-1);
+        } finally {
+            pool.shutdown();
+        }
     }
 
     public void usage() {
@@ -214,8 +331,12 @@ public class UnsupervisedClassifier {
         System.err.println(" -output=FILENAME : name of the file with the (unsupervised) classification results");
         System.err.println(" -exactPhrases=(yes|no): tells if we are using exact phrases or not (no effect with VSM and HVSM models)");
         //System.err.println(" -nIdf=(yes|no): tells if we are using nidf or not ");
-        System.err.println(" [-stemming=(en/es)] : tells if we are doing stemming (optional parameter)");
+        System.err.println(" [-stemming=LANGUAGE] : tells if we are doing stemming, and the language (es, en, fr, de, it, pt, nl, da, sv, no, fi, hu, ru) (optional parameter)");
         System.err.println(" -stopwords=FILENAME : name of the stopwords file");
+        System.err.println(" [-topK=N] : number of descriptors written for each document, all if 0 (optional parameter)");
+        System.err.println(" [-minScore=X] : descriptors with a lower score are not written (optional parameter)");
+        System.err.println(" [-threads=N] : number of threads classifying documents, 1 by default (optional parameter)");
+        System.err.println(" [-metrics=(yes|no)] : writes the latency of each stage of the classification at the end (optional parameter)");
         System.exit(-1);
     }
 
@@ -225,7 +346,7 @@ public class UnsupervisedClassifier {
         classifier.processArguments(args);
 
         //! argument processing
-        if (args.length != 7 && args.length != 8) {
+        if (args.length < 7 || args.length > 12) {
             classifier.usage();
         }
 
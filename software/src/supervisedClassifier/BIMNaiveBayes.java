@@ -33,8 +33,26 @@
 package supervisedClassifier;
 import java.util.*;
 import indexation.*;
+import base.Metrics;
+import base.SparseVector;
 
 /**
+ * Binary independence model: a document is the set of terms present in it,
+ * and every term of the vocabulary counts, present or absent.
+ *
+ * The probabilities are ratios of integers (numbers of documents), so their
+ * logarithms are differences of logarithms of integers, read from a table:
+ *
+ *   p = (1 + n_tc) / (2 + N_c)                 (term t in documents of class c)
+ *   q = (1 + n_t - n_tc) / (2 + D - N_c)       (term t in documents out of c)
+ *
+ * The logarithm of the probability of a document is the sum over all the
+ * vocabulary of log(1-p), which is computed once, plus log(p) - log(1-p) for
+ * the terms present in the document. For the classes a term does not appear
+ * in (n_tc = 0) this last value is -log(1 + N_c) (Y) and
+ * log(1 + n_t) - log(1 + D - N_c - n_t) (N), so it only depends on the number
+ * of documents of the class: classes with the same number of documents share
+ * it, and only the postings of the terms are corrected.
  *
  * @author aeromero
  */
@@ -46,6 +64,22 @@ public final class BIMNaiveBayes  extends GenericNaiveBayes
     //! inverse of the denominator for negative probabilities
     protected HashMap<Integer, Double> inverseDenomN;
     
+    //! postings of the terms: log(p) - log(1-p) (logY) and log(q) - log(1-q) (logN),
+    //  and their difference with the value for the classes the term is not in (deltaY, deltaN)
+    private LogProbabilityTable presence;
+    
+    //! logarithm of each integer from 0 to numDocuments + 2
+    private double[] logInt;
+    
+    //! sum of log(1-p) and log(1-q) over the vocabulary, for each class (rank)
+    private double[] totalY, totalN;
+    
+    //! number of documents of each term
+    private int[] termNumDocs;
+    
+    //! distinct numbers of documents of the classes, and the one of each class (rank)
+    private int[] groupNumDocs, classGroup;
+    
     public double computeProbN(ClassifiedTerm ct, int freqOnDoc, int classId )
     {
         double prob = (1.0 + ct.getNumDocs() - ct.getNumDocsPerClass(classId)) * this.inverseDenomN.get(classId);
@@ -63,6 +97,7 @@ public final class BIMNaiveBayes  extends GenericNaiveBayes
     /** Creates a new instance of BIMNaiveBayes */
     public BIMNaiveBayes(String classIndexName) {
         super(classIndexName, FOR_EACH_TERM);
+        super.mode_naiveBayes = GenericNaiveBayes.BINARY_NAIVE_BAYES_FOR_EACH_CLASS;
         inverseDenomY = new HashMap<Integer, Double>();
         inverseDenomN = new HashMap<Integer, Double>();
         
@@ -74,19 +109,184 @@ public final class BIMNaiveBayes  extends GenericNaiveBayes
             double Ni = super.numDocs.get(i);
             this.inverseDenomY.put(i, 1.0 / (N + Ni));
             this.inverseDenomN.put(i, 1.0 / (N + super.numDocuments - Ni));
-            
-            double probY = 1.0, probN = 1.0;
-            for (int j=0; j<cl.size(); ++j)
+        }
+        
+        this.computeLogProbabilities(classes);
+    }
+    
+    /** Logarithm of an integer (from the table if it is there) */
+    private double log(int m)
+    {
+        return (m >= 0 && m < logInt.length) ? logInt[m] : Math.log(m);
+    }
+    
+    /** Computes the postings, the sums over the vocabulary (probYTotal and
+     * probNTotal, in log space) and the groups of classes */
+    private void computeLogProbabilities(Set<Integer> classes)
+    {
+        LogProbabilityTable lp = new LogProbabilityTable(super.cl, classes);
+        int D = super.numDocuments, V = super.cl.size(), C = lp.getNumClasses();
+        
+        logInt = new double[D + 3];
+        for (int m=0; m<logInt.length; ++m)
+            logInt[m] = Math.log(m);
+        
+        // number of documents of each term, and number of terms with each one
+        termNumDocs = new int[V];
+        int maxNumDocs = 0;
+        for (int t=0; t<V; ++t)
+        {
+            termNumDocs[t] = cl.getTermById(t).getNumDocs();
+            maxNumDocs = Math.max(maxNumDocs, termNumDocs[t]);
+        }
+        int[] numTerms = new int[maxNumDocs + 1];
+        for (int t=0; t<V; ++t)
+            ++numTerms[termNumDocs[t]];
+        
+        // groups of classes with the same number of documents
+        int[] Nc = new int[C];
+        for (int c=0; c<C; ++c)
+            Nc[c] = super.numDocs.get(lp.classIds[c]);
+        int[] sorted = Nc.clone();
+        Arrays.sort(sorted);
+        int G = 0;
+        for (int c=0; c<C; ++c)
+            if (G == 0 || sorted[c] != sorted[G-1])
+                sorted[G++] = sorted[c];
+        groupNumDocs = new int[G];
+        System.arraycopy(sorted, 0, groupNumDocs, 0, G);
+        classGroup = new int[C];
+        for (int c=0; c<C; ++c)
+            classGroup[c] = Arrays.binarySearch(groupNumDocs, Nc[c]);
+        
+        // sums over the vocabulary as if no term appeared in the class
+        // (terms with n_t > D - N_c must appear in it, so they are left for the postings)
+        double[] groupTotalN = new double[G];
+        for (int g=0; g<G; ++g)
+        {
+            int limit = D - groupNumDocs[g];
+            double sum = -V * log(2 + limit);
+            for (int n=0; n<=Math.min(limit, maxNumDocs); ++n)
+                if (numTerms[n] > 0)
+                    sum += numTerms[n] * log(1 + limit - n);
+            groupTotalN[g] = sum;
+        }
+        totalY = new double[C];
+        totalN = new double[C];
+        for (int c=0; c<C; ++c)
+        {
+            lp.classDefaultY[c] = -log(1 + Nc[c]);
+            totalY[c] = V * (log(1 + Nc[c]) - log(2 + Nc[c]));
+            totalN[c] = groupTotalN[classGroup[c]];
+        }
+        
+        // postings, and their corrections to the sums
+        for (int t=0; t<V; ++t)
+        {
+            ClassifiedTerm ct = cl.getTermById(t);
+            int n = termNumDocs[t];
+            int[] myClasses = ct.getClasses(), docs = ct.getDocs();
+            int j = lp.termOffsets[t];
+            for (int k=0; k<ct.getNumClasses(); ++k)
             {
-                probY *= this.computeProbY(cl.getTermById(j), 0, i);
-                probN *= this.computeProbY(cl.getTermById(j), 0, i);
+                int c = lp.classIndexOf(myClasses[k]);
+                if (c < 0)
+                    continue;
+                int limit = D - Nc[c];
+                lp.logY[j] = log(1 + docs[k]) - log(1 + Nc[c] - docs[k]);
+                lp.logN[j] = log(1 + n - docs[k]) - log(1 + limit - n + docs[k]);
+                lp.deltaY[j] = lp.logY[j] - lp.classDefaultY[c];
+                lp.deltaN[j] = lp.logN[j];
+                
+                totalY[c] += log(1 + Nc[c] - docs[k]) - log(1 + Nc[c]);
+                totalN[c] += log(1 + limit - n + docs[k]);
+                if (n <= limit)
+                {
+                    totalN[c] -= log(1 + limit - n);
+                    lp.deltaN[j] -= log(1 + n) - log(1 + limit - n);
+                }
+                ++j;
             }
-            super.probNTotal.put(i, probN);
-            super.probYTotal.put(i, probY);            
         }
         
+        for (int c=0; c<C; ++c)
+        {
+            super.probYTotal.put(lp.classIds[c], totalY[c]);
+            super.probNTotal.put(lp.classIds[c], totalN[c]);
+        }
+        presence = lp;
+    }
+    
+    /** Receives a list of pairs (term_identifier, frequency) and returs a list of (class_identifiers, relevance).
+     * Same result as GenericNaiveBayes (FOR_EACH_TERM), but the cost depends on the
+     * terms of the document and their postings, not on the vocabulary */
+    @Override
+    public HashMap<Integer, Double> classifyDocument(SparseVector _document, int docId)
+    {
+        if (GenericNaiveBayes._DEBUGGING)
+            return super.classifyDocument(_document, docId);
+        
+        long t0 = Metrics.start();
+        LogProbabilityTable lp = this.presence;
+        int numClasses = lp.getNumClasses(), D = super.numDocuments;
+        SparseVector document = super.translateVector(_document);
+        
+        // 1.- "a priori" probability of each class and sums over the vocabulary
+        double[] proby = new double[numClasses], probn = new double[numClasses];
+        boolean[] used = new boolean[numClasses];
+        for (int c=0; c<numClasses; ++c)
+        {
+            double prob = getAPRiori(lp.classIds[c], docId);
+            if (prob > 0.0)
+            {
+                used[c] = true;
+                proby[c] = Math.log(prob) + totalY[c];
+                probn[c] = Math.log(1.0 - prob) + totalN[c];
+            }
+        }
+        
+        // 2.- terms present in the document: the value for the classes they are
+        //  not in (for each group of classes), and the correction of the postings
+        long t = Metrics.start();
+        double[] groupSum = new double[groupNumDocs.length];
+        for (int k=0; k<document.size(); ++k)
+        {
+            int term = document.getTerm(k), n = termNumDocs[term];
+            for (int g=0; g<groupNumDocs.length; ++g)
+            {
+                int limit = D - groupNumDocs[g];
+                if (n <= limit)
+                    groupSum[g] += log(1 + n) - log(1 + limit - n);
+            }
+            for (int j=lp.termOffsets[term]; j<lp.termOffsets[term+1]; ++j)
+            {
+                int c = lp.termClasses[j];
+                if (used[c])
+                {
+                    proby[c] += lp.deltaY[j];
+                    probn[c] += lp.deltaN[j];
+                }
+            }
+        }
+        
+        for (int c=0; c<numClasses; ++c)
+        {
+            if (used[c])
+            {
+                proby[c] += document.size() * lp.classDefaultY[c];
+                probn[c] += groupSum[classGroup[c]];
+            }
+        }
+        Metrics.stop(Metrics.Stage.NAIVE_BAYES, t);
+        
+        // 3.- we compute and normalize probabilities
+        HashMap<Integer, Double> ret = new HashMap<Integer, Double>();
+        for (int c=0; c<numClasses; ++c)
+            if (used[c])
+                ret.put(lp.classIds[c], proby[c] - this.logsumexp(proby[c], probn[c]));
+        
+        Metrics.stop(Metrics.Stage.DOCUMENT, t0);
+        return ret;
     }
     
 }
-
-
@@ -54,7 +54,7 @@ public class ClassifiedStringIndexer extends StringIndexer<ClassifiedTerm, Class
         id = l.size();
         t.setId(id);
         l.add(t);
-        this.freq.put(id, 1);
+        this.freq.add(id);
     }
 }
 
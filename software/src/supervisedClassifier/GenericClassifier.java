@@ -33,8 +33,8 @@
 
 package supervisedClassifier;
 
+import base.SparseVector;
 import indexation.*;
-import java.io.*;
 import java.util.*;
 
 /**
@@ -62,50 +62,21 @@ abstract public class GenericClassifier {
     
     //! Lexicon to translate vectors
     ProcessedLexicon pl;
+    
+    //! identifier in "cl" of each term of "pl"
+    int[] translation;
+    
+    //! builder of the translated vectors
+    SparseVector.Builder translationBuilder = new SparseVector.Builder();
    
     public GenericClassifier(String classIndexName) {
-        int line = 1;
-        try {
-          BufferedReader in = new BufferedReader(new FileReader(classIndexName));
-        
-          // 1.- we read the lexicon
-          cl = new ClassifiedLexicon();
-          cl.read(in);
-          
-          // 2.- we read the number of classes and documents
-          this.numClasses = Integer.parseInt(in.readLine());
-          this.numDocuments = Integer.parseInt(in.readLine());
-          
-          // 3.- we initialize the arrays and fill them
-          numDocs = new HashMap<Integer, Integer>(numClasses);
-          totalFreq = new HashMap<Integer, Integer>(numClasses);
-          
-          // for each class (stored in one line...)
-          for (int i=0; i<numClasses; ++i)
-          {
-            // we read the line and tokenize it
-            StringTokenizer st = new StringTokenizer(in.readLine());
-            
-            // should have three tokens...
-            int classID = Integer.parseInt(st.nextToken());
-            int numDocz = Integer.parseInt(st.nextToken());
-            int myFreq = Integer.parseInt(st.nextToken());
-            
-            // we insert the values on the arrays
-            numDocs.put(classID, numDocz);
-            totalFreq.put(classID, myFreq);          
-          }
-        
-        } catch (FileNotFoundException ex) {
-          System.err.println("ERROR: file " + classIndexName + " does not exist. Exiting.");
-          System.exit(-1);
-        } catch (NumberFormatException ex) {
-          System.err.println("ERROR: number expected at line " + line + " of file " + classIndexName + " was not found. Exiting.");
-          System.exit(-1);
-        } catch (IOException ex){
-          System.err.println("ERROR: file " + classIndexName + " could not be read. Exiting.");
-          System.exit(-1);
-        }
+        // 1.- we read the lexicon, the number of classes and documents and the classes
+        ClassIndex index = ClassIndex.read(classIndexName);
+        cl = index.getLexicon();
+        this.numClasses = index.getNumClasses();
+        this.numDocuments = index.getNumDocuments();
+        numDocs = index.getNumDocs();
+        totalFreq = index.getTotalFreq();
               
         // 4.- we compute the apriori for each class
         apriori = new HashMap<Integer, Double>();
@@ -124,24 +95,28 @@ abstract public class GenericClassifier {
     public void setProcessedLexicon(ProcessedLexicon myPl)
     {
         pl = myPl;
+        
+        // identifier in "cl" of each term of "pl" (-1 if it is not in "cl")
+        translation = new int[pl.size()];
+        for (int t=0; t<translation.length; ++t)
+            translation[t] = cl.getTermIdByString(pl.getTermById(t).getString());
     }
     
-    public Map<Integer, Integer> translateVector(Map<Integer, Integer> document)
+    public SparseVector translateVector(SparseVector document)
     {
-        HashMap<Integer, Integer> result = new HashMap<Integer, Integer>();
-        for (int t : document.keySet())
+        for (int k=0; k<document.size(); ++k)
         {
-            String myString = pl.getTermById(t).getString();
-            int myid = cl.getTermIdByString(myString);
+            int t = document.getTerm(k);
+            int myid = (t < translation.length) ? translation[t] : -1;
             if (myid != -1)
-                result.put(myid, document.get(t));
+                translationBuilder.add(myid, document.getFreq(k));
         }
-        return result;
+        return translationBuilder.build();
     }
     
     
     /** Receives a list of pairs (term_identifier, frequency) and the identifier of the document and returs a list of (class_identifiers, relevance)     
      */
-    abstract public HashMap<Integer, Double> classifyDocument(HashMap<Integer, Integer> mp, int docId);    
+    abstract public HashMap<Integer, Double> classifyDocument(SparseVector mp, int docId);    
 }
 
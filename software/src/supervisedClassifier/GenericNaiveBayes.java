@@ -33,6 +33,8 @@ package supervisedClassifier;
 
 import todelete.APrioriReader;
 import indexation.*;
+import base.Metrics;
+import base.SparseVector;
 import java.util.*;
 
 /**
@@ -63,6 +65,11 @@ abstract public class GenericNaiveBayes extends GenericClassifier {
     protected boolean USE_TERM_SELECTION = true;
     protected HashMap<Integer, ArrayList<Integer>> selectedterms;
     protected String _classIndexName;
+    //! logarithms of computeProbY and computeProbN (with frequency 1), if the
+    //  model computes them in advance; then they are used instead of those methods
+    protected LogProbabilityTable logProbabilities = null;
+    //! lowest logarithm of a double (a product under it is 0.0)
+    private static final double LOG_MIN_VALUE = Math.log(Double.MIN_VALUE);
 
     public void enableTermSelection(double confidence, boolean local) {
         SelectiveLG sel = new SelectiveLG(_classIndexName);
@@ -114,16 +121,24 @@ abstract public class GenericNaiveBayes extends GenericClassifier {
 
     /** Receives a list of pairs (term_identifier, frequency) and returs a list of (class_identifiers, relevance)
      */
-    public HashMap<Integer, Double> classifyDocument(HashMap<Integer, Integer> _document, int docId) {
+    public HashMap<Integer, Double> classifyDocument(SparseVector _document, int docId) {
         if (GenericNaiveBayes._DEBUGGING) {
             System.out.println("=== Documento " + docId);
         }
 
+        long t0 = Metrics.start();
         HashMap<Integer, Double> ret = new HashMap<Integer, Double>();
         HashMap<Integer, Double> proby = new HashMap<Integer, Double>();
         HashMap<Integer, Double> probn = new HashMap<Integer, Double>();
 
-        Map<Integer, Integer> document = super.translateVector(_document);
+        SparseVector document = super.translateVector(_document);
+
+        if (this.logProbabilities != null && this.mode_evaluation == GenericNaiveBayes.FOR_EACH_TERM_IN_THE_DOCUMENT
+                && this.mode_naiveBayes == GenericNaiveBayes.BINARY_NAIVE_BAYES_FOR_EACH_CLASS && !GenericNaiveBayes._DEBUGGING) {
+            ret = this.classifyWithLogProbabilities(document, docId);
+            Metrics.stop(Metrics.Stage.DOCUMENT, t0);
+            return ret;
+        }
 
         // set of classes this document could be classified under
         Set<Integer> classes = super.numDocs.keySet();
@@ -139,39 +154,34 @@ abstract public class GenericNaiveBayes extends GenericClassifier {
         }
 
         // 2.- A posteriori probability computation
+        long t = Metrics.start();
         if (this.mode_evaluation == GenericNaiveBayes.FOR_EACH_TERM) {
 
-            Set<Integer> termsOfDocument = document.keySet();
-
-            // ================================= MAL =================================
+            // probYTotal and probNTotal are the sums over the vocabulary of the
+            // logarithms of the probabilities of absence; for each term present in
+            // the document, the absence is replaced by the presence
 
-            // for each class with prior probability
-            for (int i : probYTotal.keySet()) {
+            for (int i : proby.keySet()) // for each class i... (with proby > 0.0)
+            {
                 double _proby = this.probYTotal.get(i);
                 double _probn = this.probNTotal.get(i);
 
-                for (int term : document.keySet()) {
-                    ClassifiedTerm cterm = cl.getTermById(term);
-                    int freqT = document.get(term);
-
+                for (int k = 0; k < document.size(); ++k) {
+                    ClassifiedTerm cterm = cl.getTermById(document.getTerm(k));
 
-                    double _py = Math.log(this.computeProbY(cterm, freqT, i));
-                    double _pn = Math.log(this.computeProbN(cterm, freqT, i));
-
-                    _proby = _proby + _py - Math.log(1.0 - _py);
-                    _probn = _probn + _pn - Math.log(1.0 - _pn);
+                    _proby += Math.log(this.computeProbY(cterm, 1, i)) - Math.log(this.computeProbY(cterm, 0, i));
+                    _probn += Math.log(this.computeProbN(cterm, 1, i)) - Math.log(this.computeProbN(cterm, 0, i));
                 }
 
                 proby.put(i, proby.get(i) + _proby);
                 probn.put(i, probn.get(i) + _probn);
             }
 
-            // ================================= FIN MAL =================================
-
         } else if (this.mode_evaluation == GenericNaiveBayes.FOR_EACH_TERM_IN_THE_DOCUMENT) {
 
             // 2.1.- For each term in the document, proby and probn are computed
-            for (int term : document.keySet()) {
+            for (int k = 0; k < document.size(); ++k) {
+                int term = document.getTerm(k);
                 if (this.selectedterms.containsKey(term)) {
 
                     ClassifiedTerm cterm = cl.getTermById(term);
@@ -180,7 +190,7 @@ abstract public class GenericNaiveBayes extends GenericClassifier {
                         System.out.println("Term " + term + " " + cterm.getString());
                     }
 
-                    int freqT = document.get(term);
+                    int freqT = document.getFreq(k);
 
                     if (GenericNaiveBayes._DEBUGGING) {
                         System.out.println(" => Frecuencia : " + freqT);
@@ -219,6 +229,8 @@ abstract public class GenericNaiveBayes extends GenericClassifier {
         }
 
 
+        Metrics.stop(Metrics.Stage.NAIVE_BAYES, t);
+
         if (GenericNaiveBayes._DEBUGGING) {
             System.out.println("/// Resultados para las clases:");
         }
@@ -241,10 +253,105 @@ abstract public class GenericNaiveBayes extends GenericClassifier {
             }
         }
 
+        Metrics.stop(Metrics.Stage.DOCUMENT, t0);
+        return ret;
+    }
+
+    /** classifyDocument (FOR_EACH_TERM_IN_THE_DOCUMENT, BINARY_NAIVE_BAYES_FOR_EACH_CLASS)
+     * with the logarithms of the table: the probability of a term with frequency
+     * f is f times the logarithm, without computing powers nor logarithms.
+     *
+     * Most terms appear in a few classes, so every class starts from the sum of
+     * the default values of the terms (as if no term appeared in it), and only
+     * the classes in the postings of each term are corrected: the cost depends
+     * on the postings, not on the number of classes.
+     * @param document vector of the document, already translated
+     */
+    private HashMap<Integer, Double> classifyWithLogProbabilities(SparseVector document, int docId) {
+        LogProbabilityTable lp = this.logProbabilities;
+        int numClasses = lp.getNumClasses();
+
+        // 1.- "a priori" probability of each class (only classes with positive prior are used)
+        double[] proby = new double[numClasses], probn = new double[numClasses];
+        boolean[] used = new boolean[numClasses];
+        for (int c = 0; c < numClasses; ++c) {
+            double prob = getAPRiori(lp.classIds[c], docId);
+            if (prob > 0.0) {
+                used[c] = true;
+                proby[c] = Math.log(prob);
+                probn[c] = Math.log(1.0 - prob);
+            }
+        }
+
+        // 2.- for each term in the document, the classes of its postings are
+        //  corrected, and its default values are added to the sums
+        long t = Metrics.start();
+        double sumFreq = 0.0, sumDefaultY = 0.0, sumDefaultN = 0.0;
+        for (int k = 0; k < document.size(); ++k) {
+            int term = document.getTerm(k);
+            if (!this.selectedterms.containsKey(term)) {
+                continue;
+            }
+            int freqT = document.getFreq(k);
+            int j = lp.termOffsets[term], end = lp.termOffsets[term + 1];
+
+            if (freqT * lp.lowest[term] >= LOG_MIN_VALUE) {
+                sumFreq += freqT;
+                sumDefaultY += freqT * lp.termDefaultY[term];
+                sumDefaultN += freqT * lp.termDefaultN[term];
+                for (; j < end; ++j) {
+                    int c = lp.termClasses[j];
+                    if (used[c]) {
+                        proby[c] += freqT * lp.deltaY[j];
+                        probn[c] += freqT * lp.deltaN[j];
+                    }
+                }
+                continue;
+            }
+
+            // some probability of the term is 0.0 as a double (very high frequency):
+            // the classes are visited in order along with the postings of the term
+            double defaultY = lp.termDefaultY[term], defaultN = lp.termDefaultN[term];
+
+            for (int c = 0; c < numClasses; ++c) {
+                double _proby, _probn;
+                if (j < end && lp.termClasses[j] == c) {
+                    _proby = freqT * lp.logY[j];
+                    _probn = freqT * lp.logN[j];
+                    ++j;
+                } else {
+                    _proby = freqT * (defaultY + lp.classDefaultY[c]);
+                    _probn = freqT * (defaultN + lp.classDefaultN[c]);
+                }
+
+                // as before, a probability which is 0.0 as a double is not counted
+                if (used[c] && _proby >= LOG_MIN_VALUE && _probn >= LOG_MIN_VALUE) {
+                    proby[c] += _proby;
+                    probn[c] += _probn;
+                }
+            }
+        }
+
+        // 2.1.- the default values, for all the classes
+        for (int c = 0; c < numClasses; ++c) {
+            if (used[c]) {
+                proby[c] += sumDefaultY + sumFreq * lp.classDefaultY[c];
+                probn[c] += sumDefaultN + sumFreq * lp.classDefaultN[c];
+            }
+        }
+        Metrics.stop(Metrics.Stage.NAIVE_BAYES, t);
+
+        // 3.- we compute and normalize probabilities
+        HashMap<Integer, Double> ret = new HashMap<Integer, Double>();
+        for (int c = 0; c < numClasses; ++c) {
+            if (used[c]) {
+                ret.put(lp.classIds[c], proby[c] - this.logsumexp(proby[c], probn[c]));
+            }
+        }
         return ret;
     }
 
-    private double logsumexp(double a0, double b0) {
+    protected double logsumexp(double a0, double b0) {
         double a = Math.max(a0, b0);
         double b = Math.min(a0, b0);
 
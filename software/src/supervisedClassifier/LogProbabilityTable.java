@@ -0,0 +1,139 @@
+/*
+ *
+ *   ReBayCT: a tool for classification on a Thesaurus
+ *
+ *	For details see:
+ *	 L. M. de Campos, A. E. Romero, Bayesian Network Models for Hierarchical Text
+ *	Classification from a Thesaurus, Int. J. Approx. Reasoning 50(7): 932-944 (2009).
+ *
+ *
+ *   Copyright (C) 2006-2008 Alfonso E. Romero <alfonsoeromero (AT) gmail (DOT) com>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package supervisedClassifier;
+
+import indexation.*;
+import java.util.*;
+
+/**
+ * Logarithms of the probabilities of the terms given each class (Y) and
+ * given its complement (N), computed once when the model is built.
+ *
+ * Classes are numbered by their rank among the sorted class identifiers. The
+ * values are only stored for the classes a term appears in (its postings, in
+ * the same order as in the ClassifiedTerm), CSR-style: the postings of term t
+ * are termOffsets[t]..termOffsets[t+1] of termClasses, logY and logN. For the
+ * rest of the classes the value is termDefault[t] + classDefault[c], as the
+ * smoothed estimates only depend on the class and on the term totals there.
+ *
+ * Once the values are set, computeDeltas() stores for each posting its
+ * difference with the default value, so that a document can be scored from
+ * the defaults of each class plus a correction for the postings of its terms.
+ */
+public class LogProbabilityTable {
+    //! identifier of each class, sorted
+    final int[] classIds;
+
+    //! postings of each term: class (rank) and logarithms
+    final int[] termOffsets, termClasses;
+    final double[] logY, logN;
+
+    //! logarithms for the classes a term does not appear in
+    final double[] termDefaultY, termDefaultN;
+    final double[] classDefaultY, classDefaultN;
+
+    //! logY and logN minus the default value, for each posting
+    final double[] deltaY, deltaN;
+
+    //! lowest logarithm of each term (in any class, Y or N)
+    final double[] lowest;
+
+    /** Allocates the table for the terms of a lexicon (the values are set by the model)
+     * @param cl lexicon with the postings of the terms
+     * @param classes identifiers of the classes
+     */
+    LogProbabilityTable(ClassifiedLexicon cl, Set<Integer> classes) {
+        classIds = new int[classes.size()];
+        int c = 0;
+        for (int id : classes)
+            classIds[c++] = id;
+        Arrays.sort(classIds);
+
+        int numTerms = cl.size();
+        termOffsets = new int[numTerms + 1];
+        for (int t=0; t<numTerms; ++t) {
+            ClassifiedTerm ct = cl.getTermById(t);
+            int[] myClasses = ct.getClasses();
+            int n = 0;
+            for (int k=0; k<ct.getNumClasses(); ++k)
+                if (classIndexOf(myClasses[k]) >= 0)
+                    ++n;
+            termOffsets[t+1] = termOffsets[t] + n;
+        }
+
+        termClasses = new int[termOffsets[numTerms]];
+        for (int t=0; t<numTerms; ++t) {
+            ClassifiedTerm ct = cl.getTermById(t);
+            int[] myClasses = ct.getClasses();
+            int j = termOffsets[t];
+            for (int k=0; k<ct.getNumClasses(); ++k) {
+                int ci = classIndexOf(myClasses[k]);
+                if (ci >= 0)
+                    termClasses[j++] = ci;
+            }
+        }
+
+        logY = new double[termClasses.length];
+        logN = new double[termClasses.length];
+        termDefaultY = new double[numTerms];
+        termDefaultN = new double[numTerms];
+        classDefaultY = new double[classIds.length];
+        classDefaultN = new double[classIds.length];
+        deltaY = new double[termClasses.length];
+        deltaN = new double[termClasses.length];
+        lowest = new double[numTerms];
+    }
+
+    /** Computes the differences of the postings with the default values, and
+     * the lowest logarithm of each term. It must be called once all the values are set. */
+    void computeDeltas() {
+        double minClassDefault = Double.POSITIVE_INFINITY;
+        for (int c=0; c<classIds.length; ++c)
+            minClassDefault = Math.min(minClassDefault, Math.min(classDefaultY[c], classDefaultN[c]));
+
+        for (int t=0; t<termDefaultY.length; ++t) {
+            double low = Math.min(termDefaultY[t], termDefaultN[t]) + minClassDefault;
+            for (int j=termOffsets[t]; j<termOffsets[t+1]; ++j) {
+                int c = termClasses[j];
+                deltaY[j] = logY[j] - (termDefaultY[t] + classDefaultY[c]);
+                deltaN[j] = logN[j] - (termDefaultN[t] + classDefaultN[c]);
+                low = Math.min(low, Math.min(logY[j], logN[j]));
+            }
+            lowest[t] = low;
+        }
+    }
+
+    /** Rank of a class, -1 if it is not in the table */
+    public int classIndexOf(int classId) {
+        int c = Arrays.binarySearch(classIds, classId);
+        return (c < 0) ? -1 : c;
+    }
+
+    public int getNumClasses() {
+        return classIds.length;
+    }
+}
@@ -90,6 +90,47 @@ public class MultinomialNaiveBayes extends GenericNaiveBayes
             this.inverseDenomN.put(i, 1.0 / (N - Ni + totalFreqOfTerms));        
         }
         
+        this.computeLogProbabilities(classes);
+    }
+    
+    /** Computes the logarithms of computeProbY and computeProbN (frequency 1)
+     * for each term and class. Where the term does not appear the numerators
+     * are 1.0 (Y) and 1.0 + total documental frequency of the term (N). */
+    private void computeLogProbabilities(Set<Integer> classes)
+    {
+        LogProbabilityTable lp = new LogProbabilityTable(super.cl, classes);
+        
+        double[] invY = new double[lp.getNumClasses()], invN = new double[lp.getNumClasses()];
+        for (int c=0; c<invY.length; ++c)
+        {
+            invY[c] = this.inverseDenomY.get(lp.classIds[c]);
+            invN[c] = this.inverseDenomN.get(lp.classIds[c]);
+            lp.classDefaultY[c] = Math.log(invY[c]);
+            lp.classDefaultN[c] = Math.log(invN[c]);
+        }
+        
+        for (int t=0; t<super.cl.size(); ++t)
+        {
+            ClassifiedTerm ct = cl.getTermById(t);
+            double total = ct.getTotalDocumentalFreq();
+            lp.termDefaultY[t] = 0.0;
+            lp.termDefaultN[t] = Math.log(1.0 + total);
+            
+            int[] myClasses = ct.getClasses(), freqs = ct.getFreqs();
+            int j = lp.termOffsets[t];
+            for (int k=0; k<ct.getNumClasses(); ++k)
+            {
+                int c = lp.classIndexOf(myClasses[k]);
+                if (c < 0)
+                    continue;
+                lp.logY[j] = Math.log((1.0 + freqs[k])*invY[c]);
+                lp.logN[j] = Math.log((1.0 + total - freqs[k])*invN[c]);
+                ++j;
+            }
+        }
+        
+        lp.computeDeltas();
+        super.logProbabilities = lp;
     }
     
 }
@@ -34,6 +34,7 @@
 package supervisedClassifier;
 import java.util.*;
 import indexation.*;
+import base.SparseVector;
 
 /**
  *
@@ -89,26 +90,29 @@ public class ORGateClassifier extends GenericClassifier {
     
     /** Receives a list of pairs (term_identifier, frequency) and returs a list of (class_identifiers, relevance)
      */
-    public HashMap<Integer, Double> classifyDocument(HashMap<Integer, Integer> _document, int docId) {
+    public HashMap<Integer, Double> classifyDocument(SparseVector _document, int docId) {
         // return map
         HashMap<Integer, Double> ret = new HashMap<Integer, Double>();
-        Map<Integer, Integer> document = super.translateVector(_document);
+        SparseVector document = super.translateVector(_document);
         
         // set of classes this document could be classified under
         Set<Integer> classes = super.numDocs.keySet();
         //Set<Integer> classes = this.ap.getSetOfAprioriClasses(docId);
         
         // 2.- then, for each term, of the document...
-        for (int term : document.keySet()) {
+        for (int k=0; k<document.size(); ++k) {
+            int term = document.getTerm(k);
+            
             // we get the term
             ClassifiedTerm cterm = cl.getTermById(term);
             
             // for each class of the occurrence
-            Map<Integer, Integer> mp = cterm.getOccurrence();
+            int[] termClasses = cterm.getClasses();
             
             HashMap<Integer, Double> hm = this.weigth.get(term);
             
-            for (int myclass : mp.keySet()) {
+            for (int j=0; j<cterm.getNumClasses(); ++j) {
+                int myclass = termClasses[j];
                 if (ret.containsKey(myclass))
                     ret.put(myclass, ret.get(myclass) * (1.0 - hm.get(myclass)) );
                 else ret.put( myclass, 1.0 - hm.get(myclass) );
@@ -29,6 +29,7 @@ import java.util.*;
 import indexation.*;
 import supervisedClassifier.GenericClassifier;
 import todelete.Chi2;
+import base.SparseVector;
 
 /**
  *
@@ -528,7 +529,7 @@ public class SelectiveLG extends GenericClassifier
     }
     
     //solo por cuestiones de compatibilidad. no sirve para nada realmente
-    public HashMap<Integer, Double> classifyDocument(HashMap<Integer, Integer> mp, int docId) {
+    public HashMap<Integer, Double> classifyDocument(SparseVector mp, int docId) {
         return null;
     }
     
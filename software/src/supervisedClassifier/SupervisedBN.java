@@ -36,9 +36,15 @@ import unsupervisedClassifier.*;
 import thesaurus.*;
 import java.util.*;
 import indexation.*;
-import java.io.*;
+import base.Metrics;
+import base.SparseVector;
 
 /**
+ * Supervised bayesian network classifier. Once built, the model is not
+ * modified: the state of the classification of each document (the weights
+ * of its terms in the classes) is kept in its context, so one model can be
+ * used by several threads at the same time and models with different
+ * strengths can coexist.
  *
  * @author aeromero
  */
@@ -76,97 +82,70 @@ public class SupervisedBN extends BNClassifier
     //! ClassifiedLexicon stores the inverted list of occurrences of term in classes
     ClassifiedLexicon cl;
     
-    //! for each descriptor, the list of weights of a term in it
-    Map<Integer, List<Double>> weights;
-    
-    //! for each descriptor, the weight obtained by classification
-    Map<Integer, Double> probCL;
-    
-    //! to index the text
-    ClassifiedStringIndexer csi;
-    
-    //! Set of term identifiers relative to classified lexicon obtained after processing the document
-    Map<Integer, Integer> classifiedTerms;
+    /** Context of a classification: besides the scratch arrays of
+     * BNClassifier, the indexer of the text with the classified lexicon and
+     * the weights of its terms */
+    protected static class SupervisedContext extends BNClassifier.BNContext {
+        //! for each descriptor, the list of weights of a term in it
+        final Map<Integer, List<Double>> weights = new HashMap<Integer, List<Double>>();
+        
+        //! to index the text
+        final ClassifiedStringIndexer csi = new ClassifiedStringIndexer();
+        
+        //! Set of term identifiers relative to classified lexicon obtained after processing the document
+        SparseVector classifiedTerms = SparseVector.EMPTY;
+        
+        protected SupervisedContext(ClassifierModel model, ClassifiedLexicon cl) {
+            super(model);
+            csi.setLexicon(cl);
+            csi.useOwnStemmer();
+        }
+    }
     
     /** Creates a new instance of SupervisedBN */
     public SupervisedBN(String classIndexName, String indexName, String stopwordsFileName, boolean doingStemming, boolean usingNidf, boolean usingExactPhrases,
             double _strengthThesaurus, double _strengthStructure) {
         super(indexName, stopwordsFileName, doingStemming, usingNidf, usingExactPhrases);
-        csi = new ClassifiedStringIndexer();
         this.readClassIndex(classIndexName);
-        weights = new HashMap<Integer, List<Double>>();
         //System.out.println("Classifier => bayesian network");
-        si = new ThesaurusStringIndexer();
-        si.setLexicon(BNClassifier.lex);
         ThesaurusStringIndexer.setIndexing(false);
         ThesaurusStringIndexer.setStem(true);
         ThesaurusStringIndexer.setStopwordList(stopwordsFileName);
         
         // strength of the thesaurus
         this.strengthThesaurus = _strengthThesaurus;
-        BNClassifier.associativity = _strengthThesaurus;
+        this.associativity = _strengthThesaurus;
         
         this.strengthStructure = _strengthStructure;
-        BNClassifier.associativityb = _strengthStructure;
+        this.associativityb = _strengthStructure;
         
         this.useStructure = this.strengthStructure > 0.0;
         this.useThesaurus = this.strengthThesaurus > 0.0;
     }
     
     private void readClassIndex(String classIndexName) {
-        int line = 1;
-        try {
-            BufferedReader in = new BufferedReader(new FileReader(classIndexName));
-            
-            // 1.- we read the lexicon
-            cl = new ClassifiedLexicon();
-            cl.read(in);
-            
-            // 2.- we read the number of classes
-            numClasses = Integer.parseInt(in.readLine());
-            
-            // 3.- we read the number of documents
-            numDocuments = Integer.parseInt(in.readLine());
-            
-            // 4.- we initialize the arrays and fill them
-            numDocs = new HashMap<Integer, Integer>(numClasses);
-            totalFreq = new HashMap<Integer, Integer>(numClasses);
-            
-            // for each class (stored in one line...)
-            for (int i=0; i<numClasses; ++i) {
-                // we read the line and tokenize it
-                StringTokenizer st = new StringTokenizer(in.readLine());
-                
-                // should have three tokens...
-                int classID = Integer.parseInt(st.nextToken());
-                int _numDocuments = Integer.parseInt(st.nextToken());
-                int myFreq = Integer.parseInt(st.nextToken());
-                
-                // we insert the values on the arrays
-                numDocs.put(classID, _numDocuments);
-                totalFreq.put(classID, myFreq);
-            }
-            
-        } catch (FileNotFoundException ex) {
-            System.err.println("ERROR: file " + classIndexName + " does not exist. Exiting.");
-            System.exit(-1);
-        } catch (NumberFormatException ex) {
-            System.err.println("ERROR: number expected at line " + line + " of file " + classIndexName + " was not found. Exiting.");
-            System.exit(-1);
-        } catch (IOException ex){
-            System.err.println("ERROR: file " + classIndexName + " could not be read. Exiting.");
-            System.exit(-1);
-        }
+        // 1.- we read the lexicon, the number of classes and documents and the classes
+        ClassIndex index = ClassIndex.read(classIndexName);
+        cl = index.getLexicon();
+        numClasses = index.getNumClasses();
+        numDocuments = index.getNumDocuments();
+        numDocs = index.getNumDocs();
+        totalFreq = index.getTotalFreq();
         
         // 5.- ClassifiedStringIndexer initialization
         ClassifiedStringIndexer.setIndexing(false);
-        csi.setLexicon(cl);
         
     }
     
-    private void aggregateWeights() {
-        this.probCL = new HashMap<Integer, Double>();
-        for (Map.Entry<Integer, List<Double>> dsc : this.weights.entrySet()) {
+    @Override
+    public Context newContext() {
+        return new SupervisedContext(this, cl);
+    }
+    
+    /** Returns, for each descriptor, the weight obtained by classification */
+    private Map<Integer, Double> aggregateWeights(SupervisedContext sc) {
+        Map<Integer, Double> probCL = new HashMap<Integer, Double>();
+        for (Map.Entry<Integer, List<Double>> dsc : sc.weights.entrySet()) {
             double w = 1.0;
             int descriptorID = dsc.getKey();
             List<Double> ws = dsc.getValue();
@@ -177,24 +156,27 @@ public class SupervisedBN extends BNClassifier
             
             probCL.put(descriptorID, w);
         }
+        return probCL;
     }
     
     
-    private void computeWeights(String _textToClassify) {
-        csi.clear();
-        csi.add(_textToClassify);
-        this.classifiedTerms = csi.getFreq();
+    private void computeWeights(String _textToClassify, SupervisedContext sc) {
+        sc.csi.clear();
+        sc.csi.add(_textToClassify);
+        SparseVector classifiedTerms = sc.csi.getVector();
+        sc.classifiedTerms = classifiedTerms;
+        Map<Integer, List<Double>> weights = sc.weights;
         weights.clear();
         
-        for (int termId : classifiedTerms.keySet()) {
+        for (int pos=0; pos<classifiedTerms.size(); ++pos) {
             
-            ClassifiedTerm ct = cl.getTermById(termId);
-            Map<Integer, Integer> occ = ct.getOccurrence();
+            ClassifiedTerm ct = cl.getTermById(classifiedTerms.getTerm(pos));
+            int[] classes = ct.getClasses(), freqs = ct.getFreqs();
             
-            for (Map.Entry<Integer, Integer> mp : occ.entrySet()) {
+            for (int k=0; k<ct.getNumClasses(); ++k) {
                 
-                int descriptorId = mp.getKey();
-                int frequency = mp.getValue();
+                int descriptorId = classes[k];
+                int frequency = freqs[k];
                 
                 double weight = 0.0;
                 if (LAPLACE)
@@ -213,40 +195,12 @@ public class SupervisedBN extends BNClassifier
     }
     
     /* Propagates probability from Descriptors to themselves */
-    protected void propagateDToD2(Map<Integer, Double> probC, Map<Integer, Double> probFin) {
-        List<Integer> queue = new ArrayList<Integer> ();
-        for (Map.Entry<Integer, Double> desc : probC.entrySet()) {
-            Descriptor _D = ld.get(desc.getKey());
-            insertDescendantsOnQueue(_D.getId(),queue);
-        }
-        
-        List<Integer> topologicallist = new ArrayList<Integer> ();
-        while  (!queue.isEmpty()) {
-            Integer S = queue.get(0);
-            queue.remove(0);
-            if (!topologicallist.contains(S))
-                topological(S, topologicallist, queue);
-        }
-        while  (!topologicallist.isEmpty()) {
-            Integer S = topologicallist.get(0);
-            topologicallist.remove(0);
-            double acum = 0.0;
-            Descriptor _S = ld.get(S);
-            for (Integer U : _S.getFathers())
-                if (probFin.containsKey(U))
-                    acum += probFin.get(U)/_S.getFathers().size();
-            
-            double assoc = this.strengthStructure;
-            
-            // aquí se pueden probar diferentes esquemas de "assoc"
-            
-            if (probC.containsKey(S))
-                probFin.put(S,1.0-(1.0-assoc*acum)*probC.get(S));
-            else probFin.put(S,1.0-(1.0-assoc*acum));
-        }
+    protected void propagateDToD2(Map<Integer, Double> probC, Map<Integer, Double> probFin, Context c) {
+        // aquí se pueden probar diferentes esquemas de "assoc"
+        propagateStructure(probC, probFin, this.strengthStructure, c);
     }
     
-    List<Result> classify(String textToClassify) {
+    protected List<Result> classify(String textToClassify, Context c) {
         
         if (BNClassifier.DEBUGGING) {
             System.out.println("BAYESIAN");
@@ -256,8 +210,11 @@ public class SupervisedBN extends BNClassifier
         // 0.- we get rid of the accents and other similar stuff
         String _textToClassify = internationalizeText(textToClassify);
         
-        this.computeWeights(textToClassify);
-        this.aggregateWeights(); // fills the value of "probCL"
+        SupervisedContext sc = (SupervisedContext) c;
+        long t = Metrics.start();
+        this.computeWeights(textToClassify, sc);
+        Map<Integer, Double> probCL = this.aggregateWeights(sc);
+        t = Metrics.stop(Metrics.Stage.TRAINING_EVIDENCE, t);
         
         Map<Integer, Double> probC;
         
@@ -268,14 +225,16 @@ public class SupervisedBN extends BNClassifier
             
             // 2.1.- ... we propagate textual probabilities: terms to descriptor and nondescriptor nodes
             if (this.useExactPhrases)
-                propagateTextToDescriptorsWithExactPhrases(probD, probND, _textToClassify);
-            else propagateTextToDescriptorsWithoutExactPhrases(probD, probND);
+                propagateTextToDescriptorsWithExactPhrases(probD, probND, _textToClassify, c);
+            else propagateTextToDescriptorsWithoutExactPhrases(probD, probND, c);
+            t = Metrics.stop(Metrics.Stage.TEXT_TO_DESCRIPTORS, t);
             
             // 2.2.- For each nondescriptor and descriptor node, we propagate to its
             // 	related descriptor, also receiving the probabilities from training data
             probC = probCL;
             
             propagateNDToD(probD, probND, probC);
+            t = Metrics.stop(Metrics.Stage.ND_TO_D, t);
             
             // we clear the maps
             probD = null;
@@ -292,49 +251,45 @@ public class SupervisedBN extends BNClassifier
         Map<Integer, Double> probFin = new HashMap<Integer, Double>();
         
         if (this.useStructure)
-            propagateDToD2(probC, probFin);
+            propagateDToD2(probC, probFin, c);
         
         endsPropagation(probC, probFin); // if structured is not used, it computes each probFin as 1.0 - probC
         // if structure is used, it probably has no effect
+        t = Metrics.stop(Metrics.Stage.D_TO_D, t);
         
         // 4.- We compute nIdf_q for each node, and we make the product of
         //   the probability with that
         
-        if(useNidf)
-            this.computeNIDF(probFin, probCL.keySet());
-        
-        probC = null;
-        List<Result> l = new ArrayList<Result>();
-        
-        
-        for (Map.Entry<Integer, Double> result : probFin.entrySet() ) {
-            if (result.getValue() > 0.0) {
-                Descriptor d = ld.get(result.getKey());
-                l.add(new Result( d, result.getValue() ));
-            }
+        if(useNidf) {
+            this.computeNIDF(probFin, probCL.keySet(), c);
+            t = Metrics.stop(Metrics.Stage.NIDF, t);
         }
         
-        Collections.sort(l, new Comparator<Result>() { public int compare(Result s1, Result s2) { if (s1.getProb() > s2.getProb()) return -1; else return 1; } });
+        probC = null;
+        List<Result> l = rankResults(probFin, true);
+        Metrics.stop(Metrics.Stage.RANKING, t);
         return l;
     }
     
-    private void computeDegCov(Map<Integer, Double> nidf, Map<Integer, Double> degCov) {
+    private void computeDegCov(Map<Integer, Double> nidf, Map<Integer, Double> degCov, Context c) {
+        SparseVector m = c.getVector();
+        SparseVector classifiedTerms = ((SupervisedContext) c).classifiedTerms;
         // Idf computation for each term (thesaurus)
         double sum = 0.0;
-        double N = SupervisedBN.numDescriptors + SupervisedBN.numNonDescriptors;
-        for (Map.Entry<Integer, Integer> termsOfDocument : m.entrySet()) {
-            ThesaurusTerm t = lex.getTermById(termsOfDocument.getKey().intValue());
-            double Ni = t.getDescriptors().size() + t.getNonDescriptors().size();
+        double N = numDescriptors + numNonDescriptors;
+        for (int pos=0; pos<m.size(); ++pos) {
+            int t = m.getTerm(pos);
+            double Ni = graph.getNumPostings(t);
             double myIdf = Math.log10(N/Ni);
             sum += myIdf;
-            nidf.put(t.getId(), myIdf);
+            nidf.put(t, myIdf);
         }
         
         // Idf computation for each term (classified term)
-        N = SupervisedBN.numDescriptors;
+        N = numDescriptors;
         
-        for (Map.Entry<Integer, Integer> termsOfDocument : this.classifiedTerms.entrySet()) {
-            ClassifiedTerm t = this.cl.getTermById(termsOfDocument.getKey().intValue());
+        for (int pos=0; pos<classifiedTerms.size(); ++pos) {
+            ClassifiedTerm t = this.cl.getTermById(classifiedTerms.getTerm(pos));
             double Ni = t.getNumClasses();
             double myIdf = Math.log10(N/Ni);
             sum += myIdf;
@@ -351,95 +306,41 @@ public class SupervisedBN extends BNClassifier
             degCov.put(idfs.getKey(), idfs.getValue()*sum);
     }
     
-    @Override
-    public List<Result> classifyString(String s)
-    {
-        m.clear();
-        si = new ThesaurusStringIndexer();
-        si.setLexicon(BNClassifier.lex);
-        System.err.println("yuyu");
-        System.err.println("yeee " + s);
-        si.add(s);
-        m = si.getFreq();
-        return this.classify(s);
-    }
-    
-    private void computeNIDF(Map<Integer, Double> probFin, Set<Integer> s) {
+    private void computeNIDF(Map<Integer, Double> probFin, Set<Integer> s, Context c) {
         Map<Integer, Double> idf = new HashMap<Integer, Double>();
         Map<Integer, Double> degCov = new HashMap<Integer, Double>();
+        SparseVector m = c.getVector();
+        SparseVector classifiedTerms = ((SupervisedContext) c).classifiedTerms;
         
-        computeDegCov(idf, degCov);
+        computeDegCov(idf, degCov, c);
         
         // Nidf data structure
-        Map<Integer, Double> nidf = new HashMap<Integer, Double>();
+        clearNidf(c);
         
         // STEP 1: we add the IDF to the nidf (only "thesaurus" information)
-        for (Map.Entry<Integer, Integer> termsOfDocument : m.entrySet()) {
-            Set<Integer> descendants = new HashSet<Integer>();
-            Queue<Integer> toProcess = new LinkedList<Integer>();
-            
-            ThesaurusTerm t = lex.getTermById(termsOfDocument.getKey().intValue());
-            for (Map.Entry<Integer, Integer> descriptors : t.getDescriptors())
-                toProcess.add(descriptors.getKey());
-            
-            for (Map.Entry<Integer, Integer> descriptors : t.getNonDescriptors()) {
-                NonDescriptor nd = lnd.get(descriptors.getKey());
-                toProcess.add(nd.getDescriptor());
-            }
-            
-            while(!toProcess.isEmpty()) {
-                Integer top = toProcess.poll();
-                if (!descendants.contains(top)) {
-                    descendants.add(top);
-                    for (Integer i : (ld.get(top)).getDescendants())
-                        if (!descendants.contains(i))
-                            toProcess.add(i);
-                }
-            }
-            
-            for (Integer d : descendants)
-                if (nidf.containsKey(d))
-                    nidf.put(d, nidf.get(d) + idf.get(t.getId()));
-                else nidf.put(d, idf.get(t.getId()));
+        for (int pos=0; pos<m.size(); ++pos) {
+            int t = m.getTerm(pos);
+            addToTermDescendants(c, t, idf.get(t));
         } // for each term's descendant
         
         
         // STEP2: we add to the nidf the idfs of the classified terms
-        for (Map.Entry<Integer, Integer> termsOfDocument : this.classifiedTerms.entrySet()) {
-            Set<Integer> descendants = new HashSet<Integer>();
+        int[] seeds = new int[16];
+        for (int pos=0; pos<classifiedTerms.size(); ++pos) {
+            ClassifiedTerm t = cl.getTermById(classifiedTerms.getTerm(pos));
+            int[] classes = t.getClasses();
+            int numSeeds = t.getNumClasses();
+            if (seeds.length < numSeeds)
+                seeds = new int[numSeeds];
             
-            Queue<Integer> toProcess = new LinkedList<Integer>();
-            ClassifiedTerm t = cl.getTermById(termsOfDocument.getKey().intValue());
-            Map<Integer, Integer> myOcc = t.getOccurrence();
-            for (Map.Entry<Integer, Integer> descriptors : myOcc.entrySet() )
-                toProcess.add(descriptors.getKey());
+            for (int k=0; k<numSeeds; ++k)
+                seeds[k] = graph.positionOf(classes[k]);
             
-            while(!toProcess.isEmpty()) {
-                Integer top = toProcess.poll();
-                if (!descendants.contains(top)) {
-                    descendants.add(top);
-                    for (Integer i : (ld.get(top)).getDescendants())
-                        if (!descendants.contains(i))
-                            toProcess.add(i);
-                }
-            }
-            
-            for (Integer d : descendants)
-                if (nidf.containsKey(d))
-                    nidf.put(d, nidf.get(d) + degCov.get(t.getId()));
-                else nidf.put(d, degCov.get(t.getId()));
+            addToDescendants(c, seeds, numSeeds, degCov.get(t.getId()));
         }
         
         // we recalculate the probability as probFin * nidf
-        
-        for (Map.Entry<Integer, Double> it : probFin.entrySet()) {
-            int i = it.getKey();
-            if (nidf.containsKey(i)) {
-                double prob = it.getValue();
-                probFin.put( i, prob * nidf.get(i) );
-            } else probFin.put( i, 0.0 );
-        }
-        
+        applyNidf(probFin, c);
     }
     
 }
@@ -0,0 +1,336 @@
+/*
+ *
+ *   ReBayCT: a tool for classification on a Thesaurus
+ *
+ *	For details see:
+ *	 L. M. de Campos, A. E. Romero, Bayesian Network Models for Hierarchical Text
+ *	Classification from a Thesaurus, Int. J. Approx. Reasoning 50(7): 932-944 (2009).
+ *
+ *
+ *   Copyright (C) 2006-2008 Alfonso E. Romero <alfonsoeromero (AT) gmail (DOT) com>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package thesaurus;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import base.BinaryIO;
+
+/**
+ * Binary format of a thesaurus index, an alternative to the text file written
+ * by IndexBuilder.writeIndex with the same contents.
+ *
+ * The file starts with a header (magic number, version and number of sections)
+ * followed by a table with the identifier, offset and length of every section.
+ * All the numbers are big-endian, strings are stored as their length in bytes
+ * followed by their UTF-8 encoding. The file is opened with FileChannel.map and
+ * each section is only decoded when it is asked for.
+ *
+ * Sections:
+ *  LEXICON: number of terms, and for each term its numDocs and string.
+ *  WEIGHTS: descriptor and nondescriptor weights of each term (see ThesaurusGraph).
+ *  GRAPH: descriptors in topological order and their relations (see ThesaurusGraph).
+ *  DESCRIPTORS, NONDESCRIPTORS: the records of Descriptor and NonDescriptor.
+ *  FREQUENCIES: frequency of each term on each descriptor and nondescriptor
+ *    (only needed to write the index back).
+ *  MICROTHESAURI: descriptors of each microthesaurus, and their names.
+ */
+public class BinaryThesaurusIndex {
+    /** "RBTI" */
+    public static final int MAGIC = 0x52425449;
+
+    public static final int VERSION = 1;
+
+    public static final int LEXICON = 1;
+    public static final int WEIGHTS = 2;
+    public static final int GRAPH = 3;
+    public static final int DESCRIPTORS = 4;
+    public static final int NONDESCRIPTORS = 5;
+    public static final int FREQUENCIES = 6;
+    public static final int MICROTHESAURI = 7;
+
+    /** The whole file */
+    private ByteBuffer file;
+
+    /** Offset and length of each section, by identifier */
+    private Map<Integer, long[]> sections = new HashMap<Integer, long[]>();
+
+    /** Opens a binary index
+     * @param fileName name of the file
+     * @throws IOException if it could not be read or it is not a binary index of a known version
+     */
+    public BinaryThesaurusIndex(String fileName) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(fileName, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            raf.close();
+        }
+
+        try {
+            if (file.getInt() != MAGIC)
+                throw new IOException(fileName + " is not a binary thesaurus index");
+            int version = file.getInt();
+            if (version != VERSION)
+                throw new IOException("unsupported version " + version + " of binary thesaurus index " + fileName);
+
+            int numSections = file.getInt();
+            for (int i=0; i<numSections; ++i) {
+                int id = file.getInt();
+                long offset = file.getLong();
+                long length = file.getLong();
+                sections.put(id, new long[] {offset, length});
+            }
+        } catch (BufferUnderflowException ex) {
+            throw new IOException(fileName + " is truncated");
+        }
+    }
+
+    /** Tells if a file is a binary index (by its magic number)
+     * @param fileName name of the file
+     */
+    public static boolean isBinaryIndex(String fileName) {
+        try {
+            DataInputStream in = new DataInputStream(new FileInputStream(fileName));
+            try {
+                return in.readInt() == MAGIC;
+            } finally {
+                in.close();
+            }
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    /** Returns a buffer positioned at the start of a section, limited to it
+     * @param id identifier of the section
+     * @throws IOException if the section is not in the file
+     */
+    public ByteBuffer getSection(int id) throws IOException {
+        long[] s = sections.get(id);
+        if (s == null)
+            throw new IOException("section " + id + " not found in the binary thesaurus index");
+        ByteBuffer b = file.duplicate();
+        b.position((int) s[0]);
+        b.limit((int) (s[0] + s[1]));
+        return b.slice();
+    }
+
+    /** Reads the lexicon. If "keepPostings" is false, terms have no postings
+     * (ThesaurusTerm.releasePostings), as the classifiers use the graph instead
+     */
+    public void readLexicon(ThesaurusLexicon lex, boolean keepPostings) throws IOException {
+        lex.read(getSection(LEXICON), keepPostings);
+    }
+
+    public ThesaurusGraph readGraph() throws IOException {
+        return new ThesaurusGraph(getSection(GRAPH), getSection(WEIGHTS));
+    }
+
+    public void readDescriptors(Map<Integer, Descriptor> ld) throws IOException {
+        ByteBuffer in = getSection(DESCRIPTORS);
+        int n = in.getInt();
+        for (int i=0; i<n; ++i) {
+            Descriptor d = new Descriptor(in);
+            ld.put(d.getId(), d);
+        }
+    }
+
+    public void readNonDescriptors(Map<Integer, NonDescriptor> lnd) throws IOException {
+        ByteBuffer in = getSection(NONDESCRIPTORS);
+        int n = in.getInt();
+        for (int i=0; i<n; ++i) {
+            NonDescriptor nd = new NonDescriptor(in);
+            lnd.put(nd.getId(), nd);
+        }
+    }
+
+    /** Reads only the descriptions of the DESCRIPTORS and NONDESCRIPTORS
+     * sections, skipping the lists of their records (which are in the graph)
+     * @param graph graph of the index
+     * @param descriptions where the description of each descriptor is stored,
+     * by position in the graph
+     * @param ndDescriptions where the description of each nondescriptor is
+     * stored, by index in the graph
+     */
+    public void readDescriptions(ThesaurusGraph graph, String[] descriptions, String[] ndDescriptions) throws IOException {
+        ByteBuffer in = getSection(DESCRIPTORS);
+        int n = in.getInt();
+        for (int i=0; i<n; ++i) {
+            int id = in.getInt();
+            in.getDouble();
+            for (int l=0; l<5; ++l)
+                BinaryIO.skipIntList(in);
+            String description = BinaryIO.getString(in).replaceAll("_", " ").trim();
+            int p = graph.positionOf(id);
+            if (p >= 0)
+                descriptions[p] = description;
+        }
+
+        in = getSection(NONDESCRIPTORS);
+        n = in.getInt();
+        for (int i=0; i<n; ++i) {
+            int id = in.getInt();
+            in.getInt();
+            in.getDouble();
+            BinaryIO.skipIntList(in);
+            String description = BinaryIO.getString(in).replaceAll("_", " ").trim();
+            int k = graph.nonDescriptorIndexOf(id);
+            if (k >= 0)
+                ndDescriptions[k] = description;
+        }
+    }
+
+    /** Restores the frequencies and weights of the terms of a lexicon read
+     * keeping its postings
+     */
+    public void readPostings(ThesaurusLexicon lex, ThesaurusGraph graph) throws IOException {
+        ByteBuffer in = getSection(FREQUENCIES);
+        int n = in.getInt();
+        for (int t=0; t<n; ++t) {
+            ThesaurusTerm term = lex.getTermById(t);
+            int size = in.getInt();
+            for (int i=0; i<size; ++i)
+                term.addDescriptor(in.getInt(), in.getInt());
+            size = in.getInt();
+            for (int i=0; i<size; ++i)
+                term.addNonDescriptor(in.getInt(), in.getInt());
+        }
+
+        int[] ids = graph.getDescriptorIds(), ndIds = graph.getNonDescriptorIds();
+        int[] tdOffsets = graph.getTermDescriptorOffsets(), tdPositions = graph.getTermDescriptors();
+        double[] tdWeights = graph.getTermDescriptorWeights();
+        int[] tndOffsets = graph.getTermNonDescriptorOffsets(), tndIndexes = graph.getTermNonDescriptors();
+        double[] tndWeights = graph.getTermNonDescriptorWeights();
+        for (int t=0; t<graph.getNumTerms(); ++t) {
+            ThesaurusTerm term = lex.getTermById(t);
+            for (int k=tdOffsets[t]; k<tdOffsets[t+1]; ++k)
+                term.addWeightDescriptor(ids[tdPositions[k]], tdWeights[k]);
+            for (int k=tndOffsets[t]; k<tndOffsets[t+1]; ++k)
+                term.addWeightNonDescriptor(ndIds[tndIndexes[k]], tndWeights[k]);
+        }
+    }
+
+    public void readMicroThesauri(Map<Integer, List<Integer>> MT, Map<Integer, String> micro) throws IOException {
+        ByteBuffer in = getSection(MICROTHESAURI);
+        int n = in.getInt();
+        for (int i=0; i<n; ++i) {
+            int id = in.getInt();
+            int size = in.getInt();
+            List<Integer> l = new LinkedList<Integer>();
+            for (int j=0; j<size; ++j)
+                l.add(in.getInt());
+            MT.put(id, l);
+        }
+
+        n = in.getInt();
+        for (int i=0; i<n; ++i) {
+            int id = in.getInt();
+            micro.put(id, BinaryIO.getString(in).replaceAll("_", " "));
+        }
+    }
+
+    /** Writes a binary index. The terms of the lexicon must keep their postings.
+     * @param fileName name of the file to write
+     */
+    public static void write(String fileName, ThesaurusLexicon lex, Map<Integer, Descriptor> ld,
+            Map<Integer, NonDescriptor> lnd, Map<Integer, List<Integer>> MT, Map<Integer, String> micro) throws IOException {
+        ThesaurusGraph graph = new ThesaurusGraph(ld, lnd, lex);
+        int[] ids = new int[] {LEXICON, WEIGHTS, GRAPH, DESCRIPTORS, NONDESCRIPTORS, FREQUENCIES, MICROTHESAURI};
+        byte[][] contents = new byte[ids.length][];
+
+        for (int i=0; i<ids.length; ++i) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+
+            switch (ids[i]) {
+                case LEXICON:
+                    lex.write(out);
+                    break;
+                case WEIGHTS:
+                    graph.writeTerms(out);
+                    break;
+                case GRAPH:
+                    graph.writeDescriptors(out);
+                    break;
+                case DESCRIPTORS:
+                    out.writeInt(ld.size());
+                    for (Descriptor d : new TreeMap<Integer, Descriptor>(ld).values())
+                        d.write(out);
+                    break;
+                case NONDESCRIPTORS:
+                    out.writeInt(lnd.size());
+                    for (NonDescriptor nd : new TreeMap<Integer, NonDescriptor>(lnd).values())
+                        nd.write(out);
+                    break;
+                case FREQUENCIES:
+                    out.writeInt(lex.size());
+                    for (int t=0; t<lex.size(); ++t) {
+                        ThesaurusTerm term = lex.getTermById(t);
+                        out.writeInt(term.getDescriptors().size());
+                        for (Map.Entry<Integer, Integer> m : term.getDescriptors()) {
+                            out.writeInt(m.getKey());
+                            out.writeInt(m.getValue());
+                        }
+                        out.writeInt(term.getNonDescriptors().size());
+                        for (Map.Entry<Integer, Integer> m : term.getNonDescriptors()) {
+                            out.writeInt(m.getKey());
+                            out.writeInt(m.getValue());
+                        }
+                    }
+                    break;
+                case MICROTHESAURI:
+                    out.writeInt(MT.size());
+                    for (Map.Entry<Integer, List<Integer>> m : MT.entrySet()) {
+                        out.writeInt(m.getKey());
+                        out.writeInt(m.getValue().size());
+                        for (int d : m.getValue())
+                            out.writeInt(d);
+                    }
+                    out.writeInt(micro.size());
+                    for (Map.Entry<Integer, String> m : micro.entrySet()) {
+                        out.writeInt(m.getKey());
+                        BinaryIO.putString(out, m.getValue().trim().replaceAll(" ", "_"));
+                    }
+                    break;
+            }
+            out.close();
+            contents[i] = bytes.toByteArray();
+        }
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(ids.length);
+            long offset = 12 + ids.length * 20;
+            for (int i=0; i<ids.length; ++i) {
+                out.writeInt(ids[i]);
+                out.writeLong(offset);
+                out.writeLong(contents[i].length);
+                offset += contents[i].length;
+            }
+            for (byte[] content : contents)
+                out.write(content);
+        } finally {
+            out.close();
+        }
+    }
+}
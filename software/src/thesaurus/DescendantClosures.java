@@ -0,0 +1,210 @@
+/*
+ *
+ *   ReBayCT: a tool for classification on a Thesaurus
+ *
+ *	For details see:
+ *	 L. M. de Campos, A. E. Romero, Bayesian Network Models for Hierarchical Text
+ *	Classification from a Thesaurus, Int. J. Approx. Reasoning 50(7): 932-944 (2009).
+ *
+ *
+ *   Copyright (C) 2006-2008 Alfonso E. Romero <alfonsoeromero (AT) gmail (DOT) com>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package thesaurus;
+
+import java.util.Arrays;
+
+/**
+ * Descriptors reachable following the descendants (the descriptor itself
+ * included), precomputed from a ThesaurusGraph, since they only depend on the
+ * thesaurus. They are what the nidf computation visits for each term.
+ *
+ * The closure of each descriptor is kept as a sorted list of positions. The
+ * closure of each term (union of the closures of the descriptors it appears
+ * in, directly or through its non descriptors) is kept, as in Roaring bitmaps,
+ * in the smaller of two containers: a sorted list of positions, or a bitmap
+ * covering the words between the lowest and the highest position.
+ *
+ * Everything is stored CSR-style (see ThesaurusGraph) and never modified, so
+ * the closures can be shared among threads.
+ */
+public class DescendantClosures {
+
+    /** Closure of each descriptor (positions, sorted) */
+    private int[] descriptorOffsets, descriptorClosures;
+
+    /** Closure of each term as a list of positions (empty if it is a bitmap) */
+    private int[] termArrayOffsets, termArrays;
+
+    /** Closure of each term as a bitmap (empty if it is a list): words
+     * termBitmapOffsets[t]..termBitmapOffsets[t+1] of termBitmaps are the
+     * bits of positions 64*termBitmapBase[t] and following */
+    private int[] termBitmapOffsets, termBitmapBase;
+    private long[] termBitmaps;
+
+    public DescendantClosures(ThesaurusGraph graph) {
+        buildDescriptorClosures(graph);
+        buildTermClosures(graph);
+    }
+
+    private void buildDescriptorClosures(ThesaurusGraph graph) {
+        int n = graph.getNumDescriptors();
+        int[] descendantOffsets = graph.getDescendantOffsets(), descendants = graph.getDescendants();
+        int[] mark = new int[n], stack = new int[n];
+        int[] closure = new int[n];
+
+        descriptorOffsets = new int[n+1];
+        int[] all = new int[Math.max(16, n)];
+        int size = 0;
+        for (int p=0; p<n; ++p) {
+            // depth-first traversal from p (mark p+1 means visited from p)
+            int top = 0, numClosure = 0;
+            mark[p] = p + 1;
+            stack[top++] = p;
+            while (top > 0) {
+                int q = stack[--top];
+                closure[numClosure++] = q;
+                for (int j=descendantOffsets[q]; j<descendantOffsets[q+1]; ++j) {
+                    int u = descendants[j];
+                    if (u >= 0 && mark[u] != p + 1) {
+                        mark[u] = p + 1;
+                        stack[top++] = u;
+                    }
+                }
+            }
+            Arrays.sort(closure, 0, numClosure);
+
+            if (size + numClosure > all.length)
+                all = resize(all, Math.max(size + numClosure, 2 * all.length));
+            System.arraycopy(closure, 0, all, size, numClosure);
+            size += numClosure;
+            descriptorOffsets[p+1] = size;
+        }
+        descriptorClosures = resize(all, size);
+    }
+
+    private void buildTermClosures(ThesaurusGraph graph) {
+        int n = graph.getNumTerms(), numDescriptors = graph.getNumDescriptors();
+        int[] tdOffsets = graph.getTermDescriptorOffsets(), tdPositions = graph.getTermDescriptors();
+        int[] tndOffsets = graph.getTermNonDescriptorOffsets(), tndIndexes = graph.getTermNonDescriptors();
+        int[] ndTargets = graph.getNonDescriptorTargets();
+
+        int[] mark = new int[numDescriptors];
+        int[] closure = new int[numDescriptors];
+
+        termArrayOffsets = new int[n+1];
+        termBitmapOffsets = new int[n+1];
+        termBitmapBase = new int[n];
+        int[] arrays = new int[16];
+        long[] bitmaps = new long[16];
+        int numArrays = 0, numWords = 0;
+
+        for (int t=0; t<n; ++t) {
+            // union of the closures of the descriptors of the term (mark t+1)
+            int numClosure = 0;
+            for (int k=tdOffsets[t]; k<tdOffsets[t+1]; ++k)
+                numClosure = addClosure(tdPositions[k], t + 1, mark, closure, numClosure);
+            for (int k=tndOffsets[t]; k<tndOffsets[t+1]; ++k)
+                numClosure = addClosure(ndTargets[tndIndexes[k]], t + 1, mark, closure, numClosure);
+
+            if (numClosure > 0) {
+                Arrays.sort(closure, 0, numClosure);
+                int firstWord = closure[0] >>> 6, lastWord = closure[numClosure - 1] >>> 6;
+                int words = lastWord - firstWord + 1;
+
+                // a bitmap is used when it takes less memory than the list
+                if (2 * words < numClosure) {
+                    if (numWords + words > bitmaps.length)
+                        bitmaps = resize(bitmaps, Math.max(numWords + words, 2 * bitmaps.length));
+                    for (int i=0; i<numClosure; ++i)
+                        bitmaps[numWords + (closure[i] >>> 6) - firstWord] |= 1L << (closure[i] & 63);
+                    termBitmapBase[t] = firstWord;
+                    numWords += words;
+                } else {
+                    if (numArrays + numClosure > arrays.length)
+                        arrays = resize(arrays, Math.max(numArrays + numClosure, 2 * arrays.length));
+                    System.arraycopy(closure, 0, arrays, numArrays, numClosure);
+                    numArrays += numClosure;
+                }
+            }
+            termArrayOffsets[t+1] = numArrays;
+            termBitmapOffsets[t+1] = numWords;
+        }
+
+        termArrays = resize(arrays, numArrays);
+        termBitmaps = resize(bitmaps, numWords);
+    }
+
+    /** Adds to closure[0..numClosure) the closure of descriptor p (if p >= 0),
+     * without the positions already marked with "stamp"
+     * @return the new size of the closure
+     */
+    private int addClosure(int p, int stamp, int[] mark, int[] closure, int numClosure) {
+        if (p < 0)
+            return numClosure;
+        for (int j=descriptorOffsets[p]; j<descriptorOffsets[p+1]; ++j) {
+            int q = descriptorClosures[j];
+            if (mark[q] != stamp) {
+                mark[q] = stamp;
+                closure[numClosure++] = q;
+            }
+        }
+        return numClosure;
+    }
+
+    private static int[] resize(int[] a, int size) {
+        int[] b = new int[size];
+        System.arraycopy(a, 0, b, 0, Math.min(a.length, size));
+        return b;
+    }
+
+    private static long[] resize(long[] a, int size) {
+        long[] b = new long[size];
+        System.arraycopy(a, 0, b, 0, Math.min(a.length, size));
+        return b;
+    }
+
+    public int[] getDescriptorOffsets() {
+        return descriptorOffsets;
+    }
+
+    /** Closures of the descriptors, see getDescriptorOffsets */
+    public int[] getDescriptorClosures() {
+        return descriptorClosures;
+    }
+
+    public int[] getTermArrayOffsets() {
+        return termArrayOffsets;
+    }
+
+    public int[] getTermArrays() {
+        return termArrays;
+    }
+
+    public int[] getTermBitmapOffsets() {
+        return termBitmapOffsets;
+    }
+
+    /** First word (position / 64) of the bitmap of each term */
+    public int[] getTermBitmapBase() {
+        return termBitmapBase;
+    }
+
+    public long[] getTermBitmaps() {
+        return termBitmaps;
+    }
+}
@@ -27,6 +27,9 @@
 package thesaurus;
 
 import java.util.*;
+import java.io.*;
+import java.nio.ByteBuffer;
+import base.BinaryIO;
 
 public class Descriptor {
     /** Identifier of this object */
@@ -72,6 +75,16 @@ public class Descriptor {
         description = desc;
     }
     
+    /** Creates a descriptor with only its identifier and description (as given
+     * in the results of the classifiers): its lists are empty and cannot be
+     * changed
+     */
+    public Descriptor(int _id, String desc) {
+        id = _id;
+        description = desc;
+        terms = descendants = nonDescriptors = fathers = microThesaurus = Collections.<Integer>emptyList();
+    }
+    
     public void setSumWeights(double weight) {
         this.sumWeights = weight;
     }
@@ -174,6 +187,31 @@ public class Descriptor {
         }
     }
     
+    /** Reads a descriptor from the DESCRIPTORS section of a binary index */
+    Descriptor(ByteBuffer in) {
+        id = in.getInt();
+        this.sumWeights = in.getDouble();
+        terms = BinaryIO.getIntList(in);
+        descendants = BinaryIO.getIntList(in);
+        fathers = BinaryIO.getIntList(in);
+        nonDescriptors = BinaryIO.getIntList(in);
+        microThesaurus = BinaryIO.getIntList(in);
+        this.description = BinaryIO.getString(in).replaceAll("_", " ").trim();
+    }
+    
+    /** Writes the descriptor as a record of the DESCRIPTORS section of a binary index,
+     * with the same contents as toString() */
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(id);
+        out.writeDouble(this.sumWeights);
+        BinaryIO.putIntList(out, terms);
+        BinaryIO.putIntList(out, this.descendants);
+        BinaryIO.putIntList(out, this.fathers);
+        BinaryIO.putIntList(out, this.nonDescriptors);
+        BinaryIO.putIntList(out, this.microThesaurus);
+        BinaryIO.putString(out, this.description.replaceAll("\\s+", "_").trim());
+    }
+    
     @Override
     public String toString() {
         String s = "";
@@ -97,7 +97,20 @@ public class IndexBuilder {
         --tag;
     }
     
-    public void characters(String s) {
+    /** Processes the characters of a unit, computing their terms (subclasses
+     * override characters(String, List), which is also the method called when
+     * the events of a file are replayed)
+     */
+    public final void characters(String s) {
+        characters(s, null);
+    }
+
+    /** Processes the characters of a unit
+     * @param s the characters
+     * @param terms the terms of s (as given by si.getTerms(s)) if they are
+     * already computed, null otherwise
+     */
+    public void characters(String s, List<String> terms) {
         if (this.mustProcessInteger) {
             try{
                 this.processedInteger = Integer.parseInt(s);
@@ -106,7 +119,9 @@ public class IndexBuilder {
             }
             
         } else {
-            si.add(s);
+            if (terms == null)
+                si.add(s);
+            else si.addTerms(terms);
             if (this.mustProcessString) {
                 if(this.desc == null)
                     desc = s;
@@ -205,6 +220,33 @@ public class IndexBuilder {
     }
     
     public static void writeIndex(String fileName) {
+        writeIndex(fileName, lex, ld, lnd, MT, micro);
+    }
+    
+    /** Writes the index in the binary format of BinaryThesaurusIndex */
+    public static void writeBinaryIndex(String fileName) {
+        System.out.println("LEXICON SIZE: " + lex.getSize());
+        System.out.println("NUMBER OF DESCRIPTORS: " + ld.size());
+        System.out.println("NUMBER OF NONDESCRIPTORS: " + lnd.size());
+        
+        try {
+            BinaryThesaurusIndex.write(fileName, lex, ld, lnd, MT, micro);
+        } catch (IOException ex){
+            System.err.println("File " + fileName + " could not be written. Media error. " + ex);
+            System.exit(-1);
+        }
+    }
+    
+    /** Writes an index in the text format
+     * @param fileName name of the file
+     * @param lex lexicon, whose terms must keep their postings
+     * @param ld descriptors
+     * @param lnd nondescriptors
+     * @param MT descriptors of each microthesaurus
+     * @param micro names of the microthesauri
+     */
+    public static void writeIndex(String fileName, ThesaurusLexicon lex, Map<Integer, Descriptor> ld,
+            Map<Integer, NonDescriptor> lnd, Map<Integer, List<Integer>> MT, Map<Integer, String> micro) {
         FileWriter fp = null;
         try {
             fp = new FileWriter(fileName);
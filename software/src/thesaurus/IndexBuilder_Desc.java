@@ -26,6 +26,7 @@
 package thesaurus;
 
 import java.util.*;
+import base.SparseVector;
 
 public class IndexBuilder_Desc extends IndexBuilder {
 
@@ -66,12 +67,12 @@ public class IndexBuilder_Desc extends IndexBuilder {
                 // == We process the pairs term/frequency of each doc ==
                 // 1.- we insert into the lexicon the pairs AND
                 // 2.- for each term, we increase its document number
-                Map<Integer, Integer> m = si.getFreq();
+                SparseVector m = si.getVector();
                 List<Integer> l = new ArrayList<Integer>();
 
-                for (Map.Entry<Integer, Integer> e : m.entrySet()) {
-                    int id = e.getKey();
-                    int freq = e.getValue();
+                for (int k = 0; k < m.size(); ++k) {
+                    int id = m.getTerm(k);
+                    int freq = m.getFreq(k);
                     ThesaurusTerm t = (ThesaurusTerm) lex.getTermById(id);
 
                     if (t != null) {
@@ -94,9 +95,4 @@ public class IndexBuilder_Desc extends IndexBuilder {
             }
         }
     }
-
-    @Override
-    public void characters(String s) {
-        super.characters(s);
-    }
 }
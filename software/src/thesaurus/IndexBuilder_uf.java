@@ -27,7 +27,7 @@ package thesaurus;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import base.SparseVector;
 
 public class IndexBuilder_uf extends IndexBuilder {
 
@@ -76,12 +76,12 @@ public class IndexBuilder_uf extends IndexBuilder {
                 // == We process the pairs term/frequency of each doc ==
                 // 1.- we insert into the lexicon the pairs AND
                 // 2.- for each term, we increase its document number
-                Map<Integer, Integer> m = si.getFreq();
+                SparseVector m = si.getVector();
                 List<Integer> l = new ArrayList<Integer>();
 
-                for (Map.Entry<Integer, Integer> e : m.entrySet()) {
-                    int _id = e.getKey();
-                    int freq = e.getValue();
+                for (int k = 0; k < m.size(); ++k) {
+                    int _id = m.getTerm(k);
+                    int freq = m.getFreq(k);
                     ThesaurusTerm t = (ThesaurusTerm) lex.getTermById(_id);
 
                     if (t != null) {
@@ -25,9 +25,13 @@
  */
 package thesaurus;
 
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.StringTokenizer;
+import base.BinaryIO;
 
 public class NonDescriptor {
 
@@ -94,6 +98,25 @@ public class NonDescriptor {
         return s;
     }
 
+    /** Reads a nondescriptor from the NONDESCRIPTORS section of a binary index */
+    NonDescriptor(ByteBuffer in) {
+        id = in.getInt();
+        descriptor = in.getInt();
+        this.sumWeights = in.getDouble();
+        terms = BinaryIO.getIntList(in);
+        this.description = BinaryIO.getString(in).replaceAll("_", " ").trim();
+    }
+
+    /** Writes the nondescriptor as a record of the NONDESCRIPTORS section of a binary
+     * index, with the same contents as toString() */
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(id);
+        out.writeInt(descriptor);
+        out.writeDouble(this.sumWeights);
+        BinaryIO.putIntList(out, terms);
+        BinaryIO.putString(out, this.description.replaceAll("\\s+", "_").trim());
+    }
+
     public NonDescriptor(String s) {
         StringTokenizer st = new StringTokenizer(s);
         try {
@@ -0,0 +1,444 @@
+/*
+ *
+ *   ReBayCT: a tool for classification on a Thesaurus
+ *
+ *	For details see:
+ *	 L. M. de Campos, A. E. Romero, Bayesian Network Models for Hierarchical Text
+ *	Classification from a Thesaurus, Int. J. Approx. Reasoning 50(7): 932-944 (2009).
+ *
+ *
+ *   Copyright (C) 2006-2008 Alfonso E. Romero <alfonsoeromero (AT) gmail (DOT) com>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package thesaurus;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.*;
+import base.BinaryIO;
+
+/**
+ * Compact, array-backed view of a thesaurus index, used by the classifiers
+ * instead of walking the maps of Descriptor, NonDescriptor and ThesaurusTerm.
+ *
+ * Descriptors are numbered by their position in a topological order of the
+ * BT relation (every descriptor comes after all its fathers, the more specific
+ * descriptors). Non descriptors are numbered by their rank among the sorted
+ * non descriptor identifiers and terms by their identifier in the lexicon.
+ * Every relation is stored CSR-style: the targets of the element "i" are those
+ * between offsets[i] (inclusive) and offsets[i+1] (exclusive) of the targets array.
+ *
+ * Once built, a graph is never modified, so it can be shared among classifiers.
+ */
+public class ThesaurusGraph {
+
+    // ---------- descriptors, by position --------------------
+
+    /** Identifier of the descriptor at each position */
+    private int[] descriptorIds;
+
+    /** Descriptor identifiers, sorted */
+    private int[] sortedDescriptorIds;
+
+    /** Position of each descriptor of "sortedDescriptorIds" */
+    private int[] positionBySortedIndex;
+
+    /** Sum of the weights of the terms of each descriptor */
+    private double[] descriptorSumWeights;
+
+    /** Fathers (positions) of each descriptor */
+    private int[] fatherOffsets, fathers;
+
+    /** Descendants (positions) of each descriptor */
+    private int[] descendantOffsets, descendants;
+
+    /** Terms of each descriptor */
+    private int[] termOffsets, terms;
+
+    // ---------- non descriptors, by index --------------------
+
+    /** Identifier of the non descriptor at each index (sorted) */
+    private int[] nonDescriptorIds;
+
+    /** Position of the descriptor each non descriptor references */
+    private int[] nonDescriptorTargets;
+
+    /** Sum of the weights of the terms of each non descriptor */
+    private double[] nonDescriptorSumWeights;
+
+    /** Terms of each non descriptor */
+    private int[] ndTermOffsets, ndTerms;
+
+    // ---------- terms, by identifier --------------------
+
+    /** Descriptors (positions) where each term appears, and its weight on them */
+    private int[] termDescriptorOffsets, termDescriptors;
+    private double[] termDescriptorWeights;
+
+    /** Non descriptors (indexes) where each term appears, and its weight on them */
+    private int[] termNonDescriptorOffsets, termNonDescriptors;
+    private double[] termNonDescriptorWeights;
+
+    /** Number of descriptors and non descriptors each term appears in */
+    private int[] termNumPostings;
+
+
+    /** Builds the graph from an index already read
+     * @param ld descriptors, by identifier
+     * @param lnd non descriptors, by identifier
+     * @param lex lexicon of the index (term identifiers must be 0..lex.size()-1)
+     */
+    public ThesaurusGraph(Map<Integer, Descriptor> ld, Map<Integer, NonDescriptor> lnd, ThesaurusLexicon lex) {
+        buildDescriptors(ld);
+        buildNonDescriptors(lnd);
+        buildTerms(lex);
+    }
+
+    /** Reads a graph from the GRAPH and WEIGHTS sections of a binary index
+     * @param graph GRAPH section, as written by writeDescriptors
+     * @param weights WEIGHTS section, as written by writeTerms
+     */
+    ThesaurusGraph(ByteBuffer graph, ByteBuffer weights) {
+        descriptorIds = BinaryIO.getIntArray(graph);
+        descriptorSumWeights = BinaryIO.getDoubleArray(graph);
+        fatherOffsets = BinaryIO.getIntArray(graph);
+        fathers = BinaryIO.getIntArray(graph);
+        descendantOffsets = BinaryIO.getIntArray(graph);
+        descendants = BinaryIO.getIntArray(graph);
+        termOffsets = BinaryIO.getIntArray(graph);
+        terms = BinaryIO.getIntArray(graph);
+        nonDescriptorIds = BinaryIO.getIntArray(graph);
+        nonDescriptorTargets = BinaryIO.getIntArray(graph);
+        nonDescriptorSumWeights = BinaryIO.getDoubleArray(graph);
+        ndTermOffsets = BinaryIO.getIntArray(graph);
+        ndTerms = BinaryIO.getIntArray(graph);
+
+        termNumPostings = BinaryIO.getIntArray(weights);
+        termDescriptorOffsets = BinaryIO.getIntArray(weights);
+        termDescriptors = BinaryIO.getIntArray(weights);
+        termDescriptorWeights = BinaryIO.getDoubleArray(weights);
+        termNonDescriptorOffsets = BinaryIO.getIntArray(weights);
+        termNonDescriptors = BinaryIO.getIntArray(weights);
+        termNonDescriptorWeights = BinaryIO.getDoubleArray(weights);
+
+        // the lookup by identifier is not stored, it is cheaper to sort again
+        int n = descriptorIds.length;
+        long[] idAndPosition = new long[n];
+        for (int p=0; p<n; ++p)
+            idAndPosition[p] = ((long) descriptorIds[p] << 32) | p;
+        Arrays.sort(idAndPosition);
+        sortedDescriptorIds = new int[n];
+        positionBySortedIndex = new int[n];
+        for (int i=0; i<n; ++i) {
+            sortedDescriptorIds[i] = (int) (idAndPosition[i] >> 32);
+            positionBySortedIndex[i] = (int) idAndPosition[i];
+        }
+    }
+
+    /** Writes the descriptors and nondescriptors of the graph (GRAPH section of a binary index) */
+    void writeDescriptors(DataOutputStream out) throws IOException {
+        BinaryIO.putIntArray(out, descriptorIds);
+        BinaryIO.putDoubleArray(out, descriptorSumWeights);
+        BinaryIO.putIntArray(out, fatherOffsets);
+        BinaryIO.putIntArray(out, fathers);
+        BinaryIO.putIntArray(out, descendantOffsets);
+        BinaryIO.putIntArray(out, descendants);
+        BinaryIO.putIntArray(out, termOffsets);
+        BinaryIO.putIntArray(out, terms);
+        BinaryIO.putIntArray(out, nonDescriptorIds);
+        BinaryIO.putIntArray(out, nonDescriptorTargets);
+        BinaryIO.putDoubleArray(out, nonDescriptorSumWeights);
+        BinaryIO.putIntArray(out, ndTermOffsets);
+        BinaryIO.putIntArray(out, ndTerms);
+    }
+
+    /** Writes the postings of the terms (WEIGHTS section of a binary index) */
+    void writeTerms(DataOutputStream out) throws IOException {
+        BinaryIO.putIntArray(out, termNumPostings);
+        BinaryIO.putIntArray(out, termDescriptorOffsets);
+        BinaryIO.putIntArray(out, termDescriptors);
+        BinaryIO.putDoubleArray(out, termDescriptorWeights);
+        BinaryIO.putIntArray(out, termNonDescriptorOffsets);
+        BinaryIO.putIntArray(out, termNonDescriptors);
+        BinaryIO.putDoubleArray(out, termNonDescriptorWeights);
+    }
+
+    private void buildDescriptors(Map<Integer, Descriptor> ld) {
+        int n = ld.size();
+        sortedDescriptorIds = new int[n];
+        int k = 0;
+        for (int id : ld.keySet())
+            sortedDescriptorIds[k++] = id;
+        Arrays.sort(sortedDescriptorIds);
+
+        // 1.- Kahn's algorithm: a descriptor is ready when all its fathers were placed
+        int[] pending = new int[n];
+        for (int i=0; i<n; ++i)
+            pending[i] = ld.get(sortedDescriptorIds[i]).getFathers().size();
+
+        int[] sortedIndexByPosition = new int[n];
+        boolean[] placed = new boolean[n];
+        int head = 0, tail = 0;
+        for (int i=0; i<n; ++i)
+            if (pending[i] == 0) {
+                sortedIndexByPosition[tail++] = i;
+                placed[i] = true;
+            }
+
+        while (head < tail) {
+            int i = sortedIndexByPosition[head++];
+            for (int d : ld.get(sortedDescriptorIds[i]).getDescendants()) {
+                int j = Arrays.binarySearch(sortedDescriptorIds, d);
+                if (j >= 0 && !placed[j] && --pending[j] == 0) {
+                    sortedIndexByPosition[tail++] = j;
+                    placed[j] = true;
+                }
+            }
+        }
+
+        if (tail < n) {
+            System.err.println("WARNING: the BT relation of the thesaurus has cycles, " + (n - tail) + " descriptors are not ordered");
+            for (int i=0; i<n; ++i)
+                if (!placed[i])
+                    sortedIndexByPosition[tail++] = i;
+        }
+
+        // 2.- the order and its inverse
+        descriptorIds = new int[n];
+        positionBySortedIndex = new int[n];
+        for (int p=0; p<n; ++p) {
+            descriptorIds[p] = sortedDescriptorIds[sortedIndexByPosition[p]];
+            positionBySortedIndex[sortedIndexByPosition[p]] = p;
+        }
+
+        // 3.- the relations, by position (duplicates are kept, as in the lists)
+        descriptorSumWeights = new double[n];
+        fatherOffsets = new int[n+1];
+        descendantOffsets = new int[n+1];
+        termOffsets = new int[n+1];
+        for (int p=0; p<n; ++p) {
+            Descriptor d = ld.get(descriptorIds[p]);
+            descriptorSumWeights[p] = d.getSumWeights();
+            fatherOffsets[p+1] = fatherOffsets[p] + d.getFathers().size();
+            descendantOffsets[p+1] = descendantOffsets[p] + d.getDescendants().size();
+            termOffsets[p+1] = termOffsets[p] + d.getTerms().size();
+        }
+
+        fathers = new int[fatherOffsets[n]];
+        descendants = new int[descendantOffsets[n]];
+        terms = new int[termOffsets[n]];
+        for (int p=0; p<n; ++p) {
+            Descriptor d = ld.get(descriptorIds[p]);
+            int f = fatherOffsets[p], s = descendantOffsets[p], t = termOffsets[p];
+            for (int id : d.getFathers())
+                fathers[f++] = positionOf(id);
+            for (int id : d.getDescendants())
+                descendants[s++] = positionOf(id);
+            for (int term : d.getTerms())
+                terms[t++] = term;
+        }
+    }
+
+    private void buildNonDescriptors(Map<Integer, NonDescriptor> lnd) {
+        int n = lnd.size();
+        nonDescriptorIds = new int[n];
+        int k = 0;
+        for (int id : lnd.keySet())
+            nonDescriptorIds[k++] = id;
+        Arrays.sort(nonDescriptorIds);
+
+        nonDescriptorTargets = new int[n];
+        nonDescriptorSumWeights = new double[n];
+        ndTermOffsets = new int[n+1];
+        for (int i=0; i<n; ++i) {
+            NonDescriptor nd = lnd.get(nonDescriptorIds[i]);
+            nonDescriptorTargets[i] = positionOf(nd.getDescriptor());
+            nonDescriptorSumWeights[i] = nd.getSumWeights();
+            ndTermOffsets[i+1] = ndTermOffsets[i] + nd.getTerms().size();
+        }
+
+        ndTerms = new int[ndTermOffsets[n]];
+        for (int i=0; i<n; ++i) {
+            int t = ndTermOffsets[i];
+            for (int term : lnd.get(nonDescriptorIds[i]).getTerms())
+                ndTerms[t++] = term;
+        }
+    }
+
+    private void buildTerms(ThesaurusLexicon lex) {
+        int n = lex.size();
+        termNumPostings = new int[n];
+        termDescriptorOffsets = new int[n+1];
+        termNonDescriptorOffsets = new int[n+1];
+        for (int t=0; t<n; ++t) {
+            ThesaurusTerm term = lex.getTermById(t);
+            int numD = 0, numND = 0;
+            if (term != null) {
+                numD = term.getWeightDescriptors().size();
+                numND = term.getWeightNonDescriptors().size();
+                termNumPostings[t] = term.getDescriptors().size() + term.getNonDescriptors().size();
+            }
+            termDescriptorOffsets[t+1] = termDescriptorOffsets[t] + numD;
+            termNonDescriptorOffsets[t+1] = termNonDescriptorOffsets[t] + numND;
+        }
+
+        // postings keep the order of the maps of the term (increasing identifier)
+        termDescriptors = new int[termDescriptorOffsets[n]];
+        termDescriptorWeights = new double[termDescriptorOffsets[n]];
+        termNonDescriptors = new int[termNonDescriptorOffsets[n]];
+        termNonDescriptorWeights = new double[termNonDescriptorOffsets[n]];
+        for (int t=0; t<n; ++t) {
+            ThesaurusTerm term = lex.getTermById(t);
+            if (term == null)
+                continue;
+
+            int k = termDescriptorOffsets[t];
+            for (Map.Entry<Integer, Double> w : term.getWeightDescriptors()) {
+                termDescriptors[k] = positionOf(w.getKey());
+                termDescriptorWeights[k++] = w.getValue();
+            }
+
+            k = termNonDescriptorOffsets[t];
+            for (Map.Entry<Integer, Double> w : term.getWeightNonDescriptors()) {
+                termNonDescriptors[k] = nonDescriptorIndexOf(w.getKey());
+                termNonDescriptorWeights[k++] = w.getValue();
+            }
+        }
+    }
+
+    /** Returns the position of a descriptor
+     * @param descriptorId identifier of the descriptor
+     * @return its position, -1 if the descriptor does not exist
+     */
+    public int positionOf(int descriptorId) {
+        int i = Arrays.binarySearch(sortedDescriptorIds, descriptorId);
+        if (i < 0)
+            return -1;
+        else return positionBySortedIndex[i];
+    }
+
+    /** Returns the index of a non descriptor
+     * @param nonDescriptorId identifier of the non descriptor
+     * @return its index, -1 if the non descriptor does not exist
+     */
+    public int nonDescriptorIndexOf(int nonDescriptorId) {
+        // non descriptors are usually numbered 0..n-1 by the index builder
+        if (nonDescriptorId >= 0 && nonDescriptorId < nonDescriptorIds.length
+                && nonDescriptorIds[nonDescriptorId] == nonDescriptorId)
+            return nonDescriptorId;
+        int i = Arrays.binarySearch(nonDescriptorIds, nonDescriptorId);
+        return i < 0 ? -1 : i;
+    }
+
+    public int getNumDescriptors() {
+        return descriptorIds.length;
+    }
+
+    public int getNumNonDescriptors() {
+        return nonDescriptorIds.length;
+    }
+
+    public int getNumTerms() {
+        return termNumPostings.length;
+    }
+
+    /** Identifier of the descriptor at each position */
+    public int[] getDescriptorIds() {
+        return descriptorIds;
+    }
+
+    public double[] getDescriptorSumWeights() {
+        return descriptorSumWeights;
+    }
+
+    public int[] getFatherOffsets() {
+        return fatherOffsets;
+    }
+
+    public int[] getFathers() {
+        return fathers;
+    }
+
+    public int[] getDescendantOffsets() {
+        return descendantOffsets;
+    }
+
+    public int[] getDescendants() {
+        return descendants;
+    }
+
+    public int[] getTermOffsets() {
+        return termOffsets;
+    }
+
+    public int[] getTerms() {
+        return terms;
+    }
+
+    /** Identifier of the non descriptor at each index */
+    public int[] getNonDescriptorIds() {
+        return nonDescriptorIds;
+    }
+
+    /** Position of the descriptor referenced by each non descriptor */
+    public int[] getNonDescriptorTargets() {
+        return nonDescriptorTargets;
+    }
+
+    public double[] getNonDescriptorSumWeights() {
+        return nonDescriptorSumWeights;
+    }
+
+    public int[] getNonDescriptorTermOffsets() {
+        return ndTermOffsets;
+    }
+
+    public int[] getNonDescriptorTerms() {
+        return ndTerms;
+    }
+
+    public int[] getTermDescriptorOffsets() {
+        return termDescriptorOffsets;
+    }
+
+    public int[] getTermDescriptors() {
+        return termDescriptors;
+    }
+
+    public double[] getTermDescriptorWeights() {
+        return termDescriptorWeights;
+    }
+
+    public int[] getTermNonDescriptorOffsets() {
+        return termNonDescriptorOffsets;
+    }
+
+    public int[] getTermNonDescriptors() {
+        return termNonDescriptors;
+    }
+
+    public double[] getTermNonDescriptorWeights() {
+        return termNonDescriptorWeights;
+    }
+
+    /** Number of descriptors and non descriptors a term appears in
+     * @param termId identifier of the term
+     */
+    public int getNumPostings(int termId) {
+        return termNumPostings[termId];
+    }
+}
@@ -35,6 +35,7 @@ package thesaurus;
 
 import base.*;
 import java.io.*;
+import java.nio.ByteBuffer;
 
 /**
  *
@@ -43,6 +44,7 @@ import java.io.*;
 public class ThesaurusLexicon extends Lexicon<ThesaurusTerm> {
     
     public void read(BufferedReader in) throws IOException, NumberFormatException {
+        this.clear();
         size = Integer.parseInt(in.readLine());
         
         for (int i=0; i<size; ++i) {
@@ -51,5 +53,33 @@ public class ThesaurusLexicon extends Lexicon<ThesaurusTerm> {
             this.termById.put(t.getId(), t);
             this.termIdByString.put(t.getString(), t.getId());
         }
+        this.freeze();
+    }
+    
+    /** Reads the LEXICON section of a binary index (see BinaryThesaurusIndex)
+     * @param keepPostings if false, terms are created without postings
+     */
+    public void read(ByteBuffer in, boolean keepPostings) {
+        this.clear();
+        size = in.getInt();
+        
+        for (int i=0; i<size; ++i) {
+            int numDocs = in.getInt();
+            ThesaurusTerm t = new ThesaurusTerm(i, BinaryIO.getString(in), numDocs, keepPostings);
+            this.termById.put(t.getId(), t);
+            this.termIdByString.put(t.getString(), t.getId());
+        }
+        this.freeze();
+    }
+    
+    /** Writes the LEXICON section of a binary index (see BinaryThesaurusIndex) */
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(size);
+        
+        for (int i=0; i<size; ++i) {
+            ThesaurusTerm t = this.getTermById(i);
+            out.writeInt(t.getNumDocs());
+            BinaryIO.putString(out, t.getString());
+        }
     }
 }
@@ -53,7 +53,7 @@ public class ThesaurusStringIndexer extends StringIndexer<ThesaurusTerm, Thesaur
         id = l.size();
         t.setId(id);
         l.add(t);
-        this.freq.put(id, 1);
+        this.freq.add(id);
     }
     
 }
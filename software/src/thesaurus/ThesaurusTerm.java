@@ -64,6 +64,17 @@ public class ThesaurusTerm extends BaseTerm {
 		weightND = new TreeMap<Integer, Double>();		
 	}
 			
+	/** Term read from a binary index (see ThesaurusLexicon.read(ByteBuffer, boolean))
+	 * @param withPostings if false, the term has no postings, as after releasePostings()
+	 */
+	ThesaurusTerm(int _id, String _myString, int _numDocs, boolean withPostings)
+	{
+		this(_id, _myString);
+		numDocs = _numDocs;
+		if (!withPostings)
+			releasePostings();
+	}
+	
 	public void addDescriptor(int _id, int freq)
 	{
 		this.freqD.put(_id, freq);
@@ -131,6 +142,17 @@ public class ThesaurusTerm extends BaseTerm {
 		return this.weightND.entrySet();
 	}
 	
+	/** Frees the maps with the frequencies and weights of the term on each
+	 * descriptor and nondescriptor, which are left empty. Readers of an index
+	 * call it once those postings have been compiled into a ThesaurusGraph */
+	public void releasePostings()
+	{
+		this.freqD = Collections.emptyMap();
+		this.freqND = Collections.emptyMap();
+		this.weightD = Collections.emptyMap();
+		this.weightND = Collections.emptyMap();
+	}
+	
 	public void readFromString(String s)
 	{
 		StringTokenizer st = new StringTokenizer(s);
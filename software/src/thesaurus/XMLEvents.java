@@ -0,0 +1,159 @@
+/*
+ *
+ *   ReBayCT: a tool for classification on a Thesaurus
+ *
+ *	For details see:
+ *	 L. M. de Campos, A. E. Romero, Bayesian Network Models for Hierarchical Text
+ *	Classification from a Thesaurus, Int. J. Approx. Reasoning 50(7): 932-944 (2009).
+ *
+ *
+ *   Copyright (C) 2006-2008 Alfonso E. Romero <alfonsoeromero (AT) gmail (DOT) com>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package thesaurus;
+
+import java.util.*;
+
+/**
+ * Events of the SAX parse of a thesaurus file (start of a unit, characters, end
+ * of a unit), kept in memory to be given later to an IndexBuilder. The terms of
+ * the characters are computed while parsing (tokenized, without stopwords and
+ * stemmed), so several files can be parsed by different threads and then
+ * replayed, one after another and in the order of the sequential build: the
+ * builders see the same events and the index is the same.
+ */
+public class XMLEvents {
+    private static final byte START = 0, CHARACTERS = 1, END = 2;
+
+    //! name of the file
+    private final String fileName;
+
+    //! kind of each event
+    private byte[] kinds = new byte[1024];
+
+    //! tag (start, end) or characters of each event
+    private String[] values = new String[1024];
+
+    //! terms of each event (null if it is not characters or if they are
+    //! computed when replaying)
+    private List<List<String>> terms = new ArrayList<List<String>>();
+
+    private int size = 0;
+
+    //! true if the file was parsed without errors
+    private boolean complete = false;
+
+    private XMLEvents(String fileName) {
+        this.fileName = fileName;
+    }
+
+    /** Parses a file, recording its events (it can be called by several
+     * threads at the same time, each one with its own parser)
+     * @param fileName name of the file
+     * @return the events of the file
+     */
+    public static XMLEvents parse(String fileName) {
+        XMLEvents events = new XMLEvents(fileName);
+        XMLReader reader = new XMLReader();
+        reader.setBuilder(events.new Recorder());
+        reader.parseFile(fileName);
+        return events;
+    }
+
+    /** Gives the events to a builder, as XMLReader.parseFile would do */
+    public void replay(IndexBuilder ib) {
+        System.out.println("Indexing file ... " + fileName);
+        ib.startDocument();
+        for (int i=0; i<size; ++i) {
+            switch (kinds[i]) {
+                case START:
+                    ib.startUnit(values[i]);
+                    break;
+                case CHARACTERS:
+                    ib.characters(values[i], terms.get(i));
+                    break;
+                default:
+                    ib.endUnit(values[i]);
+            }
+        }
+        if (complete)
+            ib.endDocument();
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    /** Number of events */
+    public int size() {
+        return size;
+    }
+
+    private void record(byte kind, String value, List<String> t) {
+        if (size == kinds.length) {
+            byte[] k = new byte[2 * size];
+            System.arraycopy(kinds, 0, k, 0, size);
+            kinds = k;
+            String[] v = new String[2 * size];
+            System.arraycopy(values, 0, v, 0, size);
+            values = v;
+        }
+        kinds[size] = kind;
+        values[size] = value;
+        terms.add(t);
+        ++size;
+    }
+
+    private static boolean isNumber(String s) {
+        if (s.length() == 0)
+            return false;
+        for (int i=0; i<s.length(); ++i)
+            if (s.charAt(i) < '0' || s.charAt(i) > '9')
+                return false;
+        return true;
+    }
+
+    /** Builder which only records the events (and the terms of the characters) */
+    private class Recorder extends IndexBuilder {
+        @Override
+        public void startDocument() {
+        }
+
+        @Override
+        public void endDocument() {
+            complete = true;
+        }
+
+        @Override
+        public void startUnit(String tag) {
+            record(START, tag, null);
+        }
+
+        /** Numbers (the identifiers, and all the text of RELATION_BT) are
+         * recorded without terms: the builders parse them as integers, and
+         * in any other unit they are indexed when the event is replayed */
+        @Override
+        public void characters(String s, List<String> t) {
+            record(CHARACTERS, s, isNumber(s) ? null : si.getTerms(s));
+        }
+
+        @Override
+        public void endUnit(String tag) {
+            record(END, tag, null);
+        }
+    }
+}
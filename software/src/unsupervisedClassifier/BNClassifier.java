@@ -33,9 +33,10 @@
 package unsupervisedClassifier;
 import java.util.*;
 import thesaurus.Descriptor;
-import thesaurus.NonDescriptor;
+import base.AhoCorasick;
+import base.Metrics;
+import base.SparseVector;
 import base.StringIndexer;
-import thesaurus.ThesaurusTerm;
 
 /**
  *
@@ -51,13 +52,36 @@ public class BNClassifier extends ClassifierModel {
     // tells if we are using exact phrases or not
     protected boolean useExactPhrases = false;
     
-    //
-    protected static double associativity = 0.9;
+    // strength of the relationship of nondescriptors and descriptors with their descriptor
+    protected double associativity = 0.9;
     
-    protected static double associativityb = 1.0;
+    // strength of the relationship among descriptors (BT relation)
+    protected double associativityb = 1.0;
+    
+    // labels of the descriptors (by position) and nondescriptors (after
+    // them, by index), lowercased, to find exact phrases (null if not used)
+    protected AhoCorasick phraseMatcher = null;
     
     protected static final boolean DEBUGGING = false;
     
+    /** Context of a classification with its own scratch arrays for
+     * propagateStructure, indexed by topological position, and for the
+     * labels found in the text (exact phrases) */
+    protected static class BNContext extends ClassifierModel.Context {
+        private int[] visited;
+        private int[] activated;
+        private double[] fin;
+        private int epoch;
+        
+        private int[] phraseMark;
+        private int phraseEpoch;
+        private boolean phrasesMatched;
+        
+        protected BNContext(ClassifierModel model) {
+            super(model);
+        }
+    }
+    
     /** Creates a new instance of BNClassifier */
     public BNClassifier(String indexName, String stopwordsFileName, boolean doingStemming, boolean usingNidf, boolean usingExactPhrases) {
         super(indexName, stopwordsFileName);
@@ -65,54 +89,49 @@ public class BNClassifier extends ClassifierModel {
         this.useNidf = usingNidf;
         this.useExactPhrases = usingExactPhrases;
         StringIndexer.setStem(doingStemming);
+        
+        if (usingExactPhrases)
+            this.buildPhraseMatcher();
     }
     
-    protected void topological(int S, List<Integer> topologicallist, List<Integer> queue) {
-        Descriptor _S = ld.get(S);
-        for (Integer U : _S.getFathers())
-            if (queue.contains(U))
-                if (!topologicallist.contains(U))
-                    topological(U, topologicallist, queue);
-        topologicallist.add(S);
+    /** Builds the automaton with the labels of the descriptors and nondescriptors */
+    private void buildPhraseMatcher() {
+        String[] d = getDescriptions(), nd = getNonDescriptorDescriptions();
+        String[] labels = new String[d.length + nd.length];
+        for (int p=0; p<d.length; ++p)
+            labels[p] = (d[p] == null) ? null : d[p].toLowerCase();
+        for (int i=0; i<nd.length; ++i)
+            labels[d.length + i] = (nd[i] == null) ? null : nd[i].toLowerCase();
+        phraseMatcher = new AhoCorasick(labels);
     }
     
-    /** Inserts a descriptor on a list, and all its descendants, recursively */
-    protected void insertDescendantsOnQueue(int S, List<Integer> queue) {
-        queue.add(S);
-        Descriptor _S = ld.get(S);
-        for (Integer U : _S.getDescendants())
-            if (!queue.contains(U))
-                insertDescendantsOnQueue(U,queue);
+    /** Tells if the label of a descriptor (its position) or nondescriptor (number
+     * of descriptors + its index) appears in the text. The labels are searched
+     * in the text, all at once, the first time it is called for a document. */
+    private boolean containsLabel(BNContext bc, String text, int label) {
+        if (!bc.phrasesMatched) {
+            if (bc.phraseMark == null || bc.phraseMark.length != phraseMatcher.size()) {
+                bc.phraseMark = new int[phraseMatcher.size()];
+                bc.phraseEpoch = 0;
+            }
+            if (++bc.phraseEpoch == 0) {
+                Arrays.fill(bc.phraseMark, 0);
+                bc.phraseEpoch = 1;
+            }
+            phraseMatcher.match(text, bc.phraseMark, bc.phraseEpoch);
+            bc.phrasesMatched = true;
+        }
+        return bc.phraseMark[label] == bc.phraseEpoch;
+    }
+    
+    @Override
+    public Context newContext() {
+        return new BNContext(this);
     }
     
     /* Propagates probability from Descriptors to themselves */
-    protected void propagateDToD (Map<Integer, Double> probC, Map<Integer, Double> probFin) {
-        List<Integer> queue = new ArrayList<Integer> ();
-        for (Map.Entry<Integer, Double> desc : probC.entrySet()) {
-            Descriptor _D = ld.get(desc.getKey());
-            insertDescendantsOnQueue(_D.getId(),queue);
-        }
-        
-        List<Integer> topologicallist = new ArrayList<Integer> ();
-        while  (!queue.isEmpty()) {
-            Integer S = queue.get(0);
-            queue.remove(0);
-            if (!topologicallist.contains(S))
-                topological(S, topologicallist, queue);
-        }
-        while  (!topologicallist.isEmpty()) {
-            Integer S = topologicallist.get(0);
-            topologicallist.remove(0);
-            double acum = 0.0;
-            Descriptor _S = ld.get(S);
-            for (Integer U : _S.getFathers())
-                if (probFin.containsKey(U))
-                    acum += probFin.get(U)/_S.getFathers().size();
-            
-            if (probC.containsKey(S))
-                probFin.put(S,1.0-(1.0-associativityb*acum)*probC.get(S));
-            else probFin.put(S,1.0-(1.0-associativityb*acum));
-        }
+    protected void propagateDToD (Map<Integer, Double> probC, Map<Integer, Double> probFin, Context c) {
+        propagateStructure(probC, probFin, associativityb, c);
         
         /*
        final double andweight = 0.9;//0.5; //por ejemplo
@@ -135,6 +154,71 @@ public class BNClassifier extends ClassifierModel {
          */
     }
     
+    /** Propagates probability among the descriptors following the BT relation, with
+     * strength "assoc". Only the descriptors reachable from "probC" are visited, in
+     * the topological order compiled when the index was read.
+     */
+    protected void propagateStructure(Map<Integer, Double> probC, Map<Integer, Double> probFin, double assoc, Context c) {
+        int n = graph.getNumDescriptors();
+        int[] descendantOffsets = graph.getDescendantOffsets(), descendants = graph.getDescendants();
+        int[] fatherOffsets = graph.getFatherOffsets(), fathers = graph.getFathers();
+        int[] ids = graph.getDescriptorIds();
+        BNContext bc = (BNContext) c;
+        if (bc.visited == null || bc.visited.length != n) {
+            bc.visited = new int[n];
+            bc.activated = new int[n];
+            bc.fin = new double[n];
+            bc.epoch = 0;
+        }
+        int[] visited = bc.visited, activated = bc.activated;
+        double[] fin = bc.fin;
+        int epoch = ++bc.epoch;
+        
+        // 1.- we mark the descriptors of probC and all their descendants
+        int count = 0;
+        for (int D : probC.keySet()) {
+            int p = graph.positionOf(D);
+            if (p < 0 || visited[p] == epoch)
+                continue;
+            visited[p] = epoch;
+            int first = count;
+            activated[count++] = p;
+            
+            // "activated" beyond "first" works as the stack of the search
+            while (first < count) {
+                int q = activated[first++];
+                for (int j=descendantOffsets[q]; j<descendantOffsets[q+1]; ++j) {
+                    int U = descendants[j];
+                    if (U >= 0 && visited[U] != epoch) {
+                        visited[U] = epoch;
+                        activated[count++] = U;
+                    }
+                }
+            }
+        }
+        
+        // 2.- positions follow the topological order, every father is computed before its sons
+        Arrays.sort(activated, 0, count);
+        
+        for (int k=0; k<count; ++k) {
+            int S = activated[k];
+            int numFathers = fatherOffsets[S+1] - fatherOffsets[S];
+            double acum = 0.0;
+            for (int j=fatherOffsets[S]; j<fatherOffsets[S+1]; ++j) {
+                int U = fathers[j];
+                if (U >= 0 && visited[U] == epoch)
+                    acum += fin[U]/numFathers;
+            }
+            
+            int id = ids[S];
+            Double pc = probC.get(id);
+            if (pc != null)
+                fin[S] = 1.0-(1.0-assoc*acum)*pc;
+            else fin[S] = 1.0-(1.0-assoc*acum);
+            probFin.put(id, fin[S]);
+        }
+    }
+    
     protected void endsPropagation(Map<Integer, Double> probC, Map<Integer, Double> probFin) {
         for (int D : probC.keySet()) 
             if (!probFin.containsKey(D))
@@ -142,10 +226,11 @@ public class BNClassifier extends ClassifierModel {
     }
     
     protected void propagateNDToD(Map<Integer, Double> probD, Map<Integer, Double> probND, Map<Integer, Double> probC) {
+        int[] ids = graph.getDescriptorIds(), targets = graph.getNonDescriptorTargets();
+        
         // For each non-descriptor...
         for (Map.Entry<Integer, Double> nonDesc : probND.entrySet()) {
-            NonDescriptor ND = lnd.get(nonDesc.getKey());
-            int D = ND.getDescriptor();
+            int D = ids[targets[graph.nonDescriptorIndexOf(nonDesc.getKey())]];
             double prob = nonDesc.getValue();
             
             if (probC.containsKey(D))
@@ -156,8 +241,7 @@ public class BNClassifier extends ClassifierModel {
         
         // For each descriptor
         for (Map.Entry<Integer, Double> descr : probD.entrySet()) {
-            Descriptor _D = ld.get(descr.getKey());
-            int D = _D.getId();
+            int D = descr.getKey();
             double prob = descr.getValue();
             
             if (probC.containsKey(D))
@@ -169,23 +253,37 @@ public class BNClassifier extends ClassifierModel {
     
     
     protected void propagateTextToDescriptorsWithExactPhrases(Map<Integer, Double> probD,
-            Map<Integer, Double> probND, String _text) {
+            Map<Integer, Double> probND, String _text, Context c) {
+        SparseVector m = c.m;
         String text = _text.toLowerCase().trim();
+        BNContext bc = (BNContext) c;
+        bc.phrasesMatched = false;
         
         Map<Integer, Integer> countD = new HashMap<Integer, Integer> ();
         Map<Integer, Integer> countND = new HashMap<Integer, Integer> ();
-        double K = Math.log10(ld.size() + lnd.size());
+        double K = Math.log10(graph.getNumDescriptors() + graph.getNumNonDescriptors());
+        
+        int[] ids = graph.getDescriptorIds(), termOffsets = graph.getTermOffsets();
+        double[] sumWeights = graph.getDescriptorSumWeights();
+        int[] tdOffsets = graph.getTermDescriptorOffsets(), tdPositions = graph.getTermDescriptors();
+        double[] tdWeights = graph.getTermDescriptorWeights();
+        
+        int[] ndIds = graph.getNonDescriptorIds(), ndTermOffsets = graph.getNonDescriptorTermOffsets();
+        double[] ndSumWeights = graph.getNonDescriptorSumWeights();
+        int[] tndOffsets = graph.getTermNonDescriptorOffsets(), tndIndexes = graph.getTermNonDescriptors();
+        double[] tndWeights = graph.getTermNonDescriptorWeights();
         
         // for each term that appears in the text... (in m)
-        for (Map.Entry<Integer, Integer> t : m.entrySet()) {
-            ThesaurusTerm _t = lex.getTermById(t.getKey());
+        for (int pos=0; pos<m.size(); ++pos) {
+            int term = m.getTerm(pos);
             
             // For each descriptor...
-            for (Map.Entry<Integer, Double> weightD : _t.getWeightDescriptors() ) {
-                int id = weightD.getKey();
-                Descriptor d = ld.get(id);
-                double omega = d.getSumWeights();
-                double prob = weightD.getValue()*omega/(omega + K);
+            for (int k=tdOffsets[term]; k<tdOffsets[term+1]; ++k) {
+                int p = tdPositions[k];
+                int id = ids[p];
+                int numTerms = termOffsets[p+1] - termOffsets[p];
+                double omega = sumWeights[p];
+                double prob = tdWeights[k]*omega/(omega + K);
                 
                 if (probD.containsKey(id))
                     probD.put(id, probD.get(id) + prob);
@@ -197,25 +295,26 @@ public class BNClassifier extends ClassifierModel {
                 
                 if (this.useStemming) {
                     
-                    if (countD.get(id)==d.getTerms().size() && text.indexOf(d.getDescription().toLowerCase())!=-1)
+                    if (countD.get(id)==numTerms && containsLabel(bc, text, p))
                         probD.put(id, 1.0);
                     
                 } else {
                     
-                    if (d.getTerms().size()==1 && countD.get(id)==1)
+                    if (numTerms==1 && countD.get(id)==1)
                         probD.put(id, 1.0);
                     
-                    if ( d.getTerms().size()>1 &&  countD.get(id)==d.getTerms().size() && text.indexOf(d.getDescription().toLowerCase())!=-1)
+                    if ( numTerms>1 &&  countD.get(id)==numTerms && containsLabel(bc, text, p))
                         probD.put(id, 1.0);
                 }
             }
             
             // For each nondescriptor...
-            for (Map.Entry<Integer, Double> weightND : _t.getWeightNonDescriptors()) {
-                int id = weightND.getKey();
-                NonDescriptor nd = lnd.get(id);
-                double omega = nd.getSumWeights();
-                double prob = weightND.getValue()*omega/(omega + K);
+            for (int k=tndOffsets[term]; k<tndOffsets[term+1]; ++k) {
+                int i = tndIndexes[k];
+                int id = ndIds[i];
+                int numTerms = ndTermOffsets[i+1] - ndTermOffsets[i];
+                double omega = ndSumWeights[i];
+                double prob = tndWeights[k]*omega/(omega + K);
                 
                 if (probND.containsKey(id))
                     probND.put(id, probND.get(id) + prob);
@@ -226,14 +325,14 @@ public class BNClassifier extends ClassifierModel {
                 else countND.put(id, 1);
                 
                 if (this.useStemming) {
-                    if (countND.get(id)==nd.getTerms().size()&& text.indexOf(nd.getDescription().toLowerCase())!=-1)
+                    if (countND.get(id)==numTerms && containsLabel(bc, text, ids.length + i))
                         probND.put(id, 1.0);
                     
                 } else {
-                    if (nd.getTerms().size()==1 && countND.get(id)==1)
+                    if (numTerms==1 && countND.get(id)==1)
                         probND.put(id, 1.0);
                     
-                    if (nd.getTerms().size()>1 && countND.get(id)==nd.getTerms().size()&& text.indexOf(nd.getDescription().toLowerCase())!=-1)
+                    if (numTerms>1 && countND.get(id)==numTerms && containsLabel(bc, text, ids.length + i))
                         probND.put(id, 1.0);
                 }
             }
@@ -241,20 +340,29 @@ public class BNClassifier extends ClassifierModel {
         
     }
     
-    protected void propagateTextToDescriptorsWithoutExactPhrases(Map<Integer, Double> probD, Map<Integer, Double> probND) {
+    protected void propagateTextToDescriptorsWithoutExactPhrases(Map<Integer, Double> probD, Map<Integer, Double> probND, Context c) {
+        SparseVector m = c.m;
+        int[] ids = graph.getDescriptorIds();
+        int[] tdOffsets = graph.getTermDescriptorOffsets(), tdPositions = graph.getTermDescriptors();
+        double[] tdWeights = graph.getTermDescriptorWeights();
+        
+        int[] ndIds = graph.getNonDescriptorIds(), ndTargets = graph.getNonDescriptorTargets();
+        int[] tndOffsets = graph.getTermNonDescriptorOffsets(), tndIndexes = graph.getTermNonDescriptors();
+        double[] tndWeights = graph.getTermNonDescriptorWeights();
+        
         // for each term that appears in the text... (in m)
-        for (Map.Entry<Integer, Integer> t : m.entrySet()) {
-            ThesaurusTerm _t = lex.getTermById(t.getKey());
+        for (int pos=0; pos<m.size(); ++pos) {
+            int term = m.getTerm(pos);
             
             if (BNClassifier.DEBUGGING)
-                System.out.println("Propagando término " + _t.getString());
+                System.out.println("Propagando término " + lex.getTermById(term).getString());
             
             
             // For each descriptor...
-            for (Map.Entry<Integer, Double> weightD : _t.getWeightDescriptors() ) {
+            for (int k=tdOffsets[term]; k<tdOffsets[term+1]; ++k) {
                 
-                int id = weightD.getKey();
-                double prob = weightD.getValue();
+                int id = ids[tdPositions[k]];
+                double prob = tdWeights[k];
                 
                 if (BNClassifier.DEBUGGING)
                     System.out.println("\t En descriptor " + id + " tiene peso " + prob);
@@ -265,11 +373,11 @@ public class BNClassifier extends ClassifierModel {
             }
             
             // For each nondescriptor...
-            for (Map.Entry<Integer, Double> weightND : _t.getWeightNonDescriptors()) {
-                int id = weightND.getKey();
-                double prob = weightND.getValue();
+            for (int k=tndOffsets[term]; k<tndOffsets[term+1]; ++k) {
+                int id = ndIds[tndIndexes[k]];
+                double prob = tndWeights[k];
                 
-                int midesc = lnd.get(id).getDescriptor();
+                int midesc = ids[ndTargets[tndIndexes[k]]];
                 
                 if (BNClassifier.DEBUGGING) {
                     System.out.println("\t En no descriptor " + id + " tiene peso " + prob);
@@ -284,7 +392,7 @@ public class BNClassifier extends ClassifierModel {
         }
     }
     
-    List<Result> classify(String textToClassify) {
+    protected List<Result> classify(String textToClassify, Context c) {
         // 0.- we get rid of the accents and other similar stuff
         String _textToClassify = internationalizeText(textToClassify);
         
@@ -296,14 +404,17 @@ public class BNClassifier extends ClassifierModel {
         Map<Integer, Double> probND = new TreeMap<Integer, Double>();
         
         // ... we propagate textual probabilities
+        long t = Metrics.start();
         if (this.useExactPhrases)
-            propagateTextToDescriptorsWithExactPhrases(probD, probND, _textToClassify);
-        else propagateTextToDescriptorsWithoutExactPhrases(probD, probND);
+            propagateTextToDescriptorsWithExactPhrases(probD, probND, _textToClassify, c);
+        else propagateTextToDescriptorsWithoutExactPhrases(probD, probND, c);
+        t = Metrics.stop(Metrics.Stage.TEXT_TO_DESCRIPTORS, t);
         
         // 2.- For each nondescriptor, we propagate to its
         // 	related descriptor
         Map<Integer, Double> probC = new TreeMap<Integer, Double>();
         propagateNDToD(probD, probND, probC);
+        t = Metrics.stop(Metrics.Stage.ND_TO_D, t);
         
         if (BNClassifier.DEBUGGING) {
             System.out.println("Imprimiendo probC: ");
@@ -317,7 +428,7 @@ public class BNClassifier extends ClassifierModel {
         
         // 3.- We propagate among the descriptors, following the BT relation
         Map<Integer, Double> probFin = new HashMap<Integer, Double>();
-        propagateDToD(probC, probFin);
+        propagateDToD(probC, probFin, c);
         
         if (BNClassifier.DEBUGGING) {
             System.out.println("Propagate DtoD: ");
@@ -326,6 +437,7 @@ public class BNClassifier extends ClassifierModel {
         }
         
         endsPropagation(probC, probFin);
+        t = Metrics.stop(Metrics.Stage.D_TO_D, t);
         
         if (BNClassifier.DEBUGGING) {
             System.out.println("Remata: ");
@@ -337,8 +449,10 @@ public class BNClassifier extends ClassifierModel {
         // 4.- We compute nIdf_q for each node, and we make the product of
         //   the probability with that
         
-        if(useNidf)
-            this.computeNIDF(probFin);
+        if(useNidf) {
+            this.computeNIDF(probFin, c);
+            t = Metrics.stop(Metrics.Stage.NIDF, t);
+        }
         
         if (BNClassifier.DEBUGGING) {
             System.out.println("Idf calculado: ");
@@ -347,16 +461,8 @@ public class BNClassifier extends ClassifierModel {
         }
         
         probC = null;
-        List<Result> l = new ArrayList<Result>();
-        
-        for (Map.Entry<Integer, Double> result : probFin.entrySet() ) {
-            if (result.getValue() > 0.0){
-                Descriptor d = ld.get(result.getKey());
-                l.add(new Result( d, result.getValue() ));       
-            }
-        }
-        
-        Collections.sort(l, new Comparator<Result>() { public int compare(Result s1, Result s2) { if (s1.getProb() > s2.getProb()) return -1; else return 1; } });
+        List<Result> l = rankResults(probFin, true);
+        Metrics.stop(Metrics.Stage.RANKING, t);
         return l;
     }
 }
@@ -28,27 +28,91 @@ package unsupervisedClassifier;
 
 import java.util.*;
 import java.io.*;
-import thesaurus.NonDescriptor;
 import thesaurus.ThesaurusStringIndexer;
-import thesaurus.ThesaurusTerm;
+import base.Metrics;
+import base.SparseVector;
+import base.Tokenizer;
+import base.TopK;
+import thesaurus.Descriptor;
 
 abstract public class ClassifierModel extends IndexReader {
     private static final boolean OUTPUT = false;
     
-    /** Map with term/frequency pairs */
-    protected Map<Integer, Integer> m;    
+    //! context of classifyString(String) and classifyFile(String)
+    private Context context;
     
-    private void computeIDFS(Map<Integer, Double> idf) {
+    //! number of results returned by classify (0 means all of them)
+    protected int topK = 0;
+    
+    //! results with a lower score are discarded
+    protected double minScore = Double.NEGATIVE_INFINITY;
+    
+    /** Keeps only the best "topK" results of each document (0 to keep all) */
+    public void setTopK(int topK) {
+        this.topK = topK;
+    }
+    
+    /** Discards the results whose score is lower than "minScore" */
+    public void setMinScore(double minScore) {
+        this.minScore = minScore;
+    }
+    
+    /**
+     * State of the classification of a document: its vector of term
+     * frequencies and the scratch arrays used while classifying it. A model is
+     * not modified when it classifies, so several threads can use it at the
+     * same time, each one with its own context (see newContext). A context can
+     * only be used with the model it was created for.
+     */
+    public static class Context {
+        //! model the context was created for
+        final ClassifierModel model;
+        
+        //! indexer of the text to classify
+        final ThesaurusStringIndexer si;
+        
+        /** Map with term/frequency pairs */
+        SparseVector m = SparseVector.EMPTY;
+        
+        // scratch arrays for the nidf computation, indexed by descriptor position
+        private double[] nidf;
+        private int[] nidfMark;
+        private int nidfEpoch;
+        private int[] closureMark;
+        private int closureEpoch;
+        
+        protected Context(ClassifierModel model) {
+            this.model = model;
+            si = new ThesaurusStringIndexer();
+            si.setLexicon(model.getLexicon());
+            si.useOwnStemmer();
+        }
+        
+        /** Vector of term frequencies of the document being classified */
+        public SparseVector getVector() {
+            return m;
+        }
+    }
+    
+    /** Creates a new context to classify documents with this model. Models
+     * with their own scratch state return a subclass of Context.
+     */
+    public Context newContext() {
+        return new Context(this);
+    }
+    
+    private void computeIDFS(Map<Integer, Double> idf, Context c) {
+        SparseVector m = c.m;
         // Idf computation for each term
         double sum = 0.0;
-        double N = ClassifierModel.numDescriptors + ClassifierModel.numNonDescriptors;
-        for (Map.Entry<Integer, Integer> termsOfDocument : m.entrySet())
+        double N = numDescriptors + numNonDescriptors;
+        for (int pos=0; pos<m.size(); ++pos)
         {
-            ThesaurusTerm t = lex.getTermById(termsOfDocument.getKey().intValue());
-            double Ni = t.getDescriptors().size() + t.getNonDescriptors().size();
+            int t = m.getTerm(pos);
+            double Ni = graph.getNumPostings(t);
             double myIdf = Math.log10(N/Ni);
             sum += myIdf;
-            idf.put(t.getId(), myIdf);
+            idf.put(t, myIdf);
         }
         
         // Idf normalization
@@ -63,55 +127,108 @@ abstract public class ClassifierModel extends IndexReader {
     }
     
     
-    protected void computeNIDF(Map<Integer, Double> probFin) {
+    /** Adds "value" to the nidf of every descriptor reachable, following the
+     * descendants, from the descriptors at positions seeds[0..numSeeds). Each
+     * descriptor receives the value once, even if reached from several seeds
+     * (the precomputed closures of the seeds are merged).
+     * clearNidf() must have been called before.
+     */
+    protected void addToDescendants(Context c, int[] seeds, int numSeeds, double value) {
+        int[] offsets = closures.getDescriptorOffsets(), descriptorClosures = closures.getDescriptorClosures();
+        int[] closureMark = c.closureMark, nidfMark = c.nidfMark;
+        double[] nidf = c.nidf;
+        int closureEpoch = ++c.closureEpoch, nidfEpoch = c.nidfEpoch;
+        
+        for (int i=0; i<numSeeds; ++i) {
+            int p = seeds[i];
+            if (p < 0)
+                continue;
+            for (int j=offsets[p]; j<offsets[p+1]; ++j) {
+                int q = descriptorClosures[j];
+                if (closureMark[q] == closureEpoch)
+                    continue;
+                closureMark[q] = closureEpoch;
+                if (nidfMark[q] != nidfEpoch) {
+                    nidfMark[q] = nidfEpoch;
+                    nidf[q] = value;
+                } else nidf[q] += value;
+            }
+        }
+    }
+    
+    /** Adds "value" to the nidf of every descriptor reachable from the
+     * descriptors a term appears in, directly or through its nondescriptors
+     * (the precomputed closure of the term). clearNidf() must have been called before.
+     */
+    protected void addToTermDescendants(Context c, int term, double value) {
+        int[] nidfMark = c.nidfMark;
+        double[] nidf = c.nidf;
+        int nidfEpoch = c.nidfEpoch;
+        
+        // closure as a list of positions...
+        int[] arrayOffsets = closures.getTermArrayOffsets(), arrays = closures.getTermArrays();
+        for (int j=arrayOffsets[term]; j<arrayOffsets[term+1]; ++j) {
+            int q = arrays[j];
+            if (nidfMark[q] != nidfEpoch) {
+                nidfMark[q] = nidfEpoch;
+                nidf[q] = value;
+            } else nidf[q] += value;
+        }
+        
+        // ... or as a bitmap
+        int[] bitmapOffsets = closures.getTermBitmapOffsets();
+        long[] bitmaps = closures.getTermBitmaps();
+        int base = closures.getTermBitmapBase()[term] - bitmapOffsets[term];
+        for (int w=bitmapOffsets[term]; w<bitmapOffsets[term+1]; ++w) {
+            long word = bitmaps[w];
+            while (word != 0) {
+                int q = ((base + w) << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                if (nidfMark[q] != nidfEpoch) {
+                    nidfMark[q] = nidfEpoch;
+                    nidf[q] = value;
+                } else nidf[q] += value;
+            }
+        }
+    }
+    
+    /** Starts a new nidf computation: all the nidf values are reset to zero */
+    protected void clearNidf(Context c) {
+        int n = graph.getNumDescriptors();
+        if (c.nidf == null || c.nidf.length != n) {
+            c.nidf = new double[n];
+            c.nidfMark = new int[n];
+            c.nidfEpoch = 0;
+            c.closureMark = new int[n];
+            c.closureEpoch = 0;
+        }
+        ++c.nidfEpoch;
+    }
+    
+    /** Multiplies each value of probFin by the nidf of its descriptor (0 if none).
+     * clearNidf() must have been called before. */
+    protected void applyNidf(Map<Integer, Double> probFin, Context c) {
+        for (Map.Entry<Integer, Double> it : probFin.entrySet()) {
+            int p = graph.positionOf(it.getKey());
+            if (p >= 0 && c.nidfMark[p] == c.nidfEpoch)
+                it.setValue(it.getValue() * c.nidf[p]);
+            else it.setValue(0.0);
+        }
+    }
+    
+    protected void computeNIDF(Map<Integer, Double> probFin, Context c) {
         Map<Integer, Double> idf = new HashMap<Integer, Double>();
+        SparseVector m = c.m;
         
-        computeIDFS(idf);
+        computeIDFS(idf, c);
         
         // Nidf data structure
-        Map<Integer, Double> nidf = new HashMap<Integer, Double>();
+        clearNidf(c);
         
-        // For each term, we compute the set of descendants, and we add to a set
-        for (Map.Entry<Integer, Integer> termsOfDocument : m.entrySet()) {
-            Set<Integer> ancestors = new HashSet<Integer>();
-            Set<Integer> descendants = new HashSet<Integer>();
-            
-            Queue<Integer> toProcess = new LinkedList<Integer>();
-            Queue<Integer> toProcess2 = new LinkedList<Integer>();
-            ThesaurusTerm t = lex.getTermById(termsOfDocument.getKey().intValue());
-            for (Map.Entry<Integer, Integer> descriptors : t.getDescriptors()) 
-                toProcess.add(descriptors.getKey());
-            
-            for (Map.Entry<Integer, Integer> descriptors : t.getNonDescriptors()) 
-            {
-                NonDescriptor nd = lnd.get(descriptors.getKey());
-                toProcess.add(nd.getDescriptor());
-            }
-                        
-            while(!toProcess2.isEmpty()) 
-            {
-                Integer top = toProcess2.poll();
-                
-                if (!descendants.contains(top)) 
-                {
-                    descendants.add(top);
-                    for (Integer i : (ld.get(top)).getDescendants())
-                        if (!descendants.contains(i))
-                            toProcess2.add(i);
-                }
-            }
-            
-            
-            if (ClassifierModel.OUTPUT)
-            {
-                for (Integer d : ancestors)
-                    System.out.println(" => " + d);
-            }
-            
-            for (Integer d : descendants)
-                if (nidf.containsKey(d))
-                    nidf.put(d, nidf.get(d) + idf.get(t.getId()));
-                else nidf.put(d, idf.get(t.getId()));
+        // For each term, we add its idf to its descriptors and all their descendants
+        for (int pos=0; pos<m.size(); ++pos) {
+            int t = m.getTerm(pos);
+            addToTermDescendants(c, t, idf.get(t));
         } // for each term's descendant
    
         // we print nidfs
@@ -119,56 +236,98 @@ abstract public class ClassifierModel extends IndexReader {
         if (ClassifierModel.OUTPUT)
         {
             System.out.println("Nidf values:");
-            for (Map.Entry<Integer, Double> idfs : nidf.entrySet()) 
-                System.out.println(" => " + idfs.getKey() + ": " + idfs.getValue());
+            for (int p=0; p<graph.getNumDescriptors(); ++p)
+                if (c.nidfMark[p] == c.nidfEpoch)
+                    System.out.println(" => " + graph.getDescriptorIds()[p] + ": " + c.nidf[p]);
         }
    
         
         // we recalculate probFin as probFin * nidf
-        
-        for (Map.Entry<Integer, Double> it : probFin.entrySet()) {
-            int i = it.getKey();
-            if (nidf.containsKey(i)) {
-                //  double _nidf = nidf.get(i);
-                double prob = it.getValue();
-                probFin.put( i, prob * nidf.get(i) );
-            } else probFin.put( i, 0.0 );
-        }
+        applyNidf(probFin, c);
     }    
     
     protected String internationalizeText(String s) {
-        String _s = s.toLowerCase();
-        _s = _s.replaceAll("á", "a");
-        _s = _s.replaceAll("é", "e");
-        _s= _s.replaceAll("í", "i");
-        _s= _s.replaceAll("ó", "o");
-        _s= _s.replaceAll("ú", "u");
-        _s= _s.replaceAll("û", "u");
-        return _s;  
+        return Tokenizer.internationalize(s);
     }
     
-     
-    abstract List<Result> classify(String textToClassify);
+    /** Returns the results sorted by decreasing score (ties keep the iteration
+     * order of the map). If topK is set only the best topK are kept, in a
+     * bounded heap instead of sorting all of them; they are the same as the
+     * first topK of the whole list.
+     * @param scores score of each descriptor (by id)
+     * @param onlyPositive true to discard the descriptors with score 0
+     */
+    protected List<Result> rankResults(Map<Integer, Double> scores, boolean onlyPositive) {
+        List<Result> l = new ArrayList<Result>();
+        
+        // Double.MIN_VALUE is the lowest positive score
+        double floor = onlyPositive ? Math.max(minScore, Double.MIN_VALUE) : minScore;
+        List<Map.Entry<Integer, Double>> selected = TopK.select(scores, topK, floor);
+        if (selected.isEmpty())
+            return l;
         
+        // the descriptors of the results only have their identifier and description
+        String[] descriptions = getDescriptions();
+        for (Map.Entry<Integer, Double> result : selected) {
+            int p = graph.positionOf(result.getKey());
+            Descriptor d = (p < 0) ? null : new Descriptor(result.getKey(), descriptions[p]);
+            l.add(new Result( d, result.getValue() ));
+        }
+        return l;
+    }
+     
+    /** Classifies a document, whose vector is c.m
+     * @param textToClassify text of the document
+     * @param c context of the classification
+     */
+    protected abstract List<Result> classify(String textToClassify, Context c);
+    
+    private void checkContext(Context c) {
+        if (c.model != this)
+            throw new IllegalArgumentException("the context was created for another model");
+    }
+    
+    /** Classifies a string (not thread-safe, see classifyString(String, Context)) */
     public List<Result> classifyString(String s) {
-        m.clear();
-        si = new ThesaurusStringIndexer();
-        si.setLexicon(IndexReader.lex);
-        si.add(s);
-        m = si.getFreq();
-        return this.classify(s);
+        if (context == null)
+            context = this.newContext();
+        return this.classifyString(s, context);
+    }
+    
+    /** Classifies a string. Several threads can call it at the same time, with
+     * different contexts
+     * @param s text to classify
+     * @param c context of the classification (see newContext)
+     */
+    public List<Result> classifyString(String s, Context c) {
+        checkContext(c);
+        long t = Metrics.start();
+        c.si.clear();
+        c.si.add(s);
+        c.m = c.si.getVector();
+        Metrics.stop(Metrics.Stage.TOKENIZATION, t);
+        List<Result> l = this.classify(s, c);
+        Metrics.stop(Metrics.Stage.DOCUMENT, t);
+        return l;
     }
     
     public List<Result> classifyFile(String fileName) {
-        m.clear();
-        super.si = new ThesaurusStringIndexer();
+        if (context == null)
+            context = this.newContext();
+        return this.classifyFile(fileName, context);
+    }
+    
+    public List<Result> classifyFile(String fileName, Context c) {
+        checkContext(c);
+        long t = Metrics.start();
         StringBuilder sb = new StringBuilder();
+        c.si.clear();
         try {
             BufferedReader buff = new BufferedReader(new FileReader(fileName));
             
             while (buff.ready()) {
                 String s = buff.readLine();
-                si.add(s);
+                c.si.add(s);
                 sb.append(s);
             }
             
@@ -177,8 +336,11 @@ abstract public class ClassifierModel extends IndexReader {
             System.exit(-1);
         }
         
-        m = si.getFreq();
-        return this.classify(sb.toString());
+        c.m = c.si.getVector();
+        Metrics.stop(Metrics.Stage.TOKENIZATION, t);
+        List<Result> l = this.classify(sb.toString(), c);
+        Metrics.stop(Metrics.Stage.DOCUMENT, t);
+        return l;
     }
     
     
@@ -190,8 +352,6 @@ abstract public class ClassifierModel extends IndexReader {
         
         ThesaurusStringIndexer.setStopwordList(stopwordsFileName);
         ThesaurusStringIndexer.setIndexing(false);
-       
-        m = new TreeMap<Integer, Integer>();
     }
 }
 
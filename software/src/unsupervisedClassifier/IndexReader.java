@@ -30,31 +30,60 @@ import thesaurus.*;
 
 import java.util.*;
 import java.io.*;
+import java.nio.BufferUnderflowException;
 
+/**
+ * Thesaurus index read from a file. Everything is read once (readIndex) and
+ * kept in the fields of this object, which are not modified afterwards (only
+ * the parts of a binary index which are read when first asked for), so
+ * several indexes can be used in the same program, and each classifier uses
+ * its own one.
+ */
 public class IndexReader {
     /** String indexer */
     protected ThesaurusStringIndexer si;
     
     /** Lexicon */
-    public static ThesaurusLexicon lex = new ThesaurusLexicon();
+    protected final ThesaurusLexicon lex = new ThesaurusLexicon();
+    
+    /** Descriptors, only kept if the index is read keeping the postings (to
+     * write it again): the classifiers use the graph and the descriptions */
+    private final Map<Integer, Descriptor> ld = new TreeMap<Integer,Descriptor>();
     
-    /** List of non descriptors */
-    protected static Map<Integer, Descriptor> ld = new TreeMap<Integer,Descriptor>();
+    /** Nondescriptors, kept as ld */
+    private final Map<Integer,NonDescriptor> lnd = new TreeMap<Integer,NonDescriptor>();
     
-    /** List of descriptors */
-    protected static Map<Integer,NonDescriptor> lnd = new TreeMap<Integer,NonDescriptor>();
+    /** Descriptions of the descriptors (by position in the graph) and of the
+     * nondescriptors (by index), read from a binary index when first asked for */
+    private volatile String[] descriptions, nonDescriptorDescriptions;
     
     /** Microtesauri */
-    protected static Map<Integer, List<Integer>> MT = new HashMap<Integer, List<Integer>>();
+    private final Map<Integer, List<Integer>> MT = new HashMap<Integer, List<Integer>>();
     
     /** Microtesaurus */
-    protected static Map<Integer, String> micro = new HashMap<Integer, String>();
+    private final Map<Integer, String> micro = new HashMap<Integer, String>();
    
     /** Number of descriptors */
-    protected static int numDescriptors = 0;
+    protected int numDescriptors = 0;
     
     /** Number of nondescriptors */
-    protected static int numNonDescriptors = 0;
+    protected int numNonDescriptors = 0;
+    
+    /** Array-backed view of the index, used when classifying */
+    protected ThesaurusGraph graph;
+    
+    /** Descendants reachable from each descriptor and term of the graph (nidf) */
+    protected DescendantClosures closures;
+    
+    /** Binary index the descriptions, descriptors and microthesauri are read
+     * from (lazily), null if the index is a text one */
+    private BinaryThesaurusIndex binaryIndex;
+    
+    /** True if the microthesauri (MT, micro) are read */
+    private boolean microThesauriRead = true;
+    
+    /** True if the descriptors (ld, lnd) are read */
+    private boolean descriptorsRead = true;
     
     
     public IndexReader() {
@@ -62,6 +91,25 @@ public class IndexReader {
     }
     
     public void readIndex(String indexName) {
+        readIndex(indexName, false);
+    }
+    
+    /** Reads an index, either in text or in binary format (see BinaryThesaurusIndex).
+     * It can only be called once: an IndexReader holds a single index
+     * @param indexName name of the file
+     * @param keepPostings if true, the terms of the lexicon keep their frequencies and
+     * weights, which the classifiers do not need (they use the graph), so the index can
+     * be written again with writeIndex
+     */
+    public void readIndex(String indexName, boolean keepPostings) {
+        if (graph != null)
+            throw new IllegalStateException("an index was already read");
+        
+        if (BinaryThesaurusIndex.isBinaryIndex(indexName)) {
+            readBinaryIndex(indexName, keepPostings);
+            return;
+        }
+        
         FileReader fp = null;
         try {
             fp = new FileReader(indexName);
@@ -110,6 +158,16 @@ public class IndexReader {
             
             si.setLexicon(lex);
             
+            // the classifiers work on the graph and the descriptions, the postings
+            // of the terms and the descriptors are not needed any more
+            graph = new ThesaurusGraph(ld, lnd, lex);
+            closures = new DescendantClosures(graph);
+            storeDescriptions(keepPostings);
+            if (!keepPostings)
+                for (int i=0; i<lex.size(); ++i)
+                    if (lex.getTermById(i) != null)
+                        lex.getTermById(i).releasePostings();
+            
         }  catch (IOException ex){
             System.out.println("File " + indexName + " could not be read. Media error. " + ex);
             System.exit(-1);
@@ -119,4 +177,139 @@ public class IndexReader {
         }
     }
     
+    private void readBinaryIndex(String indexName, boolean keepPostings) {
+        try {
+            BinaryThesaurusIndex index = new BinaryThesaurusIndex(indexName);
+            index.readLexicon(lex, keepPostings);
+            ThesaurusGraph g = index.readGraph();
+            closures = new DescendantClosures(g);
+            numDescriptors = g.getNumDescriptors();
+            numNonDescriptors = g.getNumNonDescriptors();
+            
+            if (keepPostings)
+                index.readPostings(lex, g);
+            
+            // the descriptions, the descriptors and the microthesauri are only
+            // read from the mapped file if they are asked for
+            descriptorsRead = microThesauriRead = false;
+            binaryIndex = index;
+            graph = g;
+            
+            si.setLexicon(lex);
+            
+        } catch (IOException ex){
+            System.out.println("File " + indexName + " could not be read. " + ex);
+            System.exit(-1);
+        } catch (BufferUnderflowException ex) {
+            System.out.println("Error reading index " + indexName + ", the file is truncated. " + ex);
+            System.exit(-1);
+        }
+    }
+    
+    /** Keeps the descriptions of the descriptors and nondescriptors of ld and
+     * lnd, and empties these maps unless the postings are kept */
+    private void storeDescriptions(boolean keepPostings) {
+        int[] ids = graph.getDescriptorIds(), ndIds = graph.getNonDescriptorIds();
+        String[] d = new String[ids.length], nd = new String[ndIds.length];
+        for (int p=0; p<ids.length; ++p)
+            d[p] = ld.get(ids[p]).getDescription();
+        for (int i=0; i<ndIds.length; ++i)
+            nd[i] = lnd.get(ndIds[i]).getDescription();
+        nonDescriptorDescriptions = nd;
+        descriptions = d;
+        
+        if (!keepPostings) {
+            ld.clear();
+            lnd.clear();
+        }
+    }
+    
+    private synchronized void readMicroThesauri() {
+        if (!microThesauriRead) {
+            try {
+                binaryIndex.readMicroThesauri(MT, micro);
+            } catch (IOException ex) {
+                System.err.println("ERROR: microthesauri could not be read. " + ex);
+                System.exit(-1);
+            }
+            microThesauriRead = true;
+        }
+    }
+    
+    private synchronized void readDescriptions() {
+        if (descriptions == null) {
+            String[] d = new String[graph.getNumDescriptors()], nd = new String[graph.getNumNonDescriptors()];
+            try {
+                binaryIndex.readDescriptions(graph, d, nd);
+            } catch (IOException ex) {
+                System.err.println("ERROR: descriptions could not be read. " + ex);
+                System.exit(-1);
+            }
+            nonDescriptorDescriptions = nd;
+            descriptions = d;
+        }
+    }
+    
+    private synchronized void readDescriptors() {
+        if (!descriptorsRead) {
+            try {
+                binaryIndex.readDescriptors(ld);
+                binaryIndex.readNonDescriptors(lnd);
+            } catch (IOException ex) {
+                System.err.println("ERROR: descriptors could not be read. " + ex);
+                System.exit(-1);
+            }
+            descriptorsRead = true;
+        }
+    }
+    
+    /** Returns the lexicon of the index */
+    public ThesaurusLexicon getLexicon() {
+        return lex;
+    }
+    
+    /** Returns the description of each descriptor, by its position in the graph */
+    public String[] getDescriptions() {
+        if (descriptions == null)
+            readDescriptions();
+        return descriptions;
+    }
+    
+    /** Returns the description of each nondescriptor, by its index in the graph */
+    public String[] getNonDescriptorDescriptions() {
+        if (descriptions == null)
+            readDescriptions();
+        return nonDescriptorDescriptions;
+    }
+    
+    /** Returns the descriptors of each microthesaurus (not to be modified) */
+    public Map<Integer, List<Integer>> getMicroThesauri() {
+        readMicroThesauri();
+        return Collections.unmodifiableMap(MT);
+    }
+    
+    /** Returns the name of each microthesaurus (not to be modified) */
+    public Map<Integer, String> getMicroThesaurusNames() {
+        readMicroThesauri();
+        return Collections.unmodifiableMap(micro);
+    }
+    
+    /** Writes the index which has been read, that must have been read keeping
+     * the postings of the terms
+     * @param fileName name of the file
+     * @param binary true to write it in the binary format, false in text format
+     */
+    public void writeIndex(String fileName, boolean binary) {
+        readDescriptors();
+        readMicroThesauri();
+        if (binary) {
+            try {
+                BinaryThesaurusIndex.write(fileName, lex, ld, lnd, MT, micro);
+            } catch (IOException ex) {
+                System.err.println("File " + fileName + " could not be written. Media error. " + ex);
+                System.exit(-1);
+            }
+        } else IndexBuilder.writeIndex(fileName, lex, ld, lnd, MT, micro);
+    }
+    
 }
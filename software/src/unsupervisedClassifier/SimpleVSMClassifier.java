@@ -33,8 +33,8 @@
 
 package unsupervisedClassifier;
 import java.util.*;
-import thesaurus.Descriptor;
-import thesaurus.NonDescriptor;
+import base.Metrics;
+import base.SparseVector;
 import base.StringIndexer;
 
 
@@ -52,6 +52,32 @@ public class SimpleVSMClassifier extends ClassifierModel {
     // For every descriptor, we get its associated tf*idf vector
     Map <Integer, Map<Integer, Double>> vectors;
     
+    // Inverted index of "vectors": descriptors in the iteration order of
+    // "vectors", and for each term the positions of the descriptors whose
+    // vector contains it (postingDescriptors from postingOffsets[t] to
+    // postingOffsets[t+1]) and its weight on them
+    int[] descriptorIds;
+    int[] postingOffsets;
+    int[] postingDescriptors;
+    double[] postingWeights;
+    
+    /** Context of a classification with its own scratch arrays for classify,
+     * indexed by descriptor position */
+    protected static class VSMContext extends ClassifierModel.Context {
+        private double[] accumulator;
+        private int[] accumulatorMark;
+        private int accumulatorEpoch;
+        private int[] touched;
+        
+        protected VSMContext(ClassifierModel model, int numDescriptors) {
+            super(model);
+            accumulator = new double[numDescriptors];
+            accumulatorMark = new int[numDescriptors];
+            accumulatorEpoch = 0;
+            touched = new int[numDescriptors];
+        }
+    }
+    
     /** Computes the modulus of a certain vector
      * @param mp vector which modulus we want to compute
      */
@@ -100,7 +126,9 @@ public class SimpleVSMClassifier extends ClassifierModel {
       
       simple = this.computeVectorsFromDescriptors();
       
-      Set<Integer> ids =  new HashSet<Integer>(ld.keySet());
+      Set<Integer> ids =  new HashSet<Integer>(this.sortedDescriptorIds());
+      int[] positionIds = graph.getDescriptorIds();
+      int[] descendantOffsets = graph.getDescendantOffsets(), descendants = graph.getDescendants();
       
       while (!ids.isEmpty())
       {
@@ -108,8 +136,11 @@ public class SimpleVSMClassifier extends ClassifierModel {
           
           for (int i : ids)
           {
-            Descriptor d = ld.get(i);
-            List<Integer> desc = d.getDescendants();
+            // descendants of the descriptor, in the order of its list
+            int p = graph.positionOf(i);
+            List<Integer> desc = new ArrayList<Integer>(descendantOffsets[p+1] - descendantOffsets[p]);
+            for (int k=descendantOffsets[p]; k<descendantOffsets[p+1]; ++k)
+                desc.add(positionIds[descendants[k]]);
             
             if (desc.isEmpty()) // if topTerm...
             {
@@ -141,6 +172,16 @@ public class SimpleVSMClassifier extends ClassifierModel {
     
     
     
+    /** Identifiers of the descriptors of the graph, in increasing order */
+    private List<Integer> sortedDescriptorIds() {
+        int[] ids = graph.getDescriptorIds().clone();
+        Arrays.sort(ids);
+        List<Integer> l = new ArrayList<Integer>(ids.length);
+        for (int id : ids)
+            l.add(id);
+        return l;
+    }
+    
     private Map<Integer, Map<Integer, Double>> computeVectorsFromDescriptors() {
         // Return vector
         Map<Integer, Map<Integer, Double>> result = new HashMap<Integer, Map<Integer, Double>>();
@@ -150,24 +191,46 @@ public class SimpleVSMClassifier extends ClassifierModel {
         
         // ---------- 1.- We compute the frecuency vectors --------------------
         
+        int[] termOffsets = graph.getTermOffsets(), terms = graph.getTerms();
+        int[] ndTermOffsets = graph.getNonDescriptorTermOffsets(), ndTerms = graph.getNonDescriptorTerms();
+        
+        // non-descriptors of each descriptor (by position), by increasing
+        // identifier: the order in which the index builder adds them
+        int numDescriptors = graph.getNumDescriptors();
+        int[] targets = graph.getNonDescriptorTargets();
+        int[] ndOffsets = new int[numDescriptors + 1];
+        for (int target : targets)
+            if (target >= 0)
+                ++ndOffsets[target + 1];
+        for (int p=0; p<numDescriptors; ++p)
+            ndOffsets[p + 1] += ndOffsets[p];
+        int[] ndOfDescriptor = new int[ndOffsets[numDescriptors]];
+        int[] next = new int[numDescriptors];
+        System.arraycopy(ndOffsets, 0, next, 0, numDescriptors);
+        for (int i=0; i<targets.length; ++i)
+            if (targets[i] >= 0)
+                ndOfDescriptor[next[targets[i]]++] = i;
+        
         // for every "i" descriptor
-        for (int _d : ld.keySet()) {
-            Descriptor d = ld.get(_d); // we recover it
+        for (int _d : this.sortedDescriptorIds()) {
+            int p = graph.positionOf(_d);
             
             // we create its vector
             Map <Integer, Double> v = new HashMap<Integer, Double>();
             
             // for every term of the descriptor... we increase its frequency (initially 1)
-            for (int t : d.getTerms())
-                v.put(t, 1.0);
+            for (int k=termOffsets[p]; k<termOffsets[p+1]; ++k)
+                v.put(terms[k], 1.0);
             
-            // for every associated non-descriptor, we recover it and we add to the vector
-            for (int _nd : d.getNonDescriptors()) {
-                NonDescriptor nd = lnd.get(_nd);
-                for (int t : nd.getTerms())
+            // for every associated non-descriptor, we add its terms to the vector
+            for (int k=ndOffsets[p]; k<ndOffsets[p+1]; ++k) {
+                int nd = ndOfDescriptor[k];
+                for (int j=ndTermOffsets[nd]; j<ndTermOffsets[nd+1]; ++j) {
+                    int t = ndTerms[j];
                     if (v.containsKey(t))
                         v.put(t, v.get(t) + 1.0);
                     else v.put(t, 1.0);
+                }
             }
             
             // we add to the result vector
@@ -186,8 +249,8 @@ public class SimpleVSMClassifier extends ClassifierModel {
         
         for (int i=0; i<lex.size(); ++i)
             if (freqs.containsKey(i))
-                idf.put(i, Math.log(ld.size()/freqs.get(i)) );
-            else idf.put(i, Math.log(ld.size()));
+                idf.put(i, Math.log(numDescriptors/freqs.get(i)) );
+            else idf.put(i, Math.log(numDescriptors));
         
         // we free memory
         freqs.clear();
@@ -196,7 +259,7 @@ public class SimpleVSMClassifier extends ClassifierModel {
         // ------------ 3.- We multiply the vectors by the idf -------
         
         // for every "i" descriptor
-        for (int i : ld.keySet())
+        for (int i : result.keySet())
         {
             for (int t : result.get(i).keySet()) // for each term of the i-th vector
               result.get(i).put(t, result.get(i).get(t) * idf.get(t));            
@@ -234,6 +297,36 @@ public class SimpleVSMClassifier extends ClassifierModel {
       return result;
     }
         
+    /** Builds the inverted index of the (normalized) descriptor vectors */
+    private void buildInvertedIndex() {
+        int numTerms = lex.size();
+        descriptorIds = new int[vectors.size()];
+        postingOffsets = new int[numTerms + 1];
+        
+        int p = 0;
+        for (Map.Entry<Integer, Map<Integer, Double>> vi : vectors.entrySet()) {
+            descriptorIds[p++] = vi.getKey();
+            for (int t : vi.getValue().keySet())
+                ++postingOffsets[t + 1];
+        }
+        for (int t=0; t<numTerms; ++t)
+            postingOffsets[t + 1] += postingOffsets[t];
+        
+        postingDescriptors = new int[postingOffsets[numTerms]];
+        postingWeights = new double[postingOffsets[numTerms]];
+        int[] next = new int[numTerms];
+        System.arraycopy(postingOffsets, 0, next, 0, numTerms);
+        p = 0;
+        for (Map<Integer, Double> v : vectors.values()) {
+            for (Map.Entry<Integer, Double> component : v.entrySet()) {
+                int k = next[component.getKey()]++;
+                postingDescriptors[k] = p;
+                postingWeights[k] = component.getValue();
+            }
+            ++p;
+        }
+    }
+    
     /** Creates a new instance of SimpleVSMClassifier */
     public SimpleVSMClassifier(String indexName, String stopwordsFileName, boolean hierarchical, boolean stemming, boolean usingNidf) {
         super(indexName, stopwordsFileName);
@@ -247,59 +340,97 @@ public class SimpleVSMClassifier extends ClassifierModel {
         for (Map<Integer, Double> v : vectors.values())
             this.normalizeVector(v);
         
+        this.buildInvertedIndex();
+        
         StringIndexer.setStem(stemming);
         
         this.useNidf = usingNidf;
     }
+    
+    @Override
+    public Context newContext() {
+        return new VSMContext(this, descriptorIds.length);
+    }
        
-    List<Result> classify(String textToClassify) {
-        
-        List<Result> l = new ArrayList<Result>();
+    protected List<Result> classify(String textToClassify, Context c) {
+        SparseVector m = c.m;
+        VSMContext vc = (VSMContext) c;
+        double[] accumulator = vc.accumulator;
+        int[] accumulatorMark = vc.accumulatorMark, touched = vc.touched;
         
         // 1.- We create the vector from m, called "query" (with tf*idf of the text to classify)
+        long time = Metrics.start();
         Map<Integer, Double> query = new HashMap<Integer, Double>();
                 
         int i =0;
         
-        for (Map.Entry<Integer, Integer> val : m.entrySet())
+        for (int pos=0; pos<m.size(); ++pos)
         {
-            i = val.getKey();
-            double tfidf = val.getValue() * idf.get(val.getKey());
-            query.put(val.getKey(), tfidf);
+            i = m.getTerm(pos);
+            double tfidf = m.getFreq(pos) * idf.get(i);
+            query.put(i, tfidf);
         }
 
         // 2.- We normalize this vector
         this.normalizeVector(query);
         
-        // 3.- For every descriptor vector, we compute the angle with the query vector (score)
+        // 3.- For every descriptor vector, we compute the angle with the query vector (score).
+        // Only the descriptors sharing terms with the query are visited (through
+        // the inverted index); their scalar products are accumulated in the same
+        // order as scalarProduct(query, vector) does
         Map<Integer, Double> score = new HashMap<Integer, Double>();
         
-        for (Map.Entry<Integer, Map<Integer, Double>> vi : vectors.entrySet())
+        if (++vc.accumulatorEpoch == 0) {
+            Arrays.fill(accumulatorMark, 0);
+            vc.accumulatorEpoch = 1;
+        }
+        int accumulatorEpoch = vc.accumulatorEpoch;
+        int numTouched = 0;
+        
+        for (Map.Entry<Integer, Double> q : query.entrySet())
         {
-          
-          double cos_angle = this.scalarProduct(query, vi.getValue());
+          int t = q.getKey();
+          if (t >= lex.size())
+              continue;
+          double qt = q.getValue();
+          for (int k=postingOffsets[t]; k<postingOffsets[t+1]; ++k)
+          {
+            int p = postingDescriptors[k];
+            if (accumulatorMark[p] != accumulatorEpoch) {
+                accumulatorMark[p] = accumulatorEpoch;
+                accumulator[p] = 0.0;
+                touched[numTouched++] = p;
+            }
+            accumulator[p] += qt*postingWeights[k];
+          }
+        }
+        
+        // descriptors are inserted in "score" in the same order as before
+        Arrays.sort(touched, 0, numTouched);
+        for (int k=0; k<numTouched; ++k)
+        {
+          int p = touched[k];
+          double cos_angle = accumulator[p];
           
           // REMEMBER VECTORS ARE ALREADY NORMALIZED!!
           if (cos_angle > 0.0)
-              score.put(vi.getKey(), cos_angle);
+              score.put(descriptorIds[p], cos_angle);
           
         }
         
-        // nidf usage?        
-        if(useNidf)
-          this.computeNIDF(score);        
-        
-        // 4.- We sort the list by its value of score (angle) (class Result is comparable, so we only
-        // have to call the method "sort" of the class Collections passing "l").
+        time = Metrics.stop(Metrics.Stage.VSM_SCORING, time);
         
-        for (Map.Entry<Integer, Double> result : score.entrySet() ) {
-            Descriptor d = ld.get(result.getKey());     
-            l.add(new Result( d, result.getValue() ));
+        // nidf usage?        
+        if(useNidf) {
+          this.computeNIDF(score, c);
+          time = Metrics.stop(Metrics.Stage.NIDF, time);
         }
         
-        Collections.sort(l, new Comparator<Result>() { public int compare(Result s1, Result s2) { if (s1.getProb() > s2.getProb()) return -1; else return 1; } });
-
+        // 4.- We sort the descriptors by their value of score (angle), keeping
+        // only the best ones if topK is set (after nidf some scores may be 0)
         
+        List<Result> l = rankResults(score, false);
+        Metrics.stop(Metrics.Stage.RANKING, time);
         return l;
     }
 }